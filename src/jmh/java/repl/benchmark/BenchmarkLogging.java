@@ -0,0 +1,55 @@
+package repl.benchmark;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.WriterAppender;
+import repl.utils.AsyncLogAppender;
+
+import java.io.Writer;
+
+/**
+ * Points the root logger at appenders that format every event but write it nowhere, so the
+ * benchmarks pay for logging without flooding the console
+ *
+ * @author Garth Bosch
+ */
+final class BenchmarkLogging {
+    private static final String CONVERSION_PATTERN = "(%d{HH:mm:ss,SSS}) %C{1} : %-5p - %m%n";
+
+    private BenchmarkLogging() {
+    }
+
+    /**
+     * @param async - write through an AsyncLogAppender like Logging does by default
+     * @param level - root level, e.g. WARN to measure the cost of disabled info logging
+     */
+    static void configure(boolean async, Level level) {
+        Logger root = Logger.getRootLogger();
+        root.removeAllAppenders();
+        WriterAppender discard = new WriterAppender(new PatternLayout(CONVERSION_PATTERN), new DiscardWriter());
+        if (async) {
+            AsyncLogAppender asyncAppender = new AsyncLogAppender(8192, AsyncLogAppender.OverflowPolicy.BLOCK, 256, true);
+            asyncAppender.addAppender(discard);
+            root.addAppender(asyncAppender);
+        } else {
+            root.addAppender(discard);
+        }
+        root.setLevel(level);
+    }
+
+    private static class DiscardWriter extends Writer {
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
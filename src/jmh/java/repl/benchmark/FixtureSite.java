@@ -0,0 +1,122 @@
+package repl.benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.log4j.Logger;
+import repl.utils.Logging;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the static pages of a Takealot like shop from the classpath on a loopback port, so the
+ * search, product, size, add to cart and cart flow can run without the network
+ *
+ * @author Garth Bosch
+ */
+public class FixtureSite implements Closeable {
+    private static final Logger log = Logging.getLogger(FixtureSite.class);
+    private static final String ROOT = "/fixtures/takealot";
+    private static final Map<String, String> CONTENT_TYPES = new HashMap<>();
+
+    static {
+        CONTENT_TYPES.put("html", "text/html; charset=utf-8");
+        CONTENT_TYPES.put("js", "application/javascript; charset=utf-8");
+        CONTENT_TYPES.put("css", "text/css; charset=utf-8");
+    }
+
+    private final Map<String, byte[]> pages = new ConcurrentHashMap<>();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    /**
+     * Start serving on a free loopback port
+     *
+     * @return the port
+     */
+    public int start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", this::serve);
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "fixture-site");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.start();
+        log.info("Fixture site serving on " + getBaseUrl());
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * e.g. http://127.0.0.1:41234/
+     */
+    public String getBaseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/")) {
+                path = "/index.html";
+            }
+            byte[] body = pages.computeIfAbsent(path, FixtureSite::load);
+            if (body.length == 0) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            String extension = path.substring(path.lastIndexOf('.') + 1);
+            exchange.getResponseHeaders().add("Content-Type", CONTENT_TYPES.getOrDefault(extension, "application/octet-stream"));
+            exchange.getResponseHeaders().add("Cache-Control", "no-store");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * @return the resource's bytes, or none if there is no such page
+     */
+    private static byte[] load(String path) {
+        if (path.contains("..")) {
+            return new byte[0];
+        }
+        try (InputStream in = FixtureSite.class.getResourceAsStream(ROOT + path)) {
+            if (in == null) {
+                return new byte[0];
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+            return bytes.toByteArray();
+        } catch (IOException ex) {
+            log.error("Unable to read fixture page " + path + " - " + ex.getMessage());
+            return new byte[0];
+        }
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package repl.benchmark;
+
+import org.apache.log4j.Logger;
+import repl.utils.BrowserProfile;
+import repl.utils.Locator;
+import repl.utils.Logging;
+import repl.utils.SeleniumWebDriverUtils;
+import repl.utils.StepMetrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Runs the search, product, size, add to cart and cart flow against the local FixtureSite a
+ * number of times and reports the p50/p95/p99 latency of each stage and of the whole flow. It
+ * needs nothing but a local chrome, so it gives a stable baseline to compare wait, pooling and
+ * browser profile changes against.
+ * <p>
+ * Run with: mvn -P benchmark test-compile exec:exec@flow, tuned with the system properties
+ * repl.flow.iterations (default 20), repl.flow.warmup (3), repl.flow.delay - the fixture's
+ * simulated api latency in ms (150) - and repl.flow.pool - reuse sessions from a warm pool
+ * (false). Browsers run with the lean profile unless repl.browser.profile says otherwise.
+ * <p>
+ * The report is logged and written to reports/benchmarks/, along with the step metrics of the
+ * measured flows.
+ *
+ * @author Garth Bosch
+ */
+public class FlowBenchmark {
+    private static final Logger log = Logging.getLogger(FlowBenchmark.class);
+    private static final String OUTPUT_DIR = "reports/benchmarks/";
+    private static final String PRODUCT = "UGG Mens South Bay Sneaker Low Black";
+    private static final String SIZE = "UK 9";
+    private static final String FLOW = "flow";
+
+    private static final Locator SEARCH_INPUT = Locator.id("search-input");
+    private static final Locator SEARCH_BUTTON = Locator.id("search-button");
+    private static final Locator SHOW_ALL_OPTIONS = Locator.id("show-all-options");
+    private static final Locator SIZE_BUTTON = Locator.xpath("//div[@id='variant-selector']/button[3]");
+    private static final Locator ADD_TO_CART = Locator.id("add-to-cart");
+    private static final Locator GO_TO_CART = Locator.id("go-to-cart");
+    private static final Locator CART_ITEM_TITLE = Locator.css(".cart-item-title");
+
+    private final SeleniumWebDriverUtils driver = new SeleniumWebDriverUtils();
+    private final Map<String, List<Long>> samples = new LinkedHashMap<>();
+    private int failures;
+
+    public static void main(String[] args) throws IOException {
+        int iterations = Integer.getInteger("repl.flow.iterations", 20);
+        int warmup = Integer.getInteger("repl.flow.warmup", 3);
+        int delay = Integer.getInteger("repl.flow.delay", 150);
+        boolean pool = Boolean.getBoolean("repl.flow.pool");
+
+        FlowBenchmark benchmark = new FlowBenchmark();
+        try (FixtureSite site = new FixtureSite()) {
+            site.start();
+            benchmark.run(site.getBaseUrl() + "?delay=" + delay, iterations, warmup, pool);
+        }
+        benchmark.report(iterations, warmup, delay, pool);
+    }
+
+    private void run(String url, int iterations, int warmup, boolean pool) {
+        if (System.getProperty(BrowserProfile.PROFILE_PROPERTY) == null) {
+            driver.setBrowserProfile(BrowserProfile.lean());
+        }
+        if (pool) {
+            driver.enableSessionPool(1, iterations + warmup);
+        }
+        try {
+            for (int i = 0; i < warmup; i++) {
+                runFlow(url, false);
+            }
+            StepMetrics.suite().clear();
+            for (int i = 0; i < iterations; i++) {
+                runFlow(url, true);
+            }
+        } finally {
+            driver.shutdownAll();
+        }
+    }
+
+    private void runFlow(String url, boolean measured) {
+        long flowStart = System.nanoTime();
+        String[] cartText = new String[1];
+        stage("start", measured, () -> driver.startDriver(url));
+        stage("search", measured, () -> {
+            driver.enterText(SEARCH_INPUT, PRODUCT);
+            driver.clickElement(SEARCH_BUTTON);
+        });
+        stage("open product", measured, () -> driver.clickElement(SHOW_ALL_OPTIONS));
+        stage("select size", measured, () -> driver.clickElement(SIZE_BUTTON));
+        stage("add to cart", measured, () -> driver.clickElement(ADD_TO_CART));
+        stage("go to cart", measured, () -> driver.clickElement(GO_TO_CART));
+        stage("read cart", measured, () -> cartText[0] = driver.getText(CART_ITEM_TITLE));
+        stage("shutdown", measured, driver::shutdown);
+        if (measured) {
+            samples.computeIfAbsent(FLOW, name -> new ArrayList<>()).add(System.nanoTime() - flowStart);
+            if (!(PRODUCT + " - " + SIZE).equals(cartText[0])) {
+                failures++;
+                log.error("Flow did not end with the product in the cart, found " + cartText[0]);
+            }
+        }
+    }
+
+    private void stage(String name, boolean measured, Runnable action) {
+        long start = System.nanoTime();
+        action.run();
+        if (measured) {
+            samples.computeIfAbsent(name, stage -> new ArrayList<>()).add(System.nanoTime() - start);
+        }
+    }
+
+    private void report(int iterations, int warmup, int delay, boolean pool) throws IOException {
+        String runName = "flow_" + new SimpleDateFormat("yyyy_MM_dd_HHmmss").format(new Date());
+        Path dir = Paths.get(OUTPUT_DIR);
+        Files.createDirectories(dir);
+
+        StringBuilder table = new StringBuilder();
+        table.append(String.format(Locale.ROOT, "%nFlow benchmark: %d iterations after %d warmup, %d ms fixture delay, "
+                + "session pool %s, %d failed flows%n", iterations, warmup, delay, pool ? "on" : "off", failures));
+        table.append(String.format(Locale.ROOT, "%-14s %6s %9s %9s %9s %9s %9s%n",
+                "stage", "n", "p50 ms", "p95 ms", "p99 ms", "mean ms", "max ms"));
+        try (Writer csv = Files.newBufferedWriter(dir.resolve(runName + ".csv"), StandardCharsets.UTF_8)) {
+            csv.write("stage,n,p50_ms,p95_ms,p99_ms,mean_ms,max_ms\n");
+            for (Map.Entry<String, List<Long>> stage : samples.entrySet()) {
+                long[] sorted = toSortedMillis(stage.getValue());
+                double mean = Arrays.stream(sorted).average().orElse(0);
+                long max = sorted.length == 0 ? 0 : sorted[sorted.length - 1];
+                table.append(String.format(Locale.ROOT, "%-14s %6d %9d %9d %9d %9.1f %9d%n", stage.getKey(), sorted.length,
+                        percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99), mean, max));
+                csv.write(String.format(Locale.ROOT, "%s,%d,%d,%d,%d,%.1f,%d%n", stage.getKey(), sorted.length,
+                        percentile(sorted, 0.50), percentile(sorted, 0.95), percentile(sorted, 0.99), mean, max));
+            }
+        }
+        StepMetrics.suite().export(dir, runName + "_steps");
+        log.info(table.toString());
+        log.info("Flow benchmark written to " + dir.resolve(runName + ".csv"));
+    }
+
+    private static long[] toSortedMillis(List<Long> nanos) {
+        long[] millis = new long[nanos.size()];
+        for (int i = 0; i < millis.length; i++) {
+            millis[i] = nanos.get(i) / 1_000_000;
+        }
+        Arrays.sort(millis);
+        return millis;
+    }
+
+    /**
+     * Nearest rank percentile of the sorted samples
+     */
+    static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+}
@@ -0,0 +1,76 @@
+package repl.benchmark;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import repl.utils.Logging;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What a log call costs the thread making it, for enabled and disabled levels and for the
+ * synchronous and asynchronous appender set ups
+ *
+ * @author Garth Bosch
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoggingBenchmark {
+    private static final String ELEMENT = "#shopfront-app > header > div > form > div > div.input-group-button > button";
+
+    @Param({"true", "false"})
+    public boolean async;
+
+    @Param({"INFO", "WARN"})
+    public String logLevel;
+
+    private Logger log;
+
+    @Setup
+    public void setUp() {
+        log = Logging.getLogger(LoggingBenchmark.class);
+        BenchmarkLogging.configure(async, Level.toLevel(logLevel));
+    }
+
+    @Benchmark
+    public void placeholders() {
+        Logging.info(log, "Element {} successfully clicked with attribute type {}", ELEMENT, "css");
+    }
+
+    @Benchmark
+    public void supplier() {
+        Logging.info(log, () -> "Element " + ELEMENT + " successfully clicked with attribute type css");
+    }
+
+    /**
+     * Baseline for placeholders, the message is built whether or not the level is enabled
+     */
+    @Benchmark
+    public void concatenation() {
+        log.info("Element " + ELEMENT + " successfully clicked with attribute type " + "css");
+    }
+
+    @Benchmark
+    public Logger getLoggerByCaller() {
+        return Logging.getLogger();
+    }
+
+    @Benchmark
+    public Logger getLoggerByClass() {
+        return Logging.getLogger(LoggingBenchmark.class);
+    }
+}
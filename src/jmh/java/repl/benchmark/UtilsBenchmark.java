@@ -0,0 +1,101 @@
+package repl.benchmark;
+
+import org.apache.log4j.Level;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.Wait;
+import repl.utils.Locator;
+import repl.utils.SeleniumWebDriverUtils;
+import repl.utils.WaitPolicy;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What SeleniumWebDriverUtils itself costs per call, measured against a stub driver that answers
+ * instantly: locator resolution, wait construction, logging and step metrics
+ *
+ * @author Garth Bosch
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilsBenchmark {
+    private static final String CSS = "#shopfront-app > header > div > form > div > div.input-group-button > button";
+
+    /**
+     * INFO pays for every success log, WARN only for the level check
+     */
+    @Param({"INFO", "WARN"})
+    public String logLevel;
+
+    private SeleniumWebDriverUtils utils;
+    private WebDriver driver;
+    private Locator locator;
+
+    @Setup
+    public void setUp() {
+        utils = new SeleniumWebDriverUtils();
+        BenchmarkLogging.configure(true, Level.toLevel(logLevel));
+        driver = new StubWebDriver();
+        utils.attachDriver(driver);
+        locator = Locator.css(CSS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        utils.shutdown();
+    }
+
+    @Benchmark
+    public void clickElementByStrings() {
+        utils.clickElement(CSS, "css");
+    }
+
+    @Benchmark
+    public void clickElementByLocator() {
+        utils.clickElement(locator);
+    }
+
+    @Benchmark
+    public String getText() {
+        return utils.getText(locator);
+    }
+
+    @Benchmark
+    public Object findWebElement() {
+        return utils.findWebElement(locator);
+    }
+
+    @Benchmark
+    public Wait<WebDriver> newWait() {
+        return utils.getWaitPolicy().newWait(driver, WaitPolicy.Budget.CLICKABLE, locator.getKey());
+    }
+
+    @Benchmark
+    public Locator locatorOf() {
+        return Locator.of(CSS, "css");
+    }
+
+    /**
+     * Baseline for locatorOf, what Selenium costs without the interning cache
+     */
+    @Benchmark
+    public By byCssSelector() {
+        return By.cssSelector(CSS);
+    }
+}
@@ -0,0 +1,22 @@
+// Stands in for the live site's api calls. The delay is set with ?delay= on any page url, is
+// kept for the rest of the session and defaults to 150 ms.
+var shop = {
+    delay: function () {
+        var requested = new URLSearchParams(window.location.search).get('delay');
+        if (requested !== null) {
+            sessionStorage.setItem('delay', requested);
+        }
+        var delay = parseInt(sessionStorage.getItem('delay'), 10);
+        return isNaN(delay) ? 150 : delay;
+    },
+    later: function (render) {
+        var run = function () {
+            window.setTimeout(render, shop.delay());
+        };
+        if (document.readyState === 'loading') {
+            document.addEventListener('DOMContentLoaded', run);
+        } else {
+            run();
+        }
+    }
+};
@@ -0,0 +1,54 @@
+package repl.utils;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A backoff strategy that remembers how long past waits for each locator took. Once a locator has
+ * history, its first sleep is half its median wait, so an element that normally shows up after
+ * 400 ms isn't polled ten times before then. History is kept for up to 1024 locators, later
+ * ones poll like a plain backoff strategy, so locators built from dynamic text don't pile up.
+ *
+ * @author Garth Bosch
+ */
+public class AdaptivePollingStrategy extends BackoffPollingStrategy {
+    static final int MAX_KEYS = 1024;
+    private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    public AdaptivePollingStrategy(Duration initialInterval, double multiplier, Duration maxInterval) {
+        super(initialInterval, multiplier, maxInterval);
+    }
+
+    @Override
+    protected long initialInterval(String key) {
+        LatencyHistogram histogram = key == null ? null : histograms.get(key);
+        if (histogram == null || histogram.getCount() == 0) {
+            return getInitialMillis();
+        }
+        long halfMedian = histogram.getPercentileMillis(0.5) / 2;
+        return Math.max(getInitialMillis(), Math.min(getMaxMillis(), halfMedian));
+    }
+
+    @Override
+    public void recordWait(String key, Duration elapsed) {
+        if (key == null) {
+            return;
+        }
+        LatencyHistogram histogram = histograms.get(key);
+        if (histogram == null) {
+            if (histograms.size() >= MAX_KEYS) {
+                return;
+            }
+            histogram = histograms.computeIfAbsent(key, k -> new LatencyHistogram());
+        }
+        histogram.record(elapsed);
+    }
+
+    /**
+     * @return the recorded wait latencies for the key, or null if it has not been waited for yet
+     */
+    public LatencyHistogram getHistogram(String key) {
+        return histograms.get(key);
+    }
+}
@@ -0,0 +1,355 @@
+package repl.utils;
+
+import org.apache.log4j.Appender;
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.helpers.AppenderAttachableImpl;
+import org.apache.log4j.helpers.LogLog;
+import org.apache.log4j.spi.AppenderAttachable;
+import org.apache.log4j.spi.Filter;
+import org.apache.log4j.spi.LocationInfo;
+import org.apache.log4j.spi.LoggingEvent;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hands log events to a background thread through a bounded queue so that logging never waits on
+ * the console or the disk. The background thread passes events to the attached appenders in
+ * batches and flushes any Flushable appender once per batch.
+ * <p>
+ * What happens when the queue is full is up to the overflow policy. Events that are dropped are
+ * counted and reported in the log once there is room again.
+ *
+ * @author Garth Bosch
+ */
+public class AsyncLogAppender extends AppenderSkeleton implements AppenderAttachable {
+    private static final long IDLE_POLL_MILLIS = 250;
+    private static final long CLOSE_TIMEOUT_MILLIS = 5000;
+    private static final LocationInfo DROPPED_LOCATION = new LocationInfo("AsyncLogAppender.java",
+            AsyncLogAppender.class.getName(), "writeBatch", "?");
+
+    public enum OverflowPolicy {
+        /**
+         * Wait for room, nothing is lost
+         */
+        BLOCK,
+        /**
+         * Drop the event being logged
+         */
+        DROP_NEWEST,
+        /**
+         * Drop the oldest queued event to make room, queued tasks are kept
+         */
+        DROP_OLDEST
+    }
+
+    private final BlockingQueue<LoggingEvent> queue;
+    private final OverflowPolicy overflowPolicy;
+    private final int batchSize;
+    private final boolean locationInfo;
+    private final AppenderAttachableImpl appenders = new AppenderAttachableImpl();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread dispatcher;
+    private volatile boolean closing;
+
+    /**
+     * @param queueSize      - number of events that can wait to be written
+     * @param overflowPolicy - what to do when the queue is full
+     * @param batchSize      - most events written between flushes
+     * @param locationInfo   - capture the calling class and line on the logging thread, needed when
+     *                       the layout uses %C, %F, %L or %M
+     */
+    public AsyncLogAppender(int queueSize, OverflowPolicy overflowPolicy, int batchSize, boolean locationInfo) {
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.overflowPolicy = overflowPolicy;
+        this.batchSize = batchSize;
+        this.locationInfo = locationInfo;
+        this.dispatcher = new Thread(this::dispatch, "async-log-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * Unlike AppenderSkeleton this is not synchronized, the queue is all the coordination needed
+     */
+    @Override
+    public void doAppend(LoggingEvent event) {
+        if (closed || !isAsSevereAsThreshold(event.getLevel())) {
+            return;
+        }
+        for (Filter filter = getFirstFilter(); filter != null; filter = filter.getNext()) {
+            int decision = filter.decide(event);
+            if (decision == Filter.DENY) {
+                return;
+            }
+            if (decision == Filter.ACCEPT) {
+                break;
+            }
+        }
+        append(event);
+    }
+
+    @Override
+    protected void append(LoggingEvent event) {
+        if (closing) {
+            synchronized (appenders) {
+                appenders.appendLoopOnAppenders(event);
+            }
+            return;
+        }
+        // anything that depends on the calling thread has to be captured before the hand off
+        event.getNDC();
+        event.getThreadName();
+        event.getMDCCopy();
+        event.getRenderedMessage();
+        event.getThrowableStrRep();
+        if (locationInfo) {
+            event.getLocationInformation();
+        }
+
+        switch (overflowPolicy) {
+            case BLOCK:
+                try {
+                    queue.put(event);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    dropped.incrementAndGet();
+                }
+                break;
+            case DROP_OLDEST:
+                while (!queue.offer(event)) {
+                    if (!dropOldestEvent()) {
+                        try {
+                            queue.put(event);
+                        } catch (InterruptedException ex) {
+                            Thread.currentThread().interrupt();
+                            dropped.incrementAndGet();
+                        }
+                        break;
+                    }
+                }
+                break;
+            default:
+                if (!queue.offer(event)) {
+                    dropped.incrementAndGet();
+                }
+        }
+    }
+
+    /**
+     * Remove the oldest queued event to make room, skipping tasks since those must run
+     *
+     * @return false if only tasks are queued
+     */
+    private boolean dropOldestEvent() {
+        for (LoggingEvent queued : queue) {
+            if (!(queued instanceof Task)) {
+                if (queue.remove(queued)) {
+                    dropped.incrementAndGet();
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Run the task on the background thread once every event queued before it has been written,
+     * e.g. to close a file only after everything meant for it is in it. Never dropped, whatever
+     * the overflow policy.
+     */
+    public void afterQueued(Runnable task) {
+        if (closing || closed) {
+            synchronized (appenders) {
+                task.run();
+            }
+            return;
+        }
+        try {
+            queue.put(new Task(task));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            synchronized (appenders) {
+                task.run();
+            }
+        }
+    }
+
+    private void dispatch() {
+        List<LoggingEvent> batch = new ArrayList<>(batchSize);
+        while (true) {
+            try {
+                LoggingEvent first = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (closing) {
+                        return;
+                    }
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                writeBatch(batch);
+                batch.clear();
+            } catch (InterruptedException ex) {
+                if (closing) {
+                    queue.drainTo(batch);
+                    writeBatch(batch);
+                    return;
+                }
+            } catch (Exception ex) {
+                LogLog.error("Async log dispatcher failed to write a batch", ex);
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<LoggingEvent> batch) {
+        synchronized (appenders) {
+            long lost = dropped.getAndSet(0);
+            if (lost > 0) {
+                // a fixed location, looking it up on this thread would report the dispatcher's Thread.run
+                appenders.appendLoopOnAppenders(new LoggingEvent(AsyncLogAppender.class.getName(),
+                        org.apache.log4j.Logger.getLogger(AsyncLogAppender.class), System.currentTimeMillis(), Level.WARN,
+                        lost + " log events were dropped because the log queue was full",
+                        Thread.currentThread().getName(), null, null, DROPPED_LOCATION, null));
+            }
+            for (LoggingEvent event : batch) {
+                if (event instanceof Task) {
+                    flushAppenders();
+                    ((Task) event).run();
+                } else {
+                    appenders.appendLoopOnAppenders(event);
+                }
+            }
+            flushAppenders();
+        }
+    }
+
+    private void flushAppenders() {
+        Enumeration<?> all = appenders.getAllAppenders();
+        while (all != null && all.hasMoreElements()) {
+            Object appender = all.nextElement();
+            if (appender instanceof Flushable) {
+                try {
+                    ((Flushable) appender).flush();
+                } catch (IOException ex) {
+                    LogLog.error("Unable to flush log appender", ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Write everything still queued, then close the attached appenders
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closing = true;
+        try {
+            dispatcher.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        closed = true;
+        synchronized (appenders) {
+            Enumeration<?> all = appenders.getAllAppenders();
+            while (all != null && all.hasMoreElements()) {
+                ((Appender) all.nextElement()).close();
+            }
+        }
+    }
+
+    /**
+     * A task queued in line with the events
+     */
+    private static final class Task extends LoggingEvent {
+        private static final long serialVersionUID = 1L;
+        private final transient Runnable task;
+
+        Task(Runnable task) {
+            super(AsyncLogAppender.class.getName(), org.apache.log4j.Logger.getLogger(AsyncLogAppender.class),
+                    Level.DEBUG, null, null);
+            this.task = task;
+        }
+
+        void run() {
+            try {
+                task.run();
+            } catch (Exception ex) {
+                LogLog.error("Async log task failed", ex);
+            }
+        }
+    }
+
+    @Override
+    public boolean requiresLayout() {
+        return false;
+    }
+
+    /**
+     * Number of events dropped since the last batch was written
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    @Override
+    public void addAppender(Appender appender) {
+        synchronized (appenders) {
+            appenders.addAppender(appender);
+        }
+    }
+
+    @Override
+    public Enumeration<?> getAllAppenders() {
+        synchronized (appenders) {
+            return appenders.getAllAppenders();
+        }
+    }
+
+    @Override
+    public Appender getAppender(String name) {
+        synchronized (appenders) {
+            return appenders.getAppender(name);
+        }
+    }
+
+    @Override
+    public boolean isAttached(Appender appender) {
+        synchronized (appenders) {
+            return appenders.isAttached(appender);
+        }
+    }
+
+    @Override
+    public void removeAllAppenders() {
+        synchronized (appenders) {
+            appenders.removeAllAppenders();
+        }
+    }
+
+    @Override
+    public void removeAppender(Appender appender) {
+        synchronized (appenders) {
+            appenders.removeAppender(appender);
+        }
+    }
+
+    @Override
+    public void removeAppender(String name) {
+        synchronized (appenders) {
+            appenders.removeAppender(name);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package repl.utils;
+
+import org.openqa.selenium.support.ui.Sleeper;
+
+import java.time.Clock;
+import java.time.Duration;
+
+/**
+ * Starts polling at a tight interval and backs off exponentially up to a maximum interval.
+ * Fast elements are picked up within a few milliseconds while slow ones are not polled needlessly.
+ * When the wait's timeout is known no sleep runs past it, so the last poll happens right on the
+ * timeout instead of up to a whole interval after it.
+ *
+ * @author Garth Bosch
+ */
+public class BackoffPollingStrategy implements PollingStrategy {
+    private final long initialMillis;
+    private final double multiplier;
+    private final long maxMillis;
+    private final Sleeper sleeper;
+    private final Clock clock;
+
+    public BackoffPollingStrategy(Duration initialInterval, double multiplier, Duration maxInterval) {
+        this(initialInterval, multiplier, maxInterval, Sleeper.SYSTEM_SLEEPER, Clock.systemDefaultZone());
+    }
+
+    /**
+     * @param sleeper - does the sleeping, e.g. a recording one in tests
+     * @param clock   - tells the time left until a wait's timeout
+     */
+    BackoffPollingStrategy(Duration initialInterval, double multiplier, Duration maxInterval, Sleeper sleeper,
+                           Clock clock) {
+        if (multiplier < 1) {
+            throw new IllegalArgumentException("Backoff multiplier must be at least 1 but was " + multiplier);
+        }
+        this.initialMillis = Math.max(1, initialInterval.toMillis());
+        this.multiplier = multiplier;
+        this.maxMillis = Math.max(initialMillis, maxInterval.toMillis());
+        this.sleeper = sleeper;
+        this.clock = clock;
+    }
+
+    @Override
+    public Sleeper newSleeper(String key) {
+        return new BackoffSleeper(initialInterval(key), Long.MAX_VALUE);
+    }
+
+    @Override
+    public Sleeper newSleeper(String key, Duration timeout) {
+        long now = clock.millis();
+        long deadline = timeout.toMillis() >= Long.MAX_VALUE - now ? Long.MAX_VALUE : now + timeout.toMillis();
+        return new BackoffSleeper(initialInterval(key), deadline);
+    }
+
+    /**
+     * The first interval to sleep for the given key
+     */
+    protected long initialInterval(String key) {
+        return initialMillis;
+    }
+
+    protected long getInitialMillis() {
+        return initialMillis;
+    }
+
+    protected long getMaxMillis() {
+        return maxMillis;
+    }
+
+    private class BackoffSleeper implements Sleeper {
+        private final long deadlineMillis;
+        private long nextMillis;
+
+        private BackoffSleeper(long firstMillis, long deadlineMillis) {
+            this.nextMillis = firstMillis;
+            this.deadlineMillis = deadlineMillis;
+        }
+
+        @Override
+        public void sleep(Duration duration) throws InterruptedException {
+            long millis = nextMillis;
+            nextMillis = Math.min(maxMillis, (long) Math.ceil(millis * multiplier));
+            if (deadlineMillis != Long.MAX_VALUE) {
+                // at least 1 ms, the wait's own timeout may be a moment behind and it shouldn't spin
+                millis = Math.max(1, Math.min(millis, deadlineMillis - clock.millis()));
+            }
+            sleeper.sleep(Duration.ofMillis(millis));
+        }
+    }
+}
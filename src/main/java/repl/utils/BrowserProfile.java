@@ -0,0 +1,174 @@
+package repl.utils;
+
+import org.apache.log4j.Logger;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.chrome.ChromeOptions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * How the browser is launched. The standard profile is a maximized, headed window that loads
+ * everything. The lean profile runs headless in a fixed viewport and skips what assertions never
+ * look at: images, web fonts and analytics/ad hosts.
+ * <p>
+ * The profile can be chosen with the repl.browser.profile system property (standard or lean).
+ *
+ * @author Garth Bosch
+ */
+public class BrowserProfile {
+    public static final String PROFILE_PROPERTY = "repl.browser.profile";
+    private static final Logger log = Logging.getLogger(BrowserProfile.class);
+    private static final int BLOCKED = 2;
+    private static final Dimension DEFAULT_VIEWPORT = new Dimension(1366, 768);
+    private static final List<String> DEFAULT_BLOCKED_HOSTS = Collections.unmodifiableList(Arrays.asList(
+            "*.google-analytics.com",
+            "*.googletagmanager.com",
+            "*.googleadservices.com",
+            "*.googlesyndication.com",
+            "*.doubleclick.net",
+            "*.facebook.net",
+            "*.hotjar.com",
+            "*.newrelic.com",
+            "*.nr-data.net",
+            "*.criteo.com",
+            "*.criteo.net",
+            "*.adnxs.com",
+            "*.taboola.com",
+            "*.outbrain.com"));
+
+    private boolean headless;
+    private Dimension viewport;
+    private boolean blockImages;
+    private boolean blockFonts;
+    private final Set<String> blockedHosts = new LinkedHashSet<>();
+
+    /**
+     * A maximized, headed browser that loads everything
+     */
+    public static BrowserProfile standard() {
+        return new BrowserProfile();
+    }
+
+    /**
+     * A headless browser with a fixed viewport that blocks images, web fonts and analytics/ad hosts
+     */
+    public static BrowserProfile lean() {
+        BrowserProfile profile = new BrowserProfile();
+        profile.setHeadless(true);
+        profile.setViewport(DEFAULT_VIEWPORT);
+        profile.setBlockImages(true);
+        profile.setBlockFonts(true);
+        profile.blockHosts(DEFAULT_BLOCKED_HOSTS);
+        return profile;
+    }
+
+    /**
+     * The profile named by the repl.browser.profile system property, standard if it is not set or
+     * names no profile. It is read while the utils are created, so a typo is logged instead of thrown.
+     */
+    public static BrowserProfile fromSystemProperty() {
+        String name = System.getProperty(PROFILE_PROPERTY, "standard");
+        switch (name.toLowerCase()) {
+            case "lean":
+                return lean();
+            case "standard":
+                return standard();
+            default:
+                log.warn("Unknown browser profile " + name + " in " + PROFILE_PROPERTY
+                        + ", expected standard or lean. Using the standard profile");
+                return standard();
+        }
+    }
+
+    /**
+     * Add this profile's switches to the options and its content settings to the chrome prefs
+     */
+    public void applyTo(ChromeOptions chromeOptions, Map<String, Object> chromePrefs) {
+        List<String> arguments = new ArrayList<>();
+        if (headless) {
+            arguments.add("--headless");
+        }
+        if (viewport != null) {
+            arguments.add("--window-size=" + viewport.getWidth() + "," + viewport.getHeight());
+        }
+        if (blockImages) {
+            chromePrefs.put("profile.managed_default_content_settings.images", BLOCKED);
+        }
+        if (blockFonts) {
+            // chrome has no content setting for fonts, this switch stops web fonts being fetched
+            arguments.add("--disable-remote-fonts");
+        }
+        if (!blockedHosts.isEmpty()) {
+            StringBuilder rules = new StringBuilder();
+            for (String host : blockedHosts) {
+                if (rules.length() > 0) {
+                    rules.append(", ");
+                }
+                rules.append("MAP ").append(host).append(" ~NOTFOUND");
+            }
+            arguments.add("--host-resolver-rules=" + rules);
+        }
+        chromeOptions.addArguments(arguments);
+    }
+
+    public boolean isHeadless() {
+        return headless;
+    }
+
+    public void setHeadless(boolean headless) {
+        this.headless = headless;
+    }
+
+    /**
+     * @return the fixed viewport or null if the window is maximized
+     */
+    public Dimension getViewport() {
+        return viewport;
+    }
+
+    /**
+     * Use a fixed viewport instead of maximizing the window. Null maximizes.
+     */
+    public void setViewport(Dimension viewport) {
+        this.viewport = viewport;
+    }
+
+    public boolean isBlockImages() {
+        return blockImages;
+    }
+
+    public void setBlockImages(boolean blockImages) {
+        this.blockImages = blockImages;
+    }
+
+    public boolean isBlockFonts() {
+        return blockFonts;
+    }
+
+    public void setBlockFonts(boolean blockFonts) {
+        this.blockFonts = blockFonts;
+    }
+
+    public Set<String> getBlockedHosts() {
+        return Collections.unmodifiableSet(blockedHosts);
+    }
+
+    /**
+     * Stop the browser resolving these hosts. Wildcards such as *.doubleclick.net are allowed.
+     */
+    public void blockHosts(Iterable<String> hosts) {
+        for (String host : hosts) {
+            blockedHosts.add(host);
+        }
+    }
+
+    public void clearBlockedHosts() {
+        blockedHosts.clear();
+    }
+}
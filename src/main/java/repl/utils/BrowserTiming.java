@@ -0,0 +1,236 @@
+package repl.utils;
+
+import org.apache.log4j.Logger;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.logging.LogEntry;
+import org.openqa.selenium.logging.LogType;
+import org.openqa.selenium.json.Json;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * What the browser spent during one step, as opposed to the harness: the navigation's server and
+ * load times, the resources downloaded and, from chrome's performance log, the network requests
+ * sent and the longest the server took to answer one of them.
+ * <p>
+ * Collection is off by default. Set the repl.browser.timing system property to page for the
+ * Navigation and Resource Timing entries, or to log for those and chrome's performance log, or
+ * use SeleniumWebDriverUtils.setBrowserTimingMode. The timing of each step is logged and added
+ * to its StepMetrics.
+ *
+ * @author Garth Bosch
+ */
+public final class BrowserTiming {
+    public static final String TIMING_PROPERTY = "repl.browser.timing";
+    private static final Logger log = Logging.getLogger(BrowserTiming.class);
+    private static final Json JSON = new Json();
+
+    public enum Mode {
+        OFF,
+        /**
+         * Navigation and Resource Timing entries, one script call per step
+         */
+        PAGE,
+        /**
+         * PAGE plus chrome's performance log, one more command per step
+         */
+        LOG;
+
+        /**
+         * The mode named by the repl.browser.timing system property, off if it isn't set or known
+         */
+        public static Mode fromSystemProperty() {
+            String mode = System.getProperty(TIMING_PROPERTY, "");
+            for (Mode value : values()) {
+                if (value.name().equalsIgnoreCase(mode)) {
+                    return value;
+                }
+            }
+            return OFF;
+        }
+    }
+
+    private long navigationTtfbMillis = -1;
+    private long navigationLoadMillis = -1;
+    private long resources;
+    private long resourceBytes;
+    private long resourceMillis;
+    private String slowestResource;
+    private long slowestResourceMillis;
+    private long networkRequests = -1;
+    private long networkBytes = -1;
+    private long serverWaitMillis = -1;
+
+    private BrowserTiming() {
+    }
+
+    /**
+     * Collect what was added since the last collection on the driver's current page
+     *
+     * @return the timing or null if the page can't report it
+     */
+    static BrowserTiming collect(WebDriver driver, Mode mode) {
+        if (mode == Mode.OFF || driver == null) {
+            return null;
+        }
+        BrowserTiming timing = new BrowserTiming();
+        try {
+            Map<?, ?> page = (Map<?, ?>) ((JavascriptExecutor) driver).executeScript(PageScripts.COLLECT_TIMING);
+            if (page != null) {
+                timing.readPage(page);
+            }
+            if (mode == Mode.LOG) {
+                timing.readPerformanceLog(driver);
+            }
+            return timing;
+        } catch (Exception ex) {
+            Logging.debug(log, "Unable to collect the browser timing - {}", ex.getMessage());
+        }
+        return null;
+    }
+
+    private void readPage(Map<?, ?> page) {
+        Object navigation = page.get("navigation");
+        if (navigation instanceof Map) {
+            navigationTtfbMillis = number(((Map<?, ?>) navigation).get("ttfb"));
+            navigationLoadMillis = number(((Map<?, ?>) navigation).get("load"));
+        }
+        resources = number(page.get("resources"));
+        resourceBytes = number(page.get("resourceBytes"));
+        resourceMillis = number(page.get("resourceMs"));
+        Object slowest = page.get("slowest");
+        slowestResource = slowest == null ? null : slowest.toString();
+        slowestResourceMillis = number(page.get("slowestMs"));
+    }
+
+    /**
+     * Reads the devtools network events logged since the last read. The server wait of a response
+     * is the time between the request being sent and its headers arriving.
+     */
+    private void readPerformanceLog(WebDriver driver) {
+        networkRequests = 0;
+        networkBytes = 0;
+        serverWaitMillis = 0;
+        for (LogEntry entry : driver.manage().logs().get(LogType.PERFORMANCE)) {
+            Map<String, Object> wrapper = JSON.toType(entry.getMessage(), Json.MAP_TYPE);
+            Object message = wrapper.get("message");
+            if (!(message instanceof Map)) {
+                continue;
+            }
+            Object method = ((Map<?, ?>) message).get("method");
+            Object params = ((Map<?, ?>) message).get("params");
+            if (!(params instanceof Map)) {
+                continue;
+            }
+            if ("Network.requestWillBeSent".equals(method)) {
+                networkRequests++;
+            } else if ("Network.loadingFinished".equals(method)) {
+                networkBytes += number(((Map<?, ?>) params).get("encodedDataLength"));
+            } else if ("Network.responseReceived".equals(method)) {
+                Object response = ((Map<?, ?>) params).get("response");
+                Object timing = response instanceof Map ? ((Map<?, ?>) response).get("timing") : null;
+                if (timing instanceof Map) {
+                    Object sent = ((Map<?, ?>) timing).get("sendEnd");
+                    Object headers = ((Map<?, ?>) timing).get("receiveHeadersEnd");
+                    if (sent instanceof Number && headers instanceof Number) {
+                        long wait = Math.round(((Number) headers).doubleValue() - ((Number) sent).doubleValue());
+                        serverWaitMillis = Math.max(serverWaitMillis, wait);
+                    }
+                }
+            }
+        }
+    }
+
+    private static long number(Object value) {
+        return value instanceof Number ? Math.round(((Number) value).doubleValue()) : 0;
+    }
+
+    /**
+     * @return time to first byte of the navigation that loaded during the step, -1 if none did.
+     * Like PageTiming's it counts from the start of the navigation, so includes redirects, DNS
+     * and connecting
+     */
+    public long getNavigationTtfbMillis() {
+        return navigationTtfbMillis;
+    }
+
+    /**
+     * @return how long the navigation that loaded during the step took to fire load, -1 if none did
+     */
+    public long getNavigationLoadMillis() {
+        return navigationLoadMillis;
+    }
+
+    public long getResources() {
+        return resources;
+    }
+
+    public long getResourceBytes() {
+        return resourceBytes;
+    }
+
+    /**
+     * The sum of the durations of the resources loaded, they overlap so it can exceed the step
+     */
+    public long getResourceMillis() {
+        return resourceMillis;
+    }
+
+    public String getSlowestResource() {
+        return slowestResource;
+    }
+
+    public long getSlowestResourceMillis() {
+        return slowestResourceMillis;
+    }
+
+    /**
+     * @return requests seen in chrome's performance log, -1 if it wasn't read
+     */
+    public long getNetworkRequests() {
+        return networkRequests;
+    }
+
+    /**
+     * @return bytes received according to chrome's performance log, -1 if it wasn't read
+     */
+    public long getNetworkBytes() {
+        return networkBytes;
+    }
+
+    /**
+     * @return the longest a response's headers took to arrive, -1 if the performance log wasn't read
+     */
+    public long getServerWaitMillis() {
+        return serverWaitMillis;
+    }
+
+    /**
+     * The time the server is known to have taken: the navigation's time to first byte or the
+     * longest response wait, whichever is longer
+     */
+    public long getServerMillis() {
+        return Math.max(0, Math.max(navigationTtfbMillis, serverWaitMillis));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder summary = new StringBuilder();
+        if (navigationTtfbMillis >= 0) {
+            summary.append(String.format(Locale.ROOT, "navigation ttfb %d ms, load %d ms, ",
+                    navigationTtfbMillis, navigationLoadMillis));
+        }
+        summary.append(String.format(Locale.ROOT, "%d resources, %d KB, %d ms", resources, resourceBytes / 1024,
+                resourceMillis));
+        if (slowestResource != null) {
+            summary.append(String.format(Locale.ROOT, ", slowest %d ms %s", slowestResourceMillis, slowestResource));
+        }
+        if (networkRequests >= 0) {
+            summary.append(String.format(Locale.ROOT, ", %d requests, %d KB received, server wait up to %d ms",
+                    networkRequests, networkBytes / 1024, serverWaitMillis));
+        }
+        return summary.toString();
+    }
+}
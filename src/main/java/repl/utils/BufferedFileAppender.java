@@ -0,0 +1,27 @@
+package repl.utils;
+
+import org.apache.log4j.FileAppender;
+import org.apache.log4j.Layout;
+
+import java.io.Flushable;
+import java.io.IOException;
+
+/**
+ * A file appender that writes through a buffer and only flushes when told to, so a batch of
+ * events costs one write to disk instead of one per event.
+ *
+ * @author Garth Bosch
+ */
+public class BufferedFileAppender extends FileAppender implements Flushable {
+
+    public BufferedFileAppender(Layout layout, String fileName, boolean append, int bufferSize) throws IOException {
+        super(layout, fileName, append, true, bufferSize);
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (qw != null) {
+            qw.flush();
+        }
+    }
+}
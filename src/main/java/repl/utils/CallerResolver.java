@@ -0,0 +1,126 @@
+package repl.utils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Iterator;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Finds the class that called into Logging. On Java 9+ it uses StackWalker, which only looks at
+ * the few frames it needs instead of capturing the whole stack, through method handles so that
+ * no frame costs a reflective call. On Java 8 it reads the class context of a SecurityManager,
+ * an array of the classes on the stack without the cost of building stack trace elements.
+ * <p>
+ * Either way it is a stack walk, so getLogger(Class) is the one to use where loggers are asked
+ * for often.
+ *
+ * @author Garth Bosch
+ */
+final class CallerResolver {
+    private static final Object WALKER;
+    private static final MethodHandle WALK;
+    private static final MethodHandle GET_CLASS_NAME;
+    private static final Function<Stream<Object>, String> FIRST_CALLER = CallerResolver::firstCaller;
+
+    static {
+        Object walker = null;
+        MethodHandle walk = null;
+        MethodHandle getClassName = null;
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> walkerClass = Class.forName("java.lang.StackWalker");
+            walker = walkerClass.getMethod("getInstance").invoke(null);
+            walk = lookup.findVirtual(walkerClass, "walk", MethodType.methodType(Object.class, Function.class))
+                    .asType(MethodType.methodType(Object.class, Object.class, Function.class));
+            getClassName = lookup.findVirtual(Class.forName("java.lang.StackWalker$StackFrame"), "getClassName",
+                    MethodType.methodType(String.class)).asType(MethodType.methodType(String.class, Object.class));
+        } catch (Exception ex) {
+            // running on java 8
+            walker = null;
+        }
+        WALKER = walker;
+        WALK = walk;
+        GET_CLASS_NAME = getClassName;
+    }
+
+    private CallerResolver() {
+    }
+
+    /**
+     * @return the name of the first class on the calling thread's stack that is not a logging class
+     */
+    static String callerClassName() {
+        if (WALKER != null) {
+            try {
+                String caller = (String) (Object) WALK.invokeExact(WALKER, (Function<?, ?>) FIRST_CALLER);
+                if (caller != null) {
+                    return caller;
+                }
+            } catch (Throwable ex) {
+                // fall back to the stack trace below
+            }
+        } else {
+            Class<?>[] classes = ClassContext.classes();
+            if (classes != null) {
+                for (Class<?> frame : classes) {
+                    if (!isLoggingClass(frame.getName())) {
+                        return frame.getName();
+                    }
+                }
+            }
+        }
+        for (StackTraceElement frame : new Throwable().getStackTrace()) {
+            if (!isLoggingClass(frame.getClassName())) {
+                return frame.getClassName();
+            }
+        }
+        return Logging.class.getName();
+    }
+
+    private static String firstCaller(Stream<Object> frames) {
+        Iterator<Object> iterator = frames.iterator();
+        while (iterator.hasNext()) {
+            try {
+                String className = (String) GET_CLASS_NAME.invokeExact(iterator.next());
+                if (!isLoggingClass(className)) {
+                    return className;
+                }
+            } catch (Throwable ex) {
+                return null;
+            }
+        }
+        return Logging.class.getName();
+    }
+
+    private static boolean isLoggingClass(String className) {
+        return className.equals(Logging.class.getName()) || className.startsWith(CallerResolver.class.getName())
+                || className.startsWith("java.lang.reflect.") || className.startsWith("jdk.internal.reflect.")
+                || className.startsWith("sun.reflect.");
+    }
+
+    /**
+     * Exposes the class context of a SecurityManager, only created on Java 8
+     */
+    @SuppressWarnings("removal")
+    private static final class ClassContext extends SecurityManager {
+        private static final ClassContext INSTANCE = create();
+
+        private static ClassContext create() {
+            try {
+                return new ClassContext();
+            } catch (SecurityException ex) {
+                return null;
+            }
+        }
+
+        /**
+         * @return the classes on the calling thread's stack, innermost first, or null if a security
+         * manager doesn't allow creating one
+         */
+        static Class<?>[] classes() {
+            return INSTANCE == null ? null : INSTANCE.getClassContext();
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package repl.utils;
+
+import org.apache.log4j.Logger;
+
+import java.time.Duration;
+
+/**
+ * Stops a test that has already failed from spending a full wait on every step after the
+ * failure. Once a step of the test running on this thread fails, every later wait is cut to the
+ * residual budget, zero by default, which leaves it one check of its condition. The first
+ * failure is kept with its timing so the test can report it instead of whatever the cut waits
+ * run into.
+ * <p>
+ * A test can also be given a total budget: waits are cut to whatever is left of it and get a
+ * single check once it is used up.
+ * <p>
+ * Nothing is cut on threads without a test, see startTest. Failed checks, e.g. isElementPresent
+ * returning false, don't count as failures, only failed actions do. The residual and total
+ * budgets default to the repl.failfast.residual and repl.test.budget system properties, in ms.
+ *
+ * @author Garth Bosch
+ */
+public final class CascadeBreaker {
+    public static final String RESIDUAL_PROPERTY = "repl.failfast.residual";
+    public static final String TEST_BUDGET_PROPERTY = "repl.test.budget";
+    private static final Logger log = Logging.getLogger(CascadeBreaker.class);
+    private static final ThreadLocal<CascadeBreaker> CURRENT = new ThreadLocal<>();
+
+    private final String testName;
+    private final long startNanos = System.nanoTime();
+    private final long deadlineNanos;
+    private final Duration residual;
+    private volatile Failure firstFailure;
+
+    private CascadeBreaker(String testName, Duration budget, Duration residual) {
+        this.testName = testName;
+        this.deadlineNanos = budget == null ? Long.MAX_VALUE : startNanos + budget.toNanos();
+        this.residual = residual;
+    }
+
+    /**
+     * Start breaking the cascade of the named test on this thread, with the residual and total
+     * budgets from the system properties
+     */
+    public static CascadeBreaker startTest(String testName) {
+        Long budget = Long.getLong(TEST_BUDGET_PROPERTY);
+        return startTest(testName, budget == null ? null : Duration.ofMillis(budget),
+                Duration.ofMillis(Long.getLong(RESIDUAL_PROPERTY, 0)));
+    }
+
+    /**
+     * @param budget   - the longest the test's waits may take altogether, null for no limit
+     * @param residual - the budget of each wait after a step has failed
+     */
+    public static CascadeBreaker startTest(String testName, Duration budget, Duration residual) {
+        CascadeBreaker breaker = new CascadeBreaker(testName, budget, residual);
+        CURRENT.set(breaker);
+        return breaker;
+    }
+
+    /**
+     * @return the breaker of this thread's test or null if no test was started on this thread
+     */
+    public static CascadeBreaker endTest() {
+        CascadeBreaker breaker = CURRENT.get();
+        CURRENT.remove();
+        return breaker;
+    }
+
+    /**
+     * @return the breaker of this thread's test or null if there is none
+     */
+    public static CascadeBreaker current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Cut the timeout of a wait about to start on this thread to what its test has left
+     */
+    static Duration cap(Duration timeout) {
+        CascadeBreaker breaker = CURRENT.get();
+        if (breaker == null) {
+            return timeout;
+        }
+        Duration capped = timeout;
+        if (breaker.firstFailure != null && breaker.residual.compareTo(capped) < 0) {
+            capped = breaker.residual;
+        }
+        if (breaker.deadlineNanos != Long.MAX_VALUE) {
+            Duration left = Duration.ofNanos(Math.max(0, breaker.deadlineNanos - System.nanoTime()));
+            if (left.compareTo(capped) < 0) {
+                capped = left;
+            }
+        }
+        return capped;
+    }
+
+    /**
+     * Note a failed step of this thread's test, the first one trips the breaker
+     */
+    static void stepFailed(String action, String target, long wallNanos) {
+        CascadeBreaker breaker = CURRENT.get();
+        if (breaker == null || breaker.firstFailure != null) {
+            return;
+        }
+        Failure failure = new Failure(action, target, wallNanos / 1_000_000,
+                (System.nanoTime() - breaker.startNanos - wallNanos) / 1_000_000);
+        breaker.firstFailure = failure;
+        log.error("First failed step of " + breaker.testName + ": " + failure + ", later waits are cut to "
+                + breaker.residual.toMillis() + " ms");
+    }
+
+    public String getTestName() {
+        return testName;
+    }
+
+    public boolean isTripped() {
+        return firstFailure != null;
+    }
+
+    /**
+     * @return the first step of the test that failed or null if none has
+     */
+    public Failure getFirstFailure() {
+        return firstFailure;
+    }
+
+    /**
+     * The first failed step of a test
+     */
+    public static final class Failure {
+        private final String action;
+        private final String target;
+        private final long durationMillis;
+        private final long startMillis;
+
+        private Failure(String action, String target, long durationMillis, long startMillis) {
+            this.action = action;
+            this.target = target;
+            this.durationMillis = durationMillis;
+            this.startMillis = startMillis;
+        }
+
+        public String getAction() {
+            return action;
+        }
+
+        public String getTarget() {
+            return target;
+        }
+
+        /**
+         * How long the step ran before it failed
+         */
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        /**
+         * When the step started, in ms since the test started
+         */
+        public long getStartMillis() {
+            return startMillis;
+        }
+
+        @Override
+        public String toString() {
+            return action + " " + target + " failed after " + durationMillis + " ms, " + startMillis
+                    + " ms into the test";
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package repl.utils;
+
+import org.apache.log4j.Logger;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+
+/**
+ * Cuts the waits of a test short once one of its steps has failed and reports that first
+ * failure, with its timing, as the reason the test failed
+ *
+ * @author Garth Bosch
+ */
+public class CascadeBreakerListener implements ITestListener {
+    private static final Logger log = Logging.getLogger(CascadeBreakerListener.class);
+
+    @Override
+    public void onTestStart(ITestResult result) {
+        CascadeBreaker.startTest(result.getTestClass().getName() + "." + result.getMethod().getMethodName());
+    }
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        CascadeBreaker.endTest();
+    }
+
+    @Override
+    public void onTestFailure(ITestResult result) {
+        CascadeBreaker breaker = CascadeBreaker.endTest();
+        if (breaker == null || !breaker.isTripped()) {
+            return;
+        }
+        CascadeBreaker.Failure failure = breaker.getFirstFailure();
+        Throwable thrown = result.getThrowable();
+        log.error(breaker.getTestName() + " failed at its first failed step: " + failure);
+        result.setAttribute("firstFailure", failure.toString());
+        result.setThrowable(new AssertionError("First failed step: " + failure
+                + (thrown == null ? "" : " - then " + thrown.getMessage()), thrown));
+    }
+
+    @Override
+    public void onTestSkipped(ITestResult result) {
+        CascadeBreaker.endTest();
+    }
+
+    @Override
+    public void onTestFailedButWithinSuccessPercentage(ITestResult result) {
+        CascadeBreaker.endTest();
+    }
+}
@@ -0,0 +1,210 @@
+package repl.utils;
+
+import org.apache.log4j.Logger;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.GeneralName;
+import org.bouncycastle.asn1.x509.GeneralNames;
+import org.bouncycastle.asn1.x509.KeyUsage;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.SecureRandom;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * A local certificate authority that issues a certificate for any host on demand, so that
+ * RecordReplayProxy can terminate the browser's TLS and record HTTPS like plain HTTP. The CA is
+ * kept in ca.p12 in the directory it is loaded from and reused on later runs; import its
+ * certificate into a browser to trust it instead of ignoring certificate errors.
+ * <p>
+ * Host certificates share one key pair, generated on first use, and are kept for the life of the
+ * authority, so only the first connection to each host pays for signing.
+ *
+ * @author Garth Bosch
+ */
+public final class CertificateAuthority {
+    private static final Logger log = Logging.getLogger(CertificateAuthority.class);
+    private static final String FILE_NAME = "ca.p12";
+    private static final String ALIAS = "repl-ca";
+    private static final char[] PASSWORD = "repl-record-replay".toCharArray();
+    private static final String SIGNATURE_ALGORITHM = "SHA256withRSA";
+    private static final long VALIDITY_DAYS = 825;
+    private static final Pattern IP_ADDRESS = Pattern.compile("[0-9.]+|.*:.*");
+
+    private final PrivateKey caKey;
+    private final X509Certificate caCertificate;
+    private final SecureRandom random = new SecureRandom();
+    private final ConcurrentMap<String, SSLContext> contexts = new ConcurrentHashMap<>();
+
+    private CertificateAuthority(PrivateKey caKey, X509Certificate caCertificate) {
+        this.caKey = caKey;
+        this.caCertificate = caCertificate;
+    }
+
+    /**
+     * Load the CA kept in the directory, creating and saving a new one if there is none
+     */
+    public static CertificateAuthority loadOrCreate(Path dir) throws IOException {
+        Path file = dir.resolve(FILE_NAME);
+        try {
+            KeyStore store = KeyStore.getInstance("PKCS12");
+            if (Files.exists(file)) {
+                try (InputStream in = Files.newInputStream(file)) {
+                    store.load(in, PASSWORD);
+                }
+                return new CertificateAuthority((PrivateKey) store.getKey(ALIAS, PASSWORD),
+                        (X509Certificate) store.getCertificate(ALIAS));
+            }
+            CertificateAuthority created = create();
+            store.load(null, null);
+            store.setKeyEntry(ALIAS, created.caKey, PASSWORD, new Certificate[]{created.caCertificate});
+            Files.createDirectories(dir);
+            try (OutputStream out = Files.newOutputStream(file)) {
+                store.store(out, PASSWORD);
+            }
+            log.info("Created a record/replay certificate authority in " + file);
+            return created;
+        } catch (GeneralSecurityException ex) {
+            throw new IOException("Unable to load the certificate authority " + file + " - " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * A CA that only lives in memory
+     */
+    public static CertificateAuthority create() throws GeneralSecurityException {
+        KeyPair keys = newKeyPair();
+        X500Name name = new X500Name("CN=repl record-replay CA");
+        X509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(name, BigInteger.valueOf(System.nanoTime()),
+                notBefore(), notAfter(), name, keys.getPublic());
+        try {
+            builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(true));
+            builder.addExtension(Extension.keyUsage, true, new KeyUsage(KeyUsage.keyCertSign | KeyUsage.cRLSign));
+        } catch (IOException ex) {
+            throw new GeneralSecurityException("Unable to build the CA certificate", ex);
+        }
+        return new CertificateAuthority(keys.getPrivate(), sign(builder, keys.getPrivate()));
+    }
+
+    public X509Certificate getCertificate() {
+        return caCertificate;
+    }
+
+    /**
+     * A server side context presenting a certificate for the host signed by this CA
+     */
+    public SSLContext serverContext(String host) throws GeneralSecurityException {
+        SSLContext context = contexts.get(host);
+        if (context == null) {
+            context = newServerContext(host);
+            SSLContext existing = contexts.putIfAbsent(host, context);
+            if (existing != null) {
+                context = existing;
+            }
+        }
+        return context;
+    }
+
+    /**
+     * A client side context that trusts only this CA, e.g. to talk to the proxy in tests
+     */
+    public SSLContext clientContext() throws GeneralSecurityException {
+        try {
+            KeyStore trusted = KeyStore.getInstance(KeyStore.getDefaultType());
+            trusted.load(null, null);
+            trusted.setCertificateEntry(ALIAS, caCertificate);
+            TrustManagerFactory trust = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+            trust.init(trusted);
+            SSLContext context = SSLContext.getInstance("TLS");
+            context.init(null, trust.getTrustManagers(), null);
+            return context;
+        } catch (IOException ex) {
+            throw new GeneralSecurityException(ex);
+        }
+    }
+
+    private SSLContext newServerContext(String host) throws GeneralSecurityException {
+        KeyPair hostKeys = HostKeys.get();
+        X509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(caCertificate,
+                new BigInteger(64, random), notBefore(), notAfter(), new X500Name("CN=" + host), hostKeys.getPublic());
+        int type = IP_ADDRESS.matcher(host).matches() ? GeneralName.iPAddress : GeneralName.dNSName;
+        try {
+            builder.addExtension(Extension.subjectAlternativeName, false, new GeneralNames(new GeneralName(type, host)));
+            KeyStore keys = KeyStore.getInstance(KeyStore.getDefaultType());
+            keys.load(null, null);
+            keys.setKeyEntry(host, hostKeys.getPrivate(), PASSWORD,
+                    new Certificate[]{sign(builder, caKey), caCertificate});
+            KeyManagerFactory managers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+            managers.init(keys, PASSWORD);
+            SSLContext context = SSLContext.getInstance("TLS");
+            context.init(managers.getKeyManagers(), null, null);
+            Logging.debug(log, "Issued a certificate for {}", host);
+            return context;
+        } catch (IOException ex) {
+            throw new GeneralSecurityException("Unable to issue a certificate for " + host, ex);
+        }
+    }
+
+    /**
+     * The key pair of every host certificate, generating RSA keys takes a while
+     */
+    private static final class HostKeys {
+        private static KeyPair keys;
+
+        static synchronized KeyPair get() throws GeneralSecurityException {
+            if (keys == null) {
+                keys = newKeyPair();
+            }
+            return keys;
+        }
+    }
+
+    private static X509Certificate sign(X509v3CertificateBuilder builder, PrivateKey key) throws GeneralSecurityException {
+        try {
+            ContentSigner signer = new JcaContentSignerBuilder(SIGNATURE_ALGORITHM).build(key);
+            return new JcaX509CertificateConverter().getCertificate(builder.build(signer));
+        } catch (OperatorCreationException ex) {
+            throw new GeneralSecurityException(ex);
+        }
+    }
+
+    private static KeyPair newKeyPair() throws GeneralSecurityException {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        return generator.generateKeyPair();
+    }
+
+    private static Date notBefore() {
+        return new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(1));
+    }
+
+    private static Date notAfter() {
+        return new Date(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(VALIDITY_DAYS));
+    }
+}
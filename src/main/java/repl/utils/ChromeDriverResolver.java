@@ -0,0 +1,223 @@
+package repl.utils;
+
+import io.github.bonigarcia.wdm.WebDriverManager;
+import org.apache.log4j.Logger;
+import org.openqa.selenium.WebDriverException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static io.github.bonigarcia.wdm.config.DriverManagerType.CHROME;
+
+/**
+ * Resolves the chromedriver binary once per JVM instead of on every driver start.
+ * <p>
+ * In order of preference the binary comes from:
+ * <ol>
+ * <li>the standard webdriver.chrome.driver system property, if it points at a file</li>
+ * <li>repl.chromedriver.path - a pinned local binary</li>
+ * <li>repl.chromedriver.cache - an offline directory, e.g. a copy of the WebDriverManager cache,
+ * searched for the newest chromedriver in it</li>
+ * <li>WebDriverManager, pinned to repl.chromedriver.version if it is set</li>
+ * </ol>
+ * The first three never touch the network, which is what hermetic CI agents need.
+ *
+ * @author Garth Bosch
+ */
+public final class ChromeDriverResolver {
+    public static final String CHROME_DRIVER_PROPERTY = "webdriver.chrome.driver";
+    public static final String PINNED_PATH_PROPERTY = "repl.chromedriver.path";
+    public static final String OFFLINE_CACHE_PROPERTY = "repl.chromedriver.cache";
+    public static final String VERSION_PROPERTY = "repl.chromedriver.version";
+
+    private static final Logger log = Logging.getLogger(ChromeDriverResolver.class);
+    private static final Pattern VERSION_NAME = Pattern.compile("\\d{1,9}(\\.\\d{1,9})*");
+
+    /**
+     * Where the resolved binary came from
+     */
+    public enum Source {
+        SYSTEM_PROPERTY,
+        PINNED_PATH,
+        OFFLINE_CACHE,
+        WEBDRIVERMANAGER
+    }
+
+    private static volatile String resolvedPath;
+    private static volatile Source source;
+    private static volatile long resolutionMillis = -1;
+
+    private ChromeDriverResolver() {
+    }
+
+    /**
+     * Resolve the chromedriver binary and point webdriver.chrome.driver at it. Only the first call
+     * does any work.
+     *
+     * @return the path of the chromedriver binary
+     */
+    public static String resolve() {
+        String path = resolvedPath;
+        if (path != null) {
+            return path;
+        }
+        synchronized (ChromeDriverResolver.class) {
+            if (resolvedPath == null) {
+                long start = System.nanoTime();
+                resolveOnce();
+                resolutionMillis = (System.nanoTime() - start) / 1_000_000;
+                log.info("Resolved chromedriver " + resolvedPath + " from " + source + " in " + resolutionMillis + " ms");
+            }
+            return resolvedPath;
+        }
+    }
+
+    private static void resolveOnce() {
+        String configured = System.getProperty(CHROME_DRIVER_PROPERTY);
+        if (isExecutableFile(configured)) {
+            publish(configured, Source.SYSTEM_PROPERTY);
+            return;
+        }
+
+        String pinned = System.getProperty(PINNED_PATH_PROPERTY);
+        if (pinned != null && !pinned.isEmpty()) {
+            if (!isExecutableFile(pinned)) {
+                throw new WebDriverException("Pinned chromedriver " + pinned + " does not exist or is not executable");
+            }
+            publish(pinned, Source.PINNED_PATH);
+            return;
+        }
+
+        String cacheDir = System.getProperty(OFFLINE_CACHE_PROPERTY);
+        if (cacheDir != null && !cacheDir.isEmpty()) {
+            String cached = findInCache(Paths.get(cacheDir), System.getProperty(VERSION_PROPERTY));
+            if (cached == null) {
+                throw new WebDriverException("No chromedriver found in offline cache " + cacheDir);
+            }
+            publish(cached, Source.OFFLINE_CACHE);
+            return;
+        }
+
+        WebDriverManager manager = WebDriverManager.getInstance(CHROME);
+        String version = System.getProperty(VERSION_PROPERTY);
+        if (version != null && !version.isEmpty()) {
+            manager.driverVersion(version);
+        }
+        manager.setup();
+        publish(manager.getDownloadedDriverPath(), Source.WEBDRIVERMANAGER);
+    }
+
+    /**
+     * Find the chromedriver in the cache directory, preferring the given version and otherwise the
+     * newest, going by the version directory it is in, e.g. .../chromedriver/linux64/114.0.5735.90/
+     */
+    private static String findInCache(Path cacheDir, String version) {
+        try (Stream<Path> paths = Files.walk(cacheDir)) {
+            Optional<Path> found = paths
+                    .filter(p -> isDriverFileName(p.getFileName().toString()))
+                    .filter(p -> isExecutableFile(p.toString()))
+                    .filter(p -> version == null || version.isEmpty() || version.equals(versionNameOf(p)))
+                    .max(ChromeDriverResolver::compareVersions);
+            return found.map(p -> p.toAbsolutePath().toString()).orElse(null);
+        } catch (IOException ex) {
+            throw new WebDriverException("Unable to read offline chromedriver cache " + cacheDir + " - " + ex.getMessage(), ex);
+        }
+    }
+
+    /**
+     * Orders binaries by their version segments numerically, so 114.x comes after 99.x, and by
+     * path when the versions are the same. Binaries outside a version directory come first.
+     */
+    private static int compareVersions(Path a, Path b) {
+        long[] first = versionOf(a);
+        long[] second = versionOf(b);
+        for (int i = 0; i < Math.max(first.length, second.length); i++) {
+            long x = i < first.length ? first[i] : -1;
+            long y = i < second.length ? second[i] : -1;
+            if (x != y) {
+                return Long.compare(x, y);
+            }
+        }
+        return a.toString().compareTo(b.toString());
+    }
+
+    /**
+     * The segments of the nearest directory above the binary named like a version, empty if none is
+     */
+    private static long[] versionOf(Path driver) {
+        String name = versionNameOf(driver);
+        if (name == null) {
+            return new long[0];
+        }
+        String[] segments = name.split("\\.");
+        long[] version = new long[segments.length];
+        for (int i = 0; i < segments.length; i++) {
+            version[i] = Long.parseLong(segments[i]);
+        }
+        return version;
+    }
+
+    /**
+     * The name of the nearest directory above the binary named like a version, null if none is
+     */
+    private static String versionNameOf(Path driver) {
+        for (Path dir = driver.getParent(); dir != null && dir.getFileName() != null; dir = dir.getParent()) {
+            String name = dir.getFileName().toString();
+            if (VERSION_NAME.matcher(name).matches()) {
+                return name;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isDriverFileName(String fileName) {
+        return fileName.equals("chromedriver") || fileName.equals("chromedriver.exe");
+    }
+
+    private static boolean isExecutableFile(String path) {
+        if (path == null || path.isEmpty()) {
+            return false;
+        }
+        File file = new File(path);
+        return file.isFile() && file.canExecute();
+    }
+
+    private static void publish(String path, Source from) {
+        System.setProperty(CHROME_DRIVER_PROPERTY, path);
+        source = from;
+        resolvedPath = path;
+    }
+
+    /**
+     * Forget the resolved binary so the next resolve looks again, for tests
+     */
+    static synchronized void reset() {
+        resolvedPath = null;
+        source = null;
+        resolutionMillis = -1;
+    }
+
+    /**
+     * @return the resolved binary or null if resolve has not been called yet
+     */
+    public static String getResolvedPath() {
+        return resolvedPath;
+    }
+
+    public static Source getSource() {
+        return source;
+    }
+
+    /**
+     * @return how long the one resolution took in ms, or -1 if resolve has not been called yet
+     */
+    public static long getResolutionMillis() {
+        return resolutionMillis;
+    }
+}
@@ -0,0 +1,81 @@
+package repl.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Counts and times every WebDriver wire command sent through a TracingCommandExecutor. Each
+ * command is recorded by name, e.g. findElement or clickElement, and added to the step running
+ * on the calling thread, see StepMetrics, which logs a summary such as
+ * "clickElement css=#cart: 4 commands, 212 ms" when it ends.
+ * <p>
+ * Tracing is off by default. Turn it on with the repl.trace.commands system property or
+ * setEnabled before the drivers are started or attached. Remote sessions built outside the utils
+ * can be traced by giving them a TracingCommandExecutor.
+ *
+ * @author Garth Bosch
+ */
+public final class CommandTracer {
+    public static final String TRACE_PROPERTY = "repl.trace.commands";
+
+    private static volatile boolean enabled = Boolean.getBoolean(TRACE_PROPERTY);
+    private static final ConcurrentMap<String, LatencyHistogram> COMMANDS = new ConcurrentHashMap<>();
+
+    private CommandTracer() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Trace the commands of drivers started or attached after this call
+     */
+    public static void setEnabled(boolean enabled) {
+        CommandTracer.enabled = enabled;
+    }
+
+    /**
+     * Record one wire command that took the given time
+     */
+    static void record(String command, long nanos) {
+        COMMANDS.computeIfAbsent(command, name -> new LatencyHistogram()).record(nanos / 1_000_000);
+        StepMetrics.recordCommand(nanos);
+    }
+
+    /**
+     * @return the latencies of the command or null if it has not been sent
+     */
+    public static LatencyHistogram getCommand(String command) {
+        return COMMANDS.get(command);
+    }
+
+    /**
+     * The names of every command sent so far, sorted
+     */
+    public static List<String> getCommandNames() {
+        List<String> names = new ArrayList<>(COMMANDS.keySet());
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * Number of commands sent so far, by name
+     */
+    public static Map<String, Long> getCommandCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        for (Map.Entry<String, LatencyHistogram> command : COMMANDS.entrySet()) {
+            counts.put(command.getKey(), command.getValue().getCount());
+        }
+        return counts;
+    }
+
+    public static void clear() {
+        COMMANDS.clear();
+    }
+}
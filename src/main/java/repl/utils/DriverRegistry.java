@@ -0,0 +1,88 @@
+package repl.utils;
+
+import org.apache.log4j.Logger;
+import org.openqa.selenium.WebDriver;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps one WebDriver per thread so a single utils instance can drive a browser on every
+ * TestNG worker thread at once. All drivers handed out are also tracked so that they can be
+ * cleaned up together when a suite finishes.
+ *
+ * @author Garth Bosch
+ */
+public class DriverRegistry {
+    private static final Logger log = Logging.getLogger(DriverRegistry.class);
+    private final ThreadLocal<WebDriver> current = new ThreadLocal<>();
+    private final Set<WebDriver> live = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Make the driver the current thread's driver. A driver the thread already had is not quit,
+     * it just stops being the current one.
+     */
+    public void register(WebDriver driver) {
+        WebDriver previous = current.get();
+        if (previous != null && previous != driver) {
+            log.warn("Thread " + Thread.currentThread().getName() + " already had a driver registered, replacing it");
+        }
+        current.set(driver);
+        live.add(driver);
+    }
+
+    /**
+     * @return the current thread's driver or null if it has none. quitAll and forgetAll can only
+     * clear the calling thread's slot, so a driver they dropped on another thread counts as none.
+     */
+    public WebDriver get() {
+        WebDriver driver = current.get();
+        if (driver != null && !live.contains(driver)) {
+            current.remove();
+            return null;
+        }
+        return driver;
+    }
+
+    /**
+     * Stop tracking the current thread's driver without quitting it
+     *
+     * @return the driver that was released or null if the thread had none or it was already
+     * dropped by quitAll or forgetAll
+     */
+    public WebDriver release() {
+        WebDriver driver = current.get();
+        current.remove();
+        return driver != null && live.remove(driver) ? driver : null;
+    }
+
+    /**
+     * Number of drivers registered across all threads
+     */
+    public int size() {
+        return live.size();
+    }
+
+    /**
+     * Stop tracking every driver without quitting them, for when something else owns their lifecycle
+     */
+    public void forgetAll() {
+        live.clear();
+        current.remove();
+    }
+
+    /**
+     * Quit every driver still registered on any thread
+     */
+    public void quitAll() {
+        for (WebDriver driver : live) {
+            try {
+                driver.quit();
+            } catch (Exception ex) {
+                log.error("Error found while shutting down driver - " + ex.getMessage());
+            }
+            live.remove(driver);
+        }
+        current.remove();
+    }
+}
@@ -0,0 +1,159 @@
+package repl.utils;
+
+import org.apache.log4j.Logger;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers the element each locator resolved to on the current thread, so repeated actions on
+ * the same element skip the wait and the lookup. Every entry is stamped with the page's
+ * generation, a counter of the DOM mutations that can change what a locator matches kept by a
+ * MutationObserver injected into the page. An entry is only used while the generation is
+ * unchanged, the element is still attached and it is in the state the action needs, which costs
+ * one script call instead of a wait. Navigating, switching frame or window and shutting down
+ * forget the thread's entries.
+ * <p>
+ * The cache is off by default. Turn it on with the repl.element.cache system property or
+ * SeleniumWebDriverUtils.enableElementCache.
+ *
+ * @author Garth Bosch
+ */
+public class ElementCache {
+    public static final String CACHE_PROPERTY = "repl.element.cache";
+    private static final Logger log = Logging.getLogger(ElementCache.class);
+    private static final int DEFAULT_CAPACITY = 256;
+
+    private final int capacity;
+    private final ThreadLocal<Map<Locator, Entry>> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public ElementCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity - number of elements kept per thread, the least recently used are dropped
+     */
+    public ElementCache(int capacity) {
+        this.capacity = capacity;
+        this.entries = ThreadLocal.withInitial(this::newEntries);
+    }
+
+    /**
+     * The cached element of the locator if the page hasn't changed since it was resolved and the
+     * element is ready for the budget's condition: present, visible or clickable
+     *
+     * @return the element or null if it has to be resolved again
+     */
+    public WebElement lookup(WebDriver driver, Locator locator, WaitPolicy.Budget budget) {
+        Entry entry = entries.get().get(locator);
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        try {
+            Map<?, ?> state = generationOf(driver, entry.element);
+            if (entry.generation.equals(state.get("generation")) && isReady(state, budget)) {
+                hits.incrementAndGet();
+                Logging.debug(log, "Reusing the cached element of {}", locator);
+                return entry.element;
+            }
+            Logging.debug(log, "The page changed since {} was cached, resolving it again", locator);
+        } catch (WebDriverException ex) {
+            Logging.debug(log, "The cached element of {} can't be used any more - {}", locator, ex.getMessage());
+        }
+        entries.get().remove(locator);
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Cache the element a wait just resolved the locator to, stamped with the page's generation
+     */
+    public void put(WebDriver driver, Locator locator, WebElement element) {
+        if (element == null) {
+            return;
+        }
+        try {
+            Object generation = generationOf(driver, element).get("generation");
+            if (generation != null) {
+                entries.get().put(locator, new Entry(element, generation.toString()));
+            }
+        } catch (WebDriverException ex) {
+            Logging.debug(log, "Unable to cache the element of {} - {}", locator, ex.getMessage());
+        }
+    }
+
+    /**
+     * Forget the locator's element on this thread, e.g. after it went stale
+     */
+    public void evict(Locator locator) {
+        entries.get().remove(locator);
+    }
+
+    /**
+     * Forget every element cached on this thread
+     */
+    public void clear() {
+        entries.remove();
+    }
+
+    /**
+     * Number of elements cached on this thread
+     */
+    public int size() {
+        return entries.get().size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private static Map<?, ?> generationOf(WebDriver driver, WebElement element) {
+        return (Map<?, ?>) ((JavascriptExecutor) driver).executeScript(PageScripts.ELEMENT_GENERATION, element);
+    }
+
+    private static boolean isReady(Map<?, ?> state, WaitPolicy.Budget budget) {
+        if (!Boolean.TRUE.equals(state.get("connected"))) {
+            return false;
+        }
+        switch (budget) {
+            case CLICKABLE:
+                return Boolean.TRUE.equals(state.get("visible")) && Boolean.TRUE.equals(state.get("enabled"));
+            case VISIBLE:
+                return Boolean.TRUE.equals(state.get("visible"));
+            default:
+                return true;
+        }
+    }
+
+    private Map<Locator, Entry> newEntries() {
+        return new LinkedHashMap<Locator, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Locator, Entry> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    private static final class Entry {
+        private final WebElement element;
+        private final String generation;
+
+        private Entry(WebElement element, String generation) {
+            this.element = element;
+            this.generation = generation;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package repl.utils;
+
+/**
+ * One value to fetch in a batch read: the visible text or an attribute of the element a locator
+ * finds, reported back under a key of the caller's choosing.
+ *
+ * @author Garth Bosch
+ */
+public final class ElementRead {
+    private final String key;
+    private final Locator locator;
+    private final String attribute;
+
+    private ElementRead(String key, Locator locator, String attribute) {
+        this.key = key;
+        this.locator = locator;
+        this.attribute = attribute;
+    }
+
+    /**
+     * Read the visible text of the element
+     */
+    public static ElementRead text(String key, Locator locator) {
+        return new ElementRead(key, locator, null);
+    }
+
+    /**
+     * Read an attribute of the element, resolved the same way as WebElement.getAttribute
+     */
+    public static ElementRead attribute(String key, Locator locator, String attribute) {
+        return new ElementRead(key, locator, attribute);
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Locator getLocator() {
+        return locator;
+    }
+
+    /**
+     * @return the attribute to read or null if the text is read
+     */
+    public String getAttribute() {
+        return attribute;
+    }
+
+    /**
+     * The outcome of one read. A missing element is reported here instead of failing the batch.
+     */
+    public static final class Result {
+        private final boolean found;
+        private final String value;
+        private final String error;
+
+        Result(boolean found, String value, String error) {
+            this.found = found;
+            this.value = value;
+            this.error = error;
+        }
+
+        public boolean isFound() {
+            return found;
+        }
+
+        /**
+         * @return the value read or null if the element was not found or has no such attribute
+         */
+        public String getValue() {
+            return value;
+        }
+
+        /**
+         * @return why the element could not be read, e.g. an invalid selector, or null
+         */
+        public String getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return found ? String.valueOf(value) : "<not found" + (error == null ? "" : ": " + error) + ">";
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package repl.utils;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.support.ui.ExpectedCondition;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+
+/**
+ * A state to wait for an element to reach, see SeleniumWebDriverUtils.awaitElement
+ *
+ * @author Garth Bosch
+ */
+public enum ElementState {
+    /**
+     * In the DOM, visible or not
+     */
+    PRESENT("present", WaitPolicy.Budget.PRESENT),
+    /**
+     * In the DOM and displayed, the way WebElement.isDisplayed sees it
+     */
+    VISIBLE("visible", WaitPolicy.Budget.VISIBLE),
+    /**
+     * Not displayed or not in the DOM at all, e.g. a spinner or modal that has gone away
+     */
+    HIDDEN("hidden", WaitPolicy.Budget.VISIBLE),
+    /**
+     * Not in the DOM
+     */
+    ABSENT("absent", WaitPolicy.Budget.VISIBLE);
+
+    private final String key;
+    private final WaitPolicy.Budget budget;
+
+    ElementState(String key, WaitPolicy.Budget budget) {
+        this.key = key;
+        this.budget = budget;
+    }
+
+    /**
+     * The name the page scripts know the state by
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * The wait policy budget a wait for this state gets
+     */
+    public WaitPolicy.Budget getBudget() {
+        return budget;
+    }
+
+    /**
+     * The polling equivalent, for when the page can't run the wait itself
+     */
+    ExpectedCondition<?> pollingCondition(By by) {
+        switch (this) {
+            case PRESENT:
+                return ExpectedConditions.presenceOfElementLocated(by);
+            case VISIBLE:
+                return ExpectedConditions.visibilityOfElementLocated(by);
+            case HIDDEN:
+                return ExpectedConditions.invisibilityOfElementLocated(by);
+            default:
+                return ExpectedConditions.numberOfElementsToBe(by, 0);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package repl.utils;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares how a PageElement field of a PageObject is located. Set exactly one of the attributes.
+ *
+ * @author Garth Bosch
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Locate {
+    String css() default "";
+
+    String xpath() default "";
+
+    String id() default "";
+
+    String name() default "";
+
+    String className() default "";
+
+    String linkText() default "";
+
+    String partialLinkText() default "";
+}
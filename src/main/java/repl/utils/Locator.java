@@ -0,0 +1,222 @@
+package repl.utils;
+
+import org.openqa.selenium.By;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * A precompiled element locator: the locator type plus the selenium By it resolves to.
+ * <p>
+ * Locators are interned, so asking for the same value and locator type twice hands back
+ * the same instance without re-parsing the type or building a new By. Up to 1024 are kept per
+ * locator type, after that new values are built on every use instead of being interned, so
+ * locators built from dynamic text don't pile up. A locator that wasn't interned equals the one
+ * that would have been. Lookups take no lock.
+ *
+ * @author Garth Bosch
+ */
+public final class Locator {
+    static final int MAX_INTERNED_PER_TYPE = 1024;
+    private static final ConcurrentMap<String, ConcurrentMap<String, Locator>> CACHE = new ConcurrentHashMap<>();
+
+    private final Type type;
+    private final String value;
+    private final By by;
+    private final String key;
+
+    public enum Type {
+        XPATH("xpath", By::xpath),
+        ID("id", By::id),
+        CSS("css", By::cssSelector),
+        NAME("name", By::name),
+        CLASSNAME("classname", By::className),
+        LINK_TEXT("linktext", By::linkText),
+        PARTIAL_LINK_TEXT("partiallinktext", By::partialLinkText);
+
+        private static final Map<String, Type> BY_KEY = new ConcurrentHashMap<>();
+
+        static {
+            for (Type type : values()) {
+                BY_KEY.put(type.key, type);
+            }
+        }
+
+        private final String key;
+        private final Function<String, By> compiler;
+
+        Type(String key, Function<String, By> compiler) {
+            this.key = key;
+            this.compiler = compiler;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * Look up a type by the locator type strings used throughout the utils, e.g. "css" or "xpath".
+         *
+         * @param locatorType - case insensitive locator type
+         * @return the matching type or null if there is none
+         */
+        public static Type fromString(String locatorType) {
+            return locatorType == null ? null : BY_KEY.get(locatorType.toLowerCase());
+        }
+    }
+
+    private Locator(Type type, String value) {
+        this.type = type;
+        this.value = value;
+        this.by = type.compiler.apply(value);
+        this.key = type.key + "=" + value;
+    }
+
+    /**
+     * Get the interned locator for the given type and value.
+     */
+    public static Locator of(Type type, String value) {
+        return intern(type.key, type, value);
+    }
+
+    /**
+     * Get the interned locator for the given value and locator type string.
+     *
+     * @param value       - the selector, e.g. a css selector or xpath expression
+     * @param locatorType - case insensitive locator type, e.g. "css" or "xpath"
+     * @return the locator or null if the locator type is not recognised
+     */
+    public static Locator of(String value, String locatorType) {
+        if (value == null || locatorType == null) {
+            return null;
+        }
+        ConcurrentMap<String, Locator> byValue = CACHE.get(locatorType);
+        Locator locator = byValue == null ? null : byValue.get(value);
+        if (locator != null) {
+            return locator;
+        }
+        Type type = Type.fromString(locatorType);
+        return type == null ? null : intern(locatorType, type, value);
+    }
+
+    /**
+     * Cache under the locator type string exactly as the caller passed it, so a repeat call skips
+     * the case folding. Spellings like "CSS" and "css" still share the one canonical instance.
+     * The size check and the insert aren't atomic, so racing threads may take a type a few
+     * locators past the limit.
+     */
+    private static Locator intern(String cacheKey, Type type, String value) {
+        ConcurrentMap<String, Locator> byValue = CACHE.computeIfAbsent(cacheKey, k -> new ConcurrentHashMap<>());
+        Locator locator = byValue.get(value);
+        if (locator != null) {
+            return locator;
+        }
+        locator = cacheKey.equals(type.key) ? new Locator(type, value) : of(type, value);
+        if (byValue.size() >= MAX_INTERNED_PER_TYPE) {
+            return locator;
+        }
+        Locator existing = byValue.putIfAbsent(value, locator);
+        return existing == null ? locator : existing;
+    }
+
+    public static Locator xpath(String value) {
+        return of(Type.XPATH, value);
+    }
+
+    public static Locator id(String value) {
+        return of(Type.ID, value);
+    }
+
+    public static Locator css(String value) {
+        return of(Type.CSS, value);
+    }
+
+    public static Locator name(String value) {
+        return of(Type.NAME, value);
+    }
+
+    public static Locator className(String value) {
+        return of(Type.CLASSNAME, value);
+    }
+
+    public static Locator linkText(String value) {
+        return of(Type.LINK_TEXT, value);
+    }
+
+    public static Locator partialLinkText(String value) {
+        return of(Type.PARTIAL_LINK_TEXT, value);
+    }
+
+    /**
+     * The innermost element whose whitespace normalised text is exactly the given text, as an xpath
+     */
+    public static Locator text(String text) {
+        String literal = xpathLiteral(text);
+        return xpath("//*[normalize-space(.)=" + literal + "][not(*[normalize-space(.)=" + literal + "])]");
+    }
+
+    /**
+     * The first element with the data attribute, e.g. dataAttribute("ref", "add-to-cart") for
+     * [data-ref="add-to-cart"], as a css selector
+     */
+    public static Locator dataAttribute(String name, String value) {
+        return css("[data-" + name + "=\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"]");
+    }
+
+    private static String xpathLiteral(String text) {
+        if (text.indexOf('\'') < 0) {
+            return "'" + text + "'";
+        }
+        if (text.indexOf('"') < 0) {
+            return '"' + text + '"';
+        }
+        return "concat('" + text.replace("'", "', \"'\", '") + "')";
+    }
+
+    /**
+     * Number of distinct locators compiled so far
+     */
+    public static int cacheSize() {
+        int size = 0;
+        for (ConcurrentMap<String, Locator> byValue : CACHE.values()) {
+            size += byValue.size();
+        }
+        return size;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public By by() {
+        return by;
+    }
+
+    /**
+     * A string that identifies this locator, e.g. "css=#search", for keying metrics and history
+     */
+    public String getKey() {
+        return key;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return this == other || other instanceof Locator && key.equals(((Locator) other).key);
+    }
+
+    @Override
+    public int hashCode() {
+        return key.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+}
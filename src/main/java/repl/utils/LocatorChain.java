@@ -0,0 +1,173 @@
+package repl.utils;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A named element with ranked alternative locators, e.g. a brittle generated xpath backed up by
+ * its text and a data attribute. SeleniumWebDriverUtils tries every alternative in one script
+ * call per check and the first in the state it needs wins, so a broken primary locator costs
+ * milliseconds instead of a timeout.
+ * <p>
+ * The winning alternative of each chain is remembered and tried first from then on. Set the
+ * repl.locator.winners system property to a file to keep the winners between runs: it is read
+ * when the class loads and rewritten whenever a chain's winner changes.
+ *
+ * @author Garth Bosch
+ */
+public final class LocatorChain {
+    public static final String WINNERS_PROPERTY = "repl.locator.winners";
+    private static final Logger log = Logging.getLogger(LocatorChain.class);
+    private static final ConcurrentMap<String, String> WINNERS = new ConcurrentHashMap<>();
+    private static final Path WINNERS_FILE;
+
+    static {
+        String file = System.getProperty(WINNERS_PROPERTY);
+        WINNERS_FILE = file == null || file.isEmpty() ? null : Paths.get(file);
+        if (WINNERS_FILE != null && Files.exists(WINNERS_FILE)) {
+            loadWinners(WINNERS_FILE);
+        }
+    }
+
+    private final String name;
+    private final List<Locator> alternatives;
+
+    private LocatorChain(String name, List<Locator> alternatives) {
+        this.name = name;
+        this.alternatives = alternatives;
+    }
+
+    /**
+     * @param name         - identifies the chain in logs, metrics and the winners file
+     * @param alternatives - the locators in rank order, best first
+     */
+    public static LocatorChain of(String name, Locator... alternatives) {
+        if (alternatives.length == 0) {
+            throw new IllegalArgumentException("Locator chain " + name + " has no alternatives");
+        }
+        for (Locator alternative : alternatives) {
+            if (alternative == null) {
+                throw new IllegalArgumentException("Locator chain " + name + " has a null alternative");
+            }
+        }
+        return new LocatorChain(name, Collections.unmodifiableList(new ArrayList<>(Arrays.asList(alternatives))));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * The alternatives in the rank order they were given
+     */
+    public List<Locator> getAlternatives() {
+        return alternatives;
+    }
+
+    /**
+     * The alternatives in the order to try them: the last winner first, then the rest by rank
+     */
+    public List<Locator> ordered() {
+        String winner = WINNERS.get(name);
+        if (winner == null || alternatives.get(0).getKey().equals(winner)) {
+            return alternatives;
+        }
+        List<Locator> ordered = new ArrayList<>(alternatives.size());
+        for (Locator alternative : alternatives) {
+            if (alternative.getKey().equals(winner)) {
+                ordered.add(0, alternative);
+            } else {
+                ordered.add(alternative);
+            }
+        }
+        return ordered;
+    }
+
+    /**
+     * @return the alternative that last won or null if none has yet
+     */
+    public Locator getWinner() {
+        String winner = WINNERS.get(name);
+        for (Locator alternative : alternatives) {
+            if (alternative.getKey().equals(winner)) {
+                return alternative;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Remember the alternative that matched, logging when it is not the primary one so that
+     * broken locators get noticed
+     */
+    void recordWinner(Locator winner) {
+        if (winner != alternatives.get(0)) {
+            Logging.warn(log, "Locator chain {} matched {} instead of its primary locator {}", name, winner.getKey(),
+                    alternatives.get(0).getKey());
+        }
+        String previous = WINNERS.put(name, winner.getKey());
+        if (!winner.getKey().equals(previous) && WINNERS_FILE != null) {
+            saveWinners(WINNERS_FILE);
+        }
+    }
+
+    /**
+     * Add the winners saved in the file to those already known
+     */
+    public static void loadWinners(Path file) {
+        Properties saved = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            saved.load(reader);
+            for (String chain : saved.stringPropertyNames()) {
+                WINNERS.put(chain, saved.getProperty(chain));
+            }
+            Logging.info(log, "Loaded {} locator chain winners from {}", saved.size(), file);
+        } catch (IOException ex) {
+            log.error("Unable to load locator chain winners from " + file + " - " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Write every winner known so far to the file
+     */
+    public static synchronized void saveWinners(Path file) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Properties winners = new Properties();
+            winners.putAll(WINNERS);
+            try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                winners.store(writer, "Winning alternative of each locator chain");
+            }
+        } catch (IOException ex) {
+            log.error("Unable to save locator chain winners to " + file + " - " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Forget every winner, e.g. between tests
+     */
+    public static void clearWinners() {
+        WINNERS.clear();
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -6,25 +6,52 @@ import java.io.File;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
  * omf.Logging! Will always write to the console, but can specify to also write to a
  * file.
  * <p/>
- * In classes without main methods, use getLogger(). The classes with a main
+ * In classes without main methods, use getLogger(MyClass.class). The classes with a main
  * method will set up file logging with the other omf.Logging methods if they so
  * desire.
+ * <p/>
+ * By default events are written by a background thread through a bounded queue,
+ * see AsyncLogAppender. This can be tuned with the repl.log.async,
+ * repl.log.queueSize, repl.log.batchSize and repl.log.overflow system properties.
+ * Use the info/warn/debug helpers with {} placeholders or a Supplier so that
+ * messages for disabled levels are never built.
+ * <p/>
+ * When tests run in parallel, call startTestLog and endTestLog around each
+ * test (TestLogListener does this for TestNG) and every test also gets its
+ * own file under reports/logs/[package]/[date]/.
  *
  * @author Garth Bosch
  */
 public class Logging {
+    private static final String FQCN = Logging.class.getName();
     private static final String DEFAULT_OUTPUT_DIR = "reports/logs/";
     private static final String CONVERSION_PATTERN = "(%d{HH:mm:ss,SSS}) %C{1} : %-5p - %m%n";
-    private static boolean rootSet = false;
+    private static volatile boolean rootSet = false;
+    private static final ConcurrentMap<String, Logger> LOGGERS = new ConcurrentHashMap<>();
     private static String tcID = "";
     private static String callingClass;
     private static final int MAX_FILENAME_LEN = 255;
     private static final String TOP_PACKAGE_NAME = "gfb.logging";
+    public static final String ASYNC_PROPERTY = "repl.log.async";
+    public static final String QUEUE_SIZE_PROPERTY = "repl.log.queueSize";
+    public static final String BATCH_SIZE_PROPERTY = "repl.log.batchSize";
+    public static final String OVERFLOW_PROPERTY = "repl.log.overflow";
+    private static final int DEFAULT_QUEUE_SIZE = 8192;
+    private static final int DEFAULT_BATCH_SIZE = 256;
+    private static final int FILE_BUFFER_SIZE = 64 * 1024;
+    private static AsyncLogAppender asyncAppender;
+    private static TestLogRoutingAppender testLogs;
+    private static final AtomicLong TEST_SEQUENCE = new AtomicLong();
+    private static boolean shutdownHookAdded = false;
 
     /**
      * Get the class that is calling the logging method. This will only be
@@ -32,7 +59,7 @@ public class Logging {
      * should set up logging to a file.
      */
     static {
-        callingClass = Thread.currentThread().getStackTrace()[2].getClassName();
+        callingClass = CallerResolver.callerClassName();
     }
 
     /**
@@ -52,16 +79,50 @@ public class Logging {
      * omf.Logging without writing to a file
      * <p>
      * Note: Use this when setting up logging for a class without a main method.
+     * It walks the stack to find the calling class, so only call it once per
+     * class, e.g. for a static field, and prefer getLogger(Class) in new code.
      *
      * @return The log4j Logger to use
      */
     public static Logger getLogger() {
+        return loggerFor(CallerResolver.callerClassName());
+    }
+
+    /**
+     * omf.Logging without writing to a file, for the given class. This is the
+     * one to use on hot paths: it is a map lookup with no stack walk, so
+     * prefer it in new code and wherever a logger is asked for often, e.g.
+     * per page object instance.
+     *
+     * @return The log4j Logger to use
+     */
+    public static Logger getLogger(Class<?> clazz) {
+        return loggerFor(clazz.getName());
+    }
+
+    private static Logger loggerFor(String className) {
+        initRoot(Logging::setRootLogger);
+        Logger logger = LOGGERS.get(className);
+        if (logger == null) {
+            logger = Logger.getLogger(className);
+            LOGGERS.putIfAbsent(className, logger);
+        }
+        return logger;
+    }
+
+    /**
+     * Configure the root logger the first time any logger is asked for, once
+     * only no matter how many threads ask at the same time
+     */
+    private static void initRoot(Runnable configure) {
         if (!rootSet) {
-            setRootLogger();
-            rootSet = true;
+            synchronized (Logging.class) {
+                if (!rootSet) {
+                    configure.run();
+                    rootSet = true;
+                }
+            }
         }
-        return Logger.getLogger(Thread.currentThread().getStackTrace()[2]
-                .getClassName());
     }
 
     /**
@@ -93,6 +154,51 @@ public class Logging {
         return getLogger("", fDir);
     }
 
+    /**
+     * ------------ Per test log files ---------
+     */
+
+    /**
+     * Send everything the current thread logs from now until endTestLog to
+     * its own file, reports/logs/[package]/[date]/[Class]_[test]_[HHmmss].log
+     *
+     * @param className - fully qualified name of the test class
+     * @param testName  - name of the test method or case
+     * @return the key the test's events are routed by
+     */
+    public static String startTestLog(String className, String testName) {
+        initRoot(Logging::setRootLogger);
+        String testKey = className + "." + testName + "#" + TEST_SEQUENCE.incrementAndGet();
+        String path = DEFAULT_OUTPUT_DIR + getDirFromClass(className) + getDirFromDate()
+                + getTestFileName(className, testName, testKey);
+        TestLogRoutingAppender routing = testLogs;
+        if (routing != null) {
+            routing.register(testKey, path);
+        }
+        MDC.put(TestLogRoutingAppender.TEST_KEY, testKey);
+        return testKey;
+    }
+
+    /**
+     * Stop routing the current thread's events to its test file and close the
+     * file once everything already logged has been written to it
+     */
+    public static void endTestLog() {
+        Object testKey = MDC.get(TestLogRoutingAppender.TEST_KEY);
+        MDC.remove(TestLogRoutingAppender.TEST_KEY);
+        TestLogRoutingAppender routing = testLogs;
+        if (testKey == null || routing == null) {
+            return;
+        }
+        Runnable release = () -> routing.release(testKey.toString());
+        AsyncLogAppender async = asyncAppender;
+        if (async != null) {
+            async.afterQueued(release);
+        } else {
+            release.run();
+        }
+    }
+
     /**
      * -------- Get loggers without test case IDs ---
      */
@@ -106,7 +212,7 @@ public class Logging {
      * @return The log4j Logger to use
      */
     public static Logger getLogger(boolean writeFile) {
-        if (!rootSet) {
+        initRoot(() -> {
             if (writeFile) {
                 String defaultFileName = getFileNameFromClass(callingClass);
                 String relativeDir = getDirFromClass(callingClass)
@@ -115,9 +221,8 @@ public class Logging {
             } else {
                 setRootLogger();
             }
-            rootSet = true;
-        }
-        return Logger.getLogger(callingClass);
+        });
+        return loggerFor(callingClass);
     }
 
     /**
@@ -128,16 +233,16 @@ public class Logging {
      * @return The log4j Logger to use
      */
     public static Logger getLogger(String fName) {
-        if (!rootSet) {
+        initRoot(() -> {
             String relativeDir = getDirFromClass(callingClass)
                     + getDirFromDate();
-            if (fName == null || fName.length() <= 0) {
-                fName = getFileNameFromClass(callingClass);
+            String fileName = fName;
+            if (fileName == null || fileName.length() <= 0) {
+                fileName = getFileNameFromClass(callingClass);
             }
-            setRootLogger(fName, DEFAULT_OUTPUT_DIR + relativeDir);
-            rootSet = true;
-        }
-        return Logger.getLogger(callingClass);
+            setRootLogger(fileName, DEFAULT_OUTPUT_DIR + relativeDir);
+        });
+        return loggerFor(callingClass);
     }
 
     /**
@@ -148,20 +253,21 @@ public class Logging {
      * @return The log4j Logger to use
      */
     public static Logger getLogger(String fName, String fDir) {
-        if (!rootSet) {
-            if (fName == null || fName.length() <= 0) {
-                fName = getFileNameFromClass(callingClass);
+        initRoot(() -> {
+            String fileName = fName;
+            String dir = fDir;
+            if (fileName == null || fileName.length() <= 0) {
+                fileName = getFileNameFromClass(callingClass);
             }
-            if (fDir == null) {
-                fDir = getDirFromClass(callingClass) + getDirFromDate();
+            if (dir == null) {
+                dir = getDirFromClass(callingClass) + getDirFromDate();
             }
-            if (fDir.charAt(fDir.length() - 1) != '/') {
-                fDir = fDir + "/";
+            if (dir.charAt(dir.length() - 1) != '/') {
+                dir = dir + "/";
             }
-            setRootLogger(fName, fDir);
-            rootSet = true;
-        }
-        return Logger.getLogger(callingClass);
+            setRootLogger(fileName, dir);
+        });
+        return loggerFor(callingClass);
     }
 
     /*Returns the date in this format: 2014-10-31_10-25-59*/
@@ -187,9 +293,12 @@ public class Logging {
             if (!(dir.exists())) {
                 dir.mkdirs();
             }
-            Logger.getRootLogger().addAppender(
-                    new FileAppender(new PatternLayout(CONVERSION_PATTERN),
-                            fDir + fName, false));
+            PatternLayout layout = new PatternLayout(CONVERSION_PATTERN);
+            if (asyncAppender != null) {
+                asyncAppender.addAppender(new BufferedFileAppender(layout, fDir + fName, false, FILE_BUFFER_SIZE));
+            } else {
+                Logger.getRootLogger().addAppender(new FileAppender(layout, fDir + fName, false));
+            }
         } catch (IOException e) {
             e.getMessage();
         }
@@ -204,11 +313,110 @@ public class Logging {
 
         Logger root = Logger.getRootLogger();
         root.removeAllAppenders();
-        root.addAppender(new ConsoleAppender(pattern));
+        asyncAppender = null;
+        if (Boolean.parseBoolean(System.getProperty(ASYNC_PROPERTY, "true"))) {
+            asyncAppender = new AsyncLogAppender(
+                    Integer.getInteger(QUEUE_SIZE_PROPERTY, DEFAULT_QUEUE_SIZE),
+                    AsyncLogAppender.OverflowPolicy.valueOf(System.getProperty(OVERFLOW_PROPERTY, "BLOCK").toUpperCase()),
+                    Integer.getInteger(BATCH_SIZE_PROPERTY, DEFAULT_BATCH_SIZE),
+                    true);
+            asyncAppender.addAppender(new ConsoleAppender(pattern));
+            testLogs = new TestLogRoutingAppender(pattern, FILE_BUFFER_SIZE);
+            asyncAppender.addAppender(testLogs);
+            root.addAppender(asyncAppender);
+            addShutdownHook();
+        } else {
+            root.addAppender(new ConsoleAppender(pattern));
+            testLogs = new TestLogRoutingAppender(pattern, 0);
+            root.addAppender(testLogs);
+        }
         root.setLevel(Level.INFO);
 
     }
 
+    /**
+     * Make sure queued events are written before the JVM exits
+     */
+    private static void addShutdownHook() {
+        if (!shutdownHookAdded) {
+            Runtime.getRuntime().addShutdownHook(new Thread(LogManager::shutdown, "log-shutdown"));
+            shutdownHookAdded = true;
+        }
+    }
+
+    /**
+     * ------------ Lazily formatted logging ---------
+     * <p>
+     * The helpers log with this class as the caller's boundary so that %C in the
+     * pattern names the class that called them rather than Logging.
+     */
+
+    /**
+     * Log at debug level, only building the message if debug is enabled.
+     * Each {} in the pattern is replaced by the next argument.
+     */
+    public static void debug(Logger logger, String pattern, Object... args) {
+        if (logger.isDebugEnabled()) {
+            logger.log(FQCN, Level.DEBUG, format(pattern, args), null);
+        }
+    }
+
+    public static void debug(Logger logger, Supplier<String> message) {
+        if (logger.isDebugEnabled()) {
+            logger.log(FQCN, Level.DEBUG, message.get(), null);
+        }
+    }
+
+    /**
+     * Log at info level, only building the message if info is enabled.
+     * Each {} in the pattern is replaced by the next argument.
+     */
+    public static void info(Logger logger, String pattern, Object... args) {
+        if (logger.isInfoEnabled()) {
+            logger.log(FQCN, Level.INFO, format(pattern, args), null);
+        }
+    }
+
+    public static void info(Logger logger, Supplier<String> message) {
+        if (logger.isInfoEnabled()) {
+            logger.log(FQCN, Level.INFO, message.get(), null);
+        }
+    }
+
+    /**
+     * Log at warn level, only building the message if warn is enabled.
+     * Each {} in the pattern is replaced by the next argument.
+     */
+    public static void warn(Logger logger, String pattern, Object... args) {
+        if (logger.isEnabledFor(Level.WARN)) {
+            logger.log(FQCN, Level.WARN, format(pattern, args), null);
+        }
+    }
+
+    public static void warn(Logger logger, Supplier<String> message) {
+        if (logger.isEnabledFor(Level.WARN)) {
+            logger.log(FQCN, Level.WARN, message.get(), null);
+        }
+    }
+
+    /**
+     * Replace each {} in the pattern with the next argument
+     */
+    static String format(String pattern, Object... args) {
+        if (args == null || args.length == 0) {
+            return pattern;
+        }
+        StringBuilder message = new StringBuilder(pattern.length() + 16 * args.length);
+        int from = 0;
+        int arg = 0;
+        int at;
+        while (arg < args.length && (at = pattern.indexOf("{}", from)) != -1) {
+            message.append(pattern, from, at).append(args[arg++]);
+            from = at + 2;
+        }
+        return message.append(pattern, from, pattern.length()).toString();
+    }
+
     /**
      * Get the name of the output file from the calling class and current time
      * Ex: gfb.logging.Tester returns: Tester_[HHmm]
@@ -248,6 +456,25 @@ public class Logging {
         return fileName;
     }
 
+    /**
+     * Get the name of a test's output file from its class, test name and the
+     * current time. Ex: repl.TakealotTest doTest returns
+     * TakealotTest_doTest_[HHmmss]_[n].log, where n tells apart tests with
+     * the same name that run at the same time
+     */
+    private static String getTestFileName(String className, String testName, String testKey) {
+        String currTime = (new SimpleDateFormat("HHmmss")).format(new Date());
+        String simpleName = className.substring(className.lastIndexOf('.') + 1);
+        String sequence = testKey.substring(testKey.lastIndexOf('#') + 1);
+        String name = (simpleName + "_" + testName).replaceAll("[^A-Za-z0-9._-]", "_");
+        // _ + HHmmss + _ + n + . + log
+        int len = name.length() + 1 + 6 + 1 + sequence.length() + 4;
+        if (len > MAX_FILENAME_LEN) {
+            name = name.substring(0, name.length() - (len - MAX_FILENAME_LEN));
+        }
+        return name + "_" + currTime + "_" + sequence + ".log";
+    }
+
     /**
      * Get the name of the directory we should put our output in from the
      * calling class package. If the last part of the package is 'test' get the
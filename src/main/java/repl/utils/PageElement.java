@@ -0,0 +1,137 @@
+package repl.utils;
+
+import org.apache.log4j.Logger;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.support.ui.Select;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * An element of a PageObject. Uses the handle found by the page's prefetch while it is still
+ * good and otherwise goes through SeleniumWebDriverUtils, waiting for the element like any other
+ * call.
+ *
+ * @author Garth Bosch
+ */
+public class PageElement {
+    private static final Logger log = Logging.getLogger(PageElement.class);
+
+    private final SeleniumWebDriverUtils driver;
+    private final Locator locator;
+    private final String name;
+    private volatile WebElement handle;
+
+    PageElement(SeleniumWebDriverUtils driver, Locator locator, String name) {
+        this.driver = driver;
+        this.locator = locator;
+        this.name = name;
+    }
+
+    public Locator getLocator() {
+        return locator;
+    }
+
+    /**
+     * The name of the page object field the element is bound to
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return true if a prefetched handle is held
+     */
+    public boolean isPrefetched() {
+        return handle != null;
+    }
+
+    void setHandle(WebElement handle) {
+        this.handle = handle;
+    }
+
+    public void click() {
+        withHandle("clickElement", element -> {
+            element.click();
+            return null;
+        }, () -> {
+            driver.clickElement(locator);
+            return null;
+        });
+    }
+
+    public void enterText(String text) {
+        withHandle("enterText", element -> {
+            element.clear();
+            element.sendKeys(text);
+            return null;
+        }, () -> {
+            driver.enterText(locator, text);
+            return null;
+        });
+    }
+
+    public String getText() {
+        return withHandle("getText", WebElement::getText, () -> driver.getText(locator));
+    }
+
+    public String getAttribute(String attribute) {
+        return withHandle("getElementAttribute", element -> element.getAttribute(attribute),
+                () -> driver.getElementAttribute(locator, attribute));
+    }
+
+    public void selectByVisibleText(String text) {
+        withHandle("selectTextValue", element -> {
+            new Select(element).selectByVisibleText(text);
+            return null;
+        }, () -> {
+            driver.selectTextValue(locator, text);
+            return null;
+        });
+    }
+
+    public boolean isDisplayed() {
+        return withHandle("isElementDisplayed", WebElement::isDisplayed, () -> driver.isElementDisplayed(locator));
+    }
+
+    /**
+     * The underlying element, waiting for it to be present if it wasn't prefetched
+     */
+    public WebElement find() {
+        return withHandle("findWebElement", element -> {
+            element.isEnabled();
+            return element;
+        }, () -> driver.findWebElement(locator));
+    }
+
+    public boolean waitUntilGone() {
+        handle = null;
+        return driver.waitUntilGone(locator);
+    }
+
+    /**
+     * Use the prefetched handle if there is one, otherwise or if it fails look the element up
+     * through the utils. The attempt on the handle is recorded as a check, so a handle that went
+     * stale doesn't count as the test failing when the lookup still succeeds, see CascadeBreaker.
+     */
+    private <T> T withHandle(String action, Function<WebElement, T> use, Supplier<T> lookup) {
+        WebElement cached = handle;
+        if (cached != null) {
+            try (StepMetrics.Step step = StepMetrics.check(action, locator)) {
+                T result = use.apply(cached);
+                step.ok();
+                return result;
+            } catch (WebDriverException ex) {
+                handle = null;
+                Logging.debug(log, "Prefetched {} can't be used any more, looking it up again - {}", this, ex.getMessage());
+            }
+        }
+        return lookup.get();
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + locator.getKey() + ")";
+    }
+}
@@ -0,0 +1,138 @@
+package repl.utils;
+
+import org.openqa.selenium.WebElement;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Base class for page objects. Fields of type PageElement annotated with Locate are bound when
+ * the page object is created. Elements are looked up lazily the first time they are used, or
+ * all at once in one script call if the class is annotated with Prefetch or prefetch is called.
+ * Prefetched handles are reused until the page changes under them, at which point each element
+ * falls back to a normal lookup.
+ * <p>
+ * Create a page object once the browser is on its page. Don't give PageElement fields an
+ * initializer, it would overwrite the bound element.
+ *
+ * @author Garth Bosch
+ */
+public abstract class PageObject {
+    private static final ClassValue<List<Binding>> BINDINGS = new ClassValue<List<Binding>>() {
+        @Override
+        protected List<Binding> computeValue(Class<?> type) {
+            return bindingsOf(type);
+        }
+    };
+
+    protected final SeleniumWebDriverUtils driver;
+    private final List<PageElement> elements;
+
+    protected PageObject(SeleniumWebDriverUtils driver) {
+        this.driver = driver;
+        this.elements = bindElements();
+        Prefetch prefetch = getClass().getAnnotation(Prefetch.class);
+        if (prefetch != null) {
+            if (prefetch.waitForQuiet()) {
+                driver.waitForPageQuiet();
+            }
+            prefetch();
+        }
+    }
+
+    /**
+     * Look up every element of the page in one script call and keep the handles. Elements that
+     * aren't on the page yet are looked up when they are first used.
+     */
+    public void prefetch() {
+        List<Locator> locators = new ArrayList<>(elements.size());
+        for (PageElement element : elements) {
+            locators.add(element.getLocator());
+        }
+        List<WebElement> found = driver.resolveAll(locators);
+        for (int i = 0; i < elements.size(); i++) {
+            elements.get(i).setHandle(found.get(i));
+        }
+    }
+
+    /**
+     * Forget the prefetched handles, e.g. after an action that re-renders the page
+     */
+    public void invalidate() {
+        for (PageElement element : elements) {
+            element.setHandle(null);
+        }
+    }
+
+    /**
+     * The page's elements in declaration order
+     */
+    public List<PageElement> getElements() {
+        return Collections.unmodifiableList(elements);
+    }
+
+    private List<PageElement> bindElements() {
+        List<Binding> bindings = BINDINGS.get(getClass());
+        List<PageElement> bound = new ArrayList<>(bindings.size());
+        for (Binding binding : bindings) {
+            PageElement element = new PageElement(driver, binding.locator, binding.field.getName());
+            try {
+                binding.field.set(this, element);
+            } catch (IllegalAccessException ex) {
+                throw new IllegalStateException("Unable to bind " + binding.field, ex);
+            }
+            bound.add(element);
+        }
+        return bound;
+    }
+
+    private static List<Binding> bindingsOf(Class<?> type) {
+        List<Binding> bindings = new ArrayList<>();
+        if (type.getSuperclass() != null && PageObject.class.isAssignableFrom(type.getSuperclass())) {
+            bindings.addAll(BINDINGS.get(type.getSuperclass()));
+        }
+        for (Field field : type.getDeclaredFields()) {
+            Locate locate = field.getAnnotation(Locate.class);
+            if (locate == null) {
+                continue;
+            }
+            if (field.getType() != PageElement.class) {
+                throw new IllegalStateException(field + " is annotated with Locate but is not a PageElement");
+            }
+            field.setAccessible(true);
+            bindings.add(new Binding(field, toLocator(field, locate)));
+        }
+        return Collections.unmodifiableList(bindings);
+    }
+
+    private static Locator toLocator(Field field, Locate locate) {
+        Locator locator = null;
+        int set = 0;
+        String[] values = {locate.css(), locate.xpath(), locate.id(), locate.name(), locate.className(),
+                locate.linkText(), locate.partialLinkText()};
+        Locator.Type[] types = {Locator.Type.CSS, Locator.Type.XPATH, Locator.Type.ID, Locator.Type.NAME,
+                Locator.Type.CLASSNAME, Locator.Type.LINK_TEXT, Locator.Type.PARTIAL_LINK_TEXT};
+        for (int i = 0; i < values.length; i++) {
+            if (!values[i].isEmpty()) {
+                locator = Locator.of(types[i], values[i]);
+                set++;
+            }
+        }
+        if (set != 1) {
+            throw new IllegalStateException(field + " must set exactly one Locate attribute but sets " + set);
+        }
+        return locator;
+    }
+
+    private static final class Binding {
+        private final Field field;
+        private final Locator locator;
+
+        private Binding(Field field, Locator locator) {
+            this.field = field;
+            this.locator = locator;
+        }
+    }
+}
@@ -0,0 +1,341 @@
+package repl.utils;
+
+/**
+ * Javascript injected into the page by the utils. Scripts that need to find elements start with
+ * FIND_ELEMENT, which resolves a [locatorType, value] pair the same way selenium's By does.
+ *
+ * @author Garth Bosch
+ */
+final class PageScripts {
+
+    /**
+     * Defines find(type, value) returning the first matching element or null
+     */
+    static final String FIND_ELEMENT = ""
+            + "var find = function (type, value) {"
+            + "  switch (type) {"
+            + "    case 'css': return document.querySelector(value);"
+            + "    case 'id': return document.getElementById(value);"
+            + "    case 'name': return document.getElementsByName(value)[0] || null;"
+            + "    case 'classname': return document.getElementsByClassName(value)[0] || null;"
+            + "    case 'xpath': return document.evaluate(value, document, null,"
+            + "        XPathResult.FIRST_ORDERED_NODE_TYPE, null).singleNodeValue;"
+            + "    case 'linktext':"
+            + "    case 'partiallinktext':"
+            + "      var links = document.getElementsByTagName('a');"
+            + "      for (var i = 0; i < links.length; i++) {"
+            + "        var text = (links[i].innerText || links[i].textContent || '').trim();"
+            + "        if (type === 'linktext' ? text === value : text.indexOf(value) !== -1) { return links[i]; }"
+            + "      }"
+            + "      return null;"
+            + "  }"
+            + "  throw new Error('Unknown locator type ' + type);"
+            + "};";
+
+    /**
+     * Defines visible(element), an approximation of WebElement.isDisplayed: the element is in
+     * the document, neither it nor an ancestor is display none or fully transparent, it is not
+     * visibility hidden and it has a box with an area
+     */
+    static final String VISIBLE_ELEMENT = ""
+            + "var visible = function (el) {"
+            + "  if (!el || !(document.documentElement || document).contains(el)) { return false; }"
+            + "  var style = window.getComputedStyle(el);"
+            + "  if (style.visibility === 'hidden' || style.visibility === 'collapse') { return false; }"
+            + "  for (var node = el; node && node.nodeType === 1; node = node.parentElement) {"
+            + "    var nodeStyle = window.getComputedStyle(node);"
+            + "    if (nodeStyle.display === 'none' || parseFloat(nodeStyle.opacity) === 0) { return false; }"
+            + "  }"
+            + "  var rects = el.getClientRects();"
+            + "  for (var i = 0; i < rects.length; i++) {"
+            + "    if (rects[i].width > 0 && rects[i].height > 0) { return true; }"
+            + "  }"
+            + "  return false;"
+            + "};";
+
+    /**
+     * Defines read(element, attribute) returning the visible text when attribute is null, otherwise
+     * the property or attribute the same way WebElement.getAttribute does
+     */
+    static final String READ_ELEMENT = ""
+            + "var read = function (el, attribute) {"
+            + "  if (attribute === null) { return (el.innerText || '').replace(/\\u00a0/g, ' ').trim(); }"
+            + "  var property = el[attribute];"
+            + "  if (property !== undefined && property !== null && typeof property !== 'object'"
+            + "      && typeof property !== 'function') { return String(property); }"
+            + "  return el.getAttribute(attribute);"
+            + "};";
+
+    /**
+     * arguments[0] is a list of [locatorType, value, attribute] triples. Returns one
+     * {found, value, error} map per triple.
+     */
+    static final String READ_ALL = FIND_ELEMENT + READ_ELEMENT
+            + "return arguments[0].map(function (r) {"
+            + "  try {"
+            + "    var el = find(r[0], r[1]);"
+            + "    return el ? {found: true, value: read(el, r[2])} : {found: false, value: null};"
+            + "  } catch (e) {"
+            + "    return {found: false, value: null, error: String(e.message || e)};"
+            + "  }"
+            + "});";
+
+    /**
+     * arguments[0] is a list of [locatorType, value] pairs. Returns the first matching element of
+     * each pair, null where there is none.
+     */
+    static final String FIND_ALL = FIND_ELEMENT
+            + "return arguments[0].map(function (l) {"
+            + "  try { return find(l[0], l[1]); } catch (e) { return null; }"
+            + "});";
+
+    /**
+     * Installs, once per document, a tracker counting in flight fetch and XHR requests and
+     * noting the time of the last request or added or removed node as __replQuiescence. Attribute
+     * and text changes aren't counted, animations and tickers make them all the time.
+     */
+    static final String QUIESCENCE_TRACKER = ""
+            + "var now = function () {"
+            + "  return window.performance && performance.now ? performance.now() : Date.now();"
+            + "};"
+            + "var tracker = window.__replQuiescence;"
+            + "if (!tracker) {"
+            + "  tracker = window.__replQuiescence = {inflight: 0, last: now()};"
+            + "  var touch = function () { tracker.last = now(); };"
+            + "  var done = function () { tracker.inflight = Math.max(0, tracker.inflight - 1); touch(); };"
+            + "  if (window.fetch) {"
+            + "    var fetch = window.fetch;"
+            + "    window.fetch = function () {"
+            + "      tracker.inflight++;"
+            + "      touch();"
+            + "      try {"
+            + "        return fetch.apply(this, arguments).then("
+            + "            function (response) { done(); return response; },"
+            + "            function (error) { done(); throw error; });"
+            + "      } catch (e) { done(); throw e; }"
+            + "    };"
+            + "  }"
+            + "  if (window.XMLHttpRequest) {"
+            + "    var send = XMLHttpRequest.prototype.send;"
+            + "    XMLHttpRequest.prototype.send = function () {"
+            + "      var finished = false;"
+            + "      var finish = function () { if (!finished) { finished = true; done(); } };"
+            + "      tracker.inflight++;"
+            + "      touch();"
+            + "      this.addEventListener('loadend', finish);"
+            + "      try { return send.apply(this, arguments); } catch (e) { finish(); throw e; }"
+            + "    };"
+            + "  }"
+            + "  if (window.MutationObserver) {"
+            + "    new MutationObserver(touch).observe(document.documentElement || document,"
+            + "        {childList: true, subtree: true});"
+            + "  }"
+            + "}";
+
+    /**
+     * Async script. arguments[0] is the quiet window, arguments[1] the timeout and arguments[2]
+     * the longest to wait for the quiet window once the document is complete, all in ms. Calls
+     * back {quiet, loaded, elapsed, inflight, readyState} as soon as the document is complete and
+     * there has been no request or added or removed node for the quiet window, or quiet false
+     * when the document has been complete for arguments[2] or the timeout is up.
+     */
+    static final String AWAIT_QUIET = QUIESCENCE_TRACKER
+            + "var quietMs = arguments[0], timeoutMs = arguments[1], settleMs = arguments[2];"
+            + "var callback = arguments[arguments.length - 1];"
+            + "var start = now(), loadedAt = null;"
+            + "var report = function (quiet, t) {"
+            + "  callback({quiet: quiet, loaded: loadedAt !== null, elapsed: Math.round(t - start),"
+            + "      inflight: tracker.inflight, readyState: document.readyState});"
+            + "};"
+            + "var check = function () {"
+            + "  var t = now();"
+            + "  if (loadedAt === null && document.readyState === 'complete') { loadedAt = t; }"
+            + "  var idle = loadedAt !== null && tracker.inflight === 0;"
+            + "  if (idle && t - tracker.last >= quietMs) { report(true, t); return; }"
+            + "  var left = loadedAt !== null ? Math.min(timeoutMs - (t - start), settleMs - (t - loadedAt))"
+            + "      : timeoutMs - (t - start);"
+            + "  if (left <= 0) { report(false, t); return; }"
+            + "  var next = idle ? quietMs - (t - tracker.last) : 10;"
+            + "  setTimeout(check, Math.max(1, Math.min(next, left)));"
+            + "};"
+            + "check();";
+
+    /**
+     * Runs evaluate(), defined by the script before it, straight away and again on every DOM
+     * mutation and finished transition or animation, with a 100 ms fallback for changes nothing
+     * reports. Calls back the first result evaluate returns, with elapsed added, or met false once
+     * timeoutMs is up.
+     */
+    private static final String AWAIT_EVALUATE = ""
+            + "var callback = arguments[arguments.length - 1];"
+            + "var start = Date.now(), observer = null, fallback = null, deadline = null, finished = false;"
+            + "var check;"
+            + "var finish = function (result) {"
+            + "  if (finished) { return; }"
+            + "  finished = true;"
+            + "  if (observer) { observer.disconnect(); }"
+            + "  clearInterval(fallback);"
+            + "  clearTimeout(deadline);"
+            + "  document.removeEventListener('transitionend', check, true);"
+            + "  document.removeEventListener('animationend', check, true);"
+            + "  result.elapsed = Date.now() - start;"
+            + "  callback(result);"
+            + "};"
+            + "check = function () {"
+            + "  try {"
+            + "    var result = evaluate();"
+            + "    if (result) { finish(result); }"
+            + "  } catch (e) {"
+            + "    finish({met: false, element: null, error: String(e.message || e)});"
+            + "  }"
+            + "};"
+            + "check();"
+            + "if (!finished) {"
+            + "  observer = new MutationObserver(check);"
+            + "  observer.observe(document.documentElement || document,"
+            + "      {childList: true, subtree: true, attributes: true, characterData: true});"
+            + "  document.addEventListener('transitionend', check, true);"
+            + "  document.addEventListener('animationend', check, true);"
+            + "  fallback = setInterval(check, 100);"
+            + "  deadline = setTimeout(function () { finish({met: false, element: null}); }, timeoutMs);"
+            + "}";
+
+    /**
+     * Async script. arguments are the locator type, the value, the ElementState key and the
+     * timeout in ms. Calls back {met, element, elapsed} the moment the state is reached or met
+     * false on the timeout, see AWAIT_EVALUATE.
+     */
+    static final String AWAIT_ELEMENT = FIND_ELEMENT + VISIBLE_ELEMENT
+            + "var type = arguments[0], value = arguments[1], state = arguments[2], timeoutMs = arguments[3];"
+            + "var evaluate = function () {"
+            + "  var el = find(type, value);"
+            + "  switch (state) {"
+            + "    case 'present': return el ? {met: true, element: el} : null;"
+            + "    case 'visible': return el && visible(el) ? {met: true, element: el} : null;"
+            + "    case 'hidden': return !el || !visible(el) ? {met: true, element: null} : null;"
+            + "    case 'absent': return el ? null : {met: true, element: null};"
+            + "  }"
+            + "  throw new Error('Unknown element state ' + state);"
+            + "};"
+            + AWAIT_EVALUATE;
+
+    /**
+     * Async script. arguments[0] is a ranked list of [locatorType, value] pairs, arguments[1] the
+     * ElementState key, present or visible, and arguments[2] the timeout in ms. Every alternative
+     * is tried on each check and the first in rank order in the state wins. Calls back
+     * {met, element, index, elapsed, errors} with the index of the winner, or met false on the
+     * timeout. An alternative that can't be evaluated, e.g. invalid xpath, is skipped and its
+     * error reported in errors.
+     */
+    static final String AWAIT_FIRST = FIND_ELEMENT + VISIBLE_ELEMENT
+            + "var alternatives = arguments[0], state = arguments[1], timeoutMs = arguments[2];"
+            + "var errors = {};"
+            + "if (state !== 'present' && state !== 'visible') { throw new Error('Unsupported element state ' + state); }"
+            + "var evaluate = function () {"
+            + "  for (var i = 0; i < alternatives.length; i++) {"
+            + "    if (errors[i]) { continue; }"
+            + "    try {"
+            + "      var el = find(alternatives[i][0], alternatives[i][1]);"
+            + "      if (el && (state === 'present' || visible(el))) {"
+            + "        return {met: true, element: el, index: i, errors: errors};"
+            + "      }"
+            + "    } catch (e) {"
+            + "      errors[i] = String(e.message || e);"
+            + "    }"
+            + "  }"
+            + "  if (Object.keys(errors).length === alternatives.length) {"
+            + "    return {met: false, element: null, index: -1, errors: errors};"
+            + "  }"
+            + "  return null;"
+            + "};"
+            + AWAIT_EVALUATE;
+
+    /**
+     * Installs, once per document, a counter of the DOM mutations that can change what a locator
+     * matches: added or removed nodes, text changes and id, class or name changes. arguments[0]
+     * is an element. Returns {generation, connected, visible, enabled} where generation names the
+     * document and its mutation count, so it changes on navigation or any counted mutation.
+     */
+    static final String ELEMENT_GENERATION = VISIBLE_ELEMENT
+            + "var counter = window.__replMutations;"
+            + "if (!counter || counter.doc !== document) {"
+            + "  counter = window.__replMutations = {doc: document, id: Math.random().toString(36).slice(2), count: 0};"
+            + "  if (window.MutationObserver) {"
+            + "    new MutationObserver(function (records) { counter.count += records.length; })"
+            + "        .observe(document.documentElement || document, {childList: true, subtree: true,"
+            + "            characterData: true, attributes: true, attributeFilter: ['id', 'class', 'name']});"
+            + "  }"
+            + "}"
+            + "var el = arguments[0];"
+            + "var connected = !!el && (document.documentElement || document).contains(el);"
+            + "return {generation: counter.id + ':' + counter.count, connected: connected,"
+            + "    visible: connected && visible(el), enabled: connected && !el.disabled};";
+
+    /**
+     * Returns the Navigation and Resource Timing entries added since the last call on this
+     * document: {navigation, resources, resourceBytes, resourceMs, slowest, slowestMs}.
+     * navigation is {ttfb, download, domContentLoaded, load, transferSize} in ms since the
+     * navigation started, reported once the page has loaded, otherwise null. resourceMs is the sum
+     * of the new resources' durations.
+     */
+    static final String COLLECT_TIMING = ""
+            + "if (!window.performance || !performance.getEntriesByType) { return null; }"
+            + "var state = window.__replTiming;"
+            + "if (!state) {"
+            + "  state = window.__replTiming = {seen: 0, navigationReported: false};"
+            + "  if (performance.setResourceTimingBufferSize) { performance.setResourceTimingBufferSize(1000); }"
+            + "}"
+            + "var navigation = null;"
+            + "var nav = performance.getEntriesByType('navigation')[0];"
+            + "if (nav && !state.navigationReported && nav.loadEventEnd > 0) {"
+            + "  state.navigationReported = true;"
+            + "  navigation = {ttfb: Math.round(nav.responseStart - nav.startTime),"
+            + "      download: Math.round(nav.responseEnd - nav.responseStart),"
+            + "      domContentLoaded: Math.round(nav.domContentLoadedEventEnd - nav.startTime),"
+            + "      load: Math.round(nav.loadEventEnd - nav.startTime), transferSize: nav.transferSize || 0};"
+            + "}"
+            + "var all = performance.getEntriesByType('resource');"
+            + "if (all.length < state.seen) { state.seen = 0; }"
+            + "var bytes = 0, total = 0, slowest = null, slowestMs = 0;"
+            + "for (var i = state.seen; i < all.length; i++) {"
+            + "  bytes += all[i].transferSize || 0;"
+            + "  total += all[i].duration;"
+            + "  if (all[i].duration > slowestMs) { slowestMs = all[i].duration; slowest = all[i].name; }"
+            + "}"
+            + "var count = all.length - state.seen;"
+            + "state.seen = all.length;"
+            + "return {navigation: navigation, resources: count, resourceBytes: bytes, resourceMs: Math.round(total),"
+            + "    slowest: slowest, slowestMs: Math.round(slowestMs)};";
+
+    /**
+     * Returns the load milestones of the current document in ms since its navigation started:
+     * {url, ttfb, domContentLoaded, load, lcp}, -1 for any not reached or not supported. The
+     * largest contentful paint is read from the buffered entries, so it is the largest so far.
+     */
+    static final String PAGE_TIMING = ""
+            + "var result = {url: location.href, ttfb: -1, domContentLoaded: -1, load: -1, lcp: -1};"
+            + "if (!window.performance || !performance.getEntriesByType) { return result; }"
+            + "var nav = performance.getEntriesByType('navigation')[0];"
+            + "if (nav) {"
+            + "  if (nav.responseStart > 0) { result.ttfb = Math.round(nav.responseStart - nav.startTime); }"
+            + "  if (nav.domContentLoadedEventEnd > 0) {"
+            + "    result.domContentLoaded = Math.round(nav.domContentLoadedEventEnd - nav.startTime);"
+            + "  }"
+            + "  if (nav.loadEventEnd > 0) { result.load = Math.round(nav.loadEventEnd - nav.startTime); }"
+            + "}"
+            + "try {"
+            + "  var observer = new PerformanceObserver(function () {});"
+            + "  observer.observe({type: 'largest-contentful-paint', buffered: true});"
+            + "  var paints = observer.takeRecords();"
+            + "  observer.disconnect();"
+            + "  if (paints.length) {"
+            + "    var last = paints[paints.length - 1];"
+            + "    result.lcp = Math.round(last.renderTime || last.loadTime || last.startTime);"
+            + "  }"
+            + "} catch (e) {"
+            + "}"
+            + "return result;";
+
+    private PageScripts() {
+    }
+}
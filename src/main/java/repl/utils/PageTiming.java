@@ -0,0 +1,69 @@
+package repl.utils;
+
+import java.util.Map;
+
+/**
+ * The load milestones of a document, in ms since its navigation started, as measured by
+ * SeleniumWebDriverUtils.measurePageLoad. Milestones the page hasn't reached, or the browser
+ * doesn't report, are -1.
+ * <p>
+ * These describe the document's own navigation. A single page app's route changes don't start a
+ * new one, budget the steps that trigger them instead, see PerformanceBudget.
+ *
+ * @author Garth Bosch
+ */
+public final class PageTiming {
+    private final String url;
+    private final long ttfbMillis;
+    private final long domContentLoadedMillis;
+    private final long loadMillis;
+    private final long largestContentfulPaintMillis;
+
+    public PageTiming(String url, long ttfbMillis, long domContentLoadedMillis, long loadMillis,
+                      long largestContentfulPaintMillis) {
+        this.url = url;
+        this.ttfbMillis = ttfbMillis;
+        this.domContentLoadedMillis = domContentLoadedMillis;
+        this.loadMillis = loadMillis;
+        this.largestContentfulPaintMillis = largestContentfulPaintMillis;
+    }
+
+    static PageTiming fromScript(Map<?, ?> result) {
+        Object url = result.get("url");
+        return new PageTiming(url == null ? null : url.toString(), millis(result.get("ttfb")),
+                millis(result.get("domContentLoaded")), millis(result.get("load")), millis(result.get("lcp")));
+    }
+
+    private static long millis(Object value) {
+        return value instanceof Number ? ((Number) value).longValue() : -1;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Time to the first byte of the response, including redirects, DNS and connecting
+     */
+    public long getTtfbMillis() {
+        return ttfbMillis;
+    }
+
+    public long getDomContentLoadedMillis() {
+        return domContentLoadedMillis;
+    }
+
+    public long getLoadMillis() {
+        return loadMillis;
+    }
+
+    public long getLargestContentfulPaintMillis() {
+        return largestContentfulPaintMillis;
+    }
+
+    @Override
+    public String toString() {
+        return url + ": ttfb " + ttfbMillis + " ms, DOMContentLoaded " + domContentLoadedMillis + " ms, load "
+                + loadMillis + " ms, LCP " + largestContentfulPaintMillis + " ms";
+    }
+}
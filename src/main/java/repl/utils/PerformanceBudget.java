@@ -0,0 +1,204 @@
+package repl.utils;
+
+import org.apache.log4j.Logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Limits on how long page loads and steps may take, so a test fails when the site or the flow
+ * gets slower and not only when it breaks. Page limits are checked against a PageTiming, step
+ * limits against the slowest recorded run of each step in a StepMetrics registry, e.g. the
+ * running test's.
+ * <p>
+ * A measurement may exceed its limit by the tolerance, a fraction of the limit, before it counts
+ * as a violation. The default tolerance is read from the repl.perf.tolerance system property,
+ * e.g. 0.2 for 20%, and is 0 if it isn't set. The assert methods throw an AssertionError listing
+ * every violation with its measured value, which TestNG reports as the test's failure.
+ *
+ * @author Garth Bosch
+ */
+public class PerformanceBudget {
+    public static final String TOLERANCE_PROPERTY = "repl.perf.tolerance";
+    private static final Logger log = Logging.getLogger(PerformanceBudget.class);
+
+    public enum Metric {
+        TTFB("ttfb", PageTiming::getTtfbMillis),
+        DOM_CONTENT_LOADED("DOMContentLoaded", PageTiming::getDomContentLoadedMillis),
+        LOAD("load", PageTiming::getLoadMillis),
+        LARGEST_CONTENTFUL_PAINT("LCP", PageTiming::getLargestContentfulPaintMillis);
+
+        private final String label;
+        private final ToLongFunction<PageTiming> reader;
+
+        Metric(String label, ToLongFunction<PageTiming> reader) {
+            this.label = label;
+            this.reader = reader;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private final Map<Metric, Duration> pageLimits = new EnumMap<>(Metric.class);
+    private final Map<String, Duration> stepLimits = new LinkedHashMap<>();
+    private double tolerance = Double.parseDouble(System.getProperty(TOLERANCE_PROPERTY, "0"));
+
+    /**
+     * The limit of a page load milestone
+     */
+    public void setLimit(Metric metric, Duration limit) {
+        pageLimits.put(metric, limit);
+    }
+
+    /**
+     * The limit of a step, given as its action, e.g. clickElement, to cover every target or as
+     * the action and target, e.g. "clickElement css=#add-to-cart", for one step. The action and
+     * target limit wins where both are set.
+     */
+    public void setStepLimit(String step, Duration limit) {
+        stepLimits.put(step, limit);
+    }
+
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * @param tolerance - the fraction of each limit a measurement may exceed it by, e.g. 0.1
+     */
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * @param page - names the page in violations, e.g. pdp
+     * @return the page's milestones that exceed their limits, those it hasn't reached are skipped
+     */
+    public List<Violation> check(String page, PageTiming timing) {
+        List<Violation> violations = new ArrayList<>();
+        for (Map.Entry<Metric, Duration> limit : pageLimits.entrySet()) {
+            long measured = limit.getKey().reader.applyAsLong(timing);
+            if (measured < 0) {
+                Logging.warn(log, "No {} measured for {}, its budget was not checked", limit.getKey().label, page);
+                continue;
+            }
+            Violation violation = violation(page + " " + limit.getKey().label, measured, limit.getValue());
+            if (violation != null) {
+                violations.add(violation);
+            }
+        }
+        return violations;
+    }
+
+    /**
+     * @return the steps whose slowest run exceeds their limit
+     */
+    public List<Violation> check(StepMetrics metrics) {
+        List<Violation> violations = new ArrayList<>();
+        for (StepMetrics.StepStats stats : metrics.getSteps()) {
+            String name = stats.getAction() + " " + stats.getTarget();
+            Duration limit = stepLimits.get(name);
+            if (limit == null) {
+                limit = stepLimits.get(stats.getAction());
+            }
+            if (limit == null || stats.getCount() == 0) {
+                continue;
+            }
+            Violation violation = violation(name, stats.getWall().getMaxMillis(), limit);
+            if (violation != null) {
+                violations.add(violation);
+            }
+        }
+        return violations;
+    }
+
+    public void assertWithin(String page, PageTiming timing) {
+        Logging.info(log, "{} {}", page, timing);
+        fail(check(page, timing));
+    }
+
+    public void assertWithin(StepMetrics metrics) {
+        fail(check(metrics));
+    }
+
+    /**
+     * Check the steps recorded so far for the test running on this thread, see
+     * StepMetrics.startTest. Nothing is checked if no test is recording steps.
+     */
+    public void assertStepsWithin() {
+        StepMetrics test = StepMetrics.currentTest();
+        if (test == null) {
+            Logging.warn(log, "No test is recording steps on thread {}, step budgets were not checked",
+                    Thread.currentThread().getName());
+            return;
+        }
+        assertWithin(test);
+    }
+
+    private Violation violation(String name, long measured, Duration limit) {
+        long allowed = Math.round(limit.toMillis() * (1 + tolerance));
+        return measured > allowed ? new Violation(name, measured, limit.toMillis(), allowed) : null;
+    }
+
+    private static void fail(List<Violation> violations) {
+        if (violations.isEmpty()) {
+            return;
+        }
+        StringBuilder message = new StringBuilder("Performance budget exceeded:");
+        for (Violation violation : violations) {
+            message.append("\n  ").append(violation);
+        }
+        log.error(message.toString());
+        throw new AssertionError(message.toString());
+    }
+
+    /**
+     * A measurement over its limit
+     */
+    public static final class Violation {
+        private final String name;
+        private final long measuredMillis;
+        private final long limitMillis;
+        private final long allowedMillis;
+
+        private Violation(String name, long measuredMillis, long limitMillis, long allowedMillis) {
+            this.name = name;
+            this.measuredMillis = measuredMillis;
+            this.limitMillis = limitMillis;
+            this.allowedMillis = allowedMillis;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getMeasuredMillis() {
+            return measuredMillis;
+        }
+
+        public long getLimitMillis() {
+            return limitMillis;
+        }
+
+        /**
+         * The limit plus the tolerance
+         */
+        public long getAllowedMillis() {
+            return allowedMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s took %d ms, budget %d ms (%d ms with tolerance)", name,
+                    measuredMillis, limitMillis, allowedMillis);
+        }
+    }
+}
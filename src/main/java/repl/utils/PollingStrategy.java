@@ -0,0 +1,43 @@
+package repl.utils;
+
+import org.openqa.selenium.support.ui.Sleeper;
+
+import java.time.Duration;
+
+/**
+ * Decides how long the element waits sleep between polls. A new sleeper is asked for on every
+ * wait so that strategies can change the interval from one poll to the next.
+ *
+ * @author Garth Bosch
+ */
+public interface PollingStrategy {
+
+    /**
+     * @param key - identifies what is being waited for, e.g. the locator. May be null
+     * @return the sleeper for a single wait
+     */
+    Sleeper newSleeper(String key);
+
+    /**
+     * The sleeper for a single wait that gives up after the timeout. Strategies that know the
+     * timeout can avoid sleeping past it, the default ignores it.
+     *
+     * @param key - identifies what is being waited for, e.g. the locator. May be null
+     */
+    default Sleeper newSleeper(String key, Duration timeout) {
+        return newSleeper(key);
+    }
+
+    /**
+     * Called with how long a wait took to succeed, so strategies can learn from past waits
+     */
+    default void recordWait(String key, Duration elapsed) {
+    }
+
+    /**
+     * Poll at the same interval every time
+     */
+    static PollingStrategy fixed(Duration interval) {
+        return key -> duration -> Thread.sleep(interval.toMillis());
+    }
+}
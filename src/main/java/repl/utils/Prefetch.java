@@ -0,0 +1,21 @@
+package repl.utils;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Resolve all of a PageObject's elements in one script call when it is created, instead of one
+ * lookup per element on first use
+ *
+ * @author Garth Bosch
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Prefetch {
+    /**
+     * Wait for the page to go quiet first, so that elements rendered after load are found too
+     */
+    boolean waitForQuiet() default true;
+}
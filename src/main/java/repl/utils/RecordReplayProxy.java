@@ -0,0 +1,541 @@
+package repl.utils;
+
+import org.apache.log4j.Logger;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSocket;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.Proxy;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.regex.Pattern;
+
+/**
+ * A local HTTP(S) proxy that records responses to disk and replays them, so a suite can run
+ * repeatably without the network.
+ * <ul>
+ * <li>RECORD forwards every request and stores every GET/HEAD response</li>
+ * <li>REPLAY serves only from the store and never touches the network</li>
+ * <li>CACHE serves whatever is already in the store and forwards everything else, adding only
+ * static assets (images, css, scripts, fonts) to the store</li>
+ * </ul>
+ * Stored bodies are memory mapped when they are first replayed, so repeat runs serve assets
+ * straight from the page cache.
+ * <p>
+ * HTTPS is recorded and replayed like plain HTTP. The proxy answers each CONNECT itself and
+ * terminates the browser's TLS with a certificate for the host issued by a local
+ * CertificateAuthority, kept as ca.p12 in the store directory. The browser has to accept those
+ * certificates, SeleniumWebDriverUtils starts chrome ignoring certificate errors while the proxy
+ * is enabled. Upstream connections verify the origin as usual, see setUpstreamSslContext for
+ * origins with a private CA. Each connection carries one request, so WebSockets don't work
+ * through the proxy.
+ * <p>
+ * A browser using the proxy leaves host lookups to it, so host resolver rules such as the
+ * BrowserProfile's blocked hosts don't apply. Hosts given to setBlockedHosts are refused by the
+ * proxy instead, over HTTP and HTTPS alike.
+ *
+ * @author Garth Bosch
+ */
+public class RecordReplayProxy implements Closeable {
+    private static final Logger log = Logging.getLogger(RecordReplayProxy.class);
+    private static final String CRLF = "\r\n";
+    private static final Set<String> HOP_BY_HOP_HEADERS = new HashSet<>(Arrays.asList(
+            "connection", "proxy-connection", "keep-alive", "transfer-encoding", "te", "trailer",
+            "upgrade", "proxy-authorization", "proxy-authenticate", "content-length", "host"));
+    private static final List<String> STATIC_CONTENT_TYPES = Arrays.asList(
+            "image/", "font/", "text/css", "javascript", "application/font", "application/x-font");
+
+    public enum Mode {
+        RECORD,
+        REPLAY,
+        CACHE
+    }
+
+    private final Path storeDir;
+    private final Mode mode;
+    private final ConcurrentMap<String, MappedByteBuffer> mappedBodies = new ConcurrentHashMap<>();
+    private final ExecutorService workers = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "record-replay-proxy");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ServerSocket serverSocket;
+    private CertificateAuthority authority;
+    private volatile SSLContext upstreamContext;
+    private volatile boolean running;
+    private volatile List<Pattern> blockedHosts = Collections.emptyList();
+
+    public RecordReplayProxy(Path storeDir, Mode mode) {
+        this.storeDir = storeDir;
+        this.mode = mode;
+    }
+
+    /**
+     * Start listening on a free loopback port
+     *
+     * @return the port the proxy listens on
+     */
+    public synchronized int start() throws IOException {
+        if (running) {
+            return getPort();
+        }
+        Files.createDirectories(storeDir);
+        serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        running = true;
+        workers.execute(this::acceptLoop);
+        log.info("Record/replay proxy listening on " + getAddress() + " in " + mode + " mode, store " + storeDir);
+        return getPort();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return host:port to configure as the browser's http and ssl proxy
+     */
+    public String getAddress() {
+        return serverSocket.getInetAddress().getHostAddress() + ":" + getPort();
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Refuse requests to these hosts instead of forwarding or replaying them. Wildcards such as
+     * *.doubleclick.net are allowed. Replaces the hosts blocked so far.
+     */
+    public void setBlockedHosts(Iterable<String> hosts) {
+        List<Pattern> patterns = new ArrayList<>();
+        for (String host : hosts) {
+            patterns.add(Pattern.compile(Pattern.quote(host).replace("*", "\\E.*\\Q"), Pattern.CASE_INSENSITIVE));
+        }
+        blockedHosts = patterns;
+    }
+
+    /**
+     * The authority that issues the certificates the browser sees for HTTPS hosts, loaded from or
+     * created in the store directory on first use
+     */
+    public synchronized CertificateAuthority getCertificateAuthority() throws IOException {
+        if (authority == null) {
+            authority = CertificateAuthority.loadOrCreate(storeDir);
+        }
+        return authority;
+    }
+
+    /**
+     * Verify HTTPS origins with this context instead of the JVM's default trust store, e.g. for
+     * a staging site with a private CA
+     */
+    public void setUpstreamSslContext(SSLContext upstreamContext) {
+        this.upstreamContext = upstreamContext;
+    }
+
+    boolean isBlocked(String host) {
+        for (Pattern blocked : blockedHosts) {
+            if (blocked.matcher(host).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized void close() {
+        running = false;
+        try {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+        } catch (IOException ex) {
+            log.warn("Error closing record/replay proxy - " + ex.getMessage());
+        }
+        workers.shutdownNow();
+        mappedBodies.clear();
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket client = serverSocket.accept();
+                workers.execute(() -> handle(client));
+            } catch (SocketException ex) {
+                if (running) {
+                    log.error("Record/replay proxy stopped accepting - " + ex.getMessage());
+                }
+                return;
+            } catch (Exception ex) {
+                log.error("Record/replay proxy failed to accept a connection - " + ex.getMessage());
+            }
+        }
+    }
+
+    private void handle(Socket client) {
+        try {
+            InputStream in = client.getInputStream();
+            String requestLine = readLine(in);
+            if (requestLine == null || requestLine.isEmpty()) {
+                client.close();
+                return;
+            }
+            String[] parts = requestLine.split(" ");
+            Map<String, String> headers = readHeaders(in);
+            if ("CONNECT".equalsIgnoreCase(parts[0])) {
+                tunnel(client, parts[1]);
+                return;
+            }
+            try {
+                byte[] body = readBody(in, headers);
+                serve(client.getOutputStream(), parts[0].toUpperCase(Locale.ROOT), parts[1], headers, body);
+            } finally {
+                client.close();
+            }
+        } catch (Exception ex) {
+            log.warn("Record/replay proxy failed to handle a request - " + ex.getMessage());
+            closeQuietly(client);
+        }
+    }
+
+    private void serve(OutputStream out, String method, String url, Map<String, String> headers, byte[] body)
+            throws IOException {
+        if (isBlocked(new URL(url).getHost())) {
+            Logging.debug(log, "Refused blocked {} {}", method, url);
+            writeStatus(out, 403, "Blocked");
+            return;
+        }
+        boolean cacheable = "GET".equals(method) || "HEAD".equals(method);
+        String key = cacheable ? key(method, url) : null;
+
+        if (cacheable && (mode == Mode.REPLAY || mode == Mode.CACHE) && isStored(key)) {
+            replay(out, key, "HEAD".equals(method));
+            return;
+        }
+        if (mode == Mode.REPLAY) {
+            Logging.warn(log, "No recording for {} {}", method, url);
+            writeStatus(out, 504, "Not Recorded");
+            return;
+        }
+
+        StoredResponse response = forward(method, url, headers, body);
+        if (cacheable && (mode == Mode.RECORD || isStaticAsset(response))) {
+            store(key, response);
+        }
+        write(out, response.status, response.reason, response.headers, ByteBuffer.wrap(response.body),
+                "HEAD".equals(method));
+    }
+
+    private StoredResponse forward(String method, String url, Map<String, String> headers, byte[] body)
+            throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection(Proxy.NO_PROXY);
+        SSLContext trusted = upstreamContext;
+        if (trusted != null && connection instanceof HttpsURLConnection) {
+            ((HttpsURLConnection) connection).setSSLSocketFactory(trusted.getSocketFactory());
+        }
+        connection.setInstanceFollowRedirects(false);
+        connection.setRequestMethod(method);
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (!HOP_BY_HOP_HEADERS.contains(header.getKey().toLowerCase(Locale.ROOT))) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+        }
+        if (body.length > 0) {
+            connection.setDoOutput(true);
+            try (OutputStream upstream = connection.getOutputStream()) {
+                upstream.write(body);
+            }
+        }
+
+        StoredResponse response = new StoredResponse();
+        response.status = connection.getResponseCode();
+        response.reason = connection.getResponseMessage() == null ? "" : connection.getResponseMessage();
+        for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+            if (header.getKey() != null && !HOP_BY_HOP_HEADERS.contains(header.getKey().toLowerCase(Locale.ROOT))) {
+                response.headers.put(header.getKey(), String.join(", ", header.getValue()));
+            }
+        }
+        InputStream upstream = response.status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        response.body = upstream == null ? new byte[0] : readFully(upstream);
+        connection.disconnect();
+        return response;
+    }
+
+    /**
+     * Answer the CONNECT and read the request sent through it over TLS terminated here, so it is
+     * recorded or replayed like a plain one
+     */
+    private void tunnel(Socket client, String hostAndPort) throws IOException {
+        int colon = hostAndPort.lastIndexOf(':');
+        String host = colon > 0 ? hostAndPort.substring(0, colon) : hostAndPort;
+        int port = colon > 0 ? Integer.parseInt(hostAndPort.substring(colon + 1)) : 443;
+        if (isBlocked(host)) {
+            Logging.debug(log, "Refused tunnel to blocked {}", hostAndPort);
+            writeStatus(client.getOutputStream(), 403, "Blocked");
+            client.close();
+            return;
+        }
+        SSLSocket secure;
+        try {
+            client.getOutputStream().write(("HTTP/1.1 200 Connection Established" + CRLF + CRLF)
+                    .getBytes(StandardCharsets.ISO_8859_1));
+            client.getOutputStream().flush();
+            secure = (SSLSocket) getCertificateAuthority().serverContext(host).getSocketFactory()
+                    .createSocket(client, host, port, true);
+        } catch (GeneralSecurityException ex) {
+            client.close();
+            throw new IOException("Unable to terminate TLS for " + host + " - " + ex.getMessage(), ex);
+        }
+        try {
+            secure.setUseClientMode(false);
+            InputStream in = secure.getInputStream();
+            String requestLine = readLine(in);
+            if (requestLine == null || requestLine.isEmpty()) {
+                return;
+            }
+            String[] parts = requestLine.split(" ");
+            Map<String, String> headers = readHeaders(in);
+            byte[] body = readBody(in, headers);
+            String origin = "https://" + host + (port == 443 ? "" : ":" + port);
+            serve(secure.getOutputStream(), parts[0].toUpperCase(Locale.ROOT), origin + parts[1], headers, body);
+        } finally {
+            closeQuietly(secure);
+        }
+    }
+
+    private boolean isStaticAsset(StoredResponse response) {
+        if (response.status != 200) {
+            return false;
+        }
+        String contentType = null;
+        for (Map.Entry<String, String> header : response.headers.entrySet()) {
+            if ("content-type".equalsIgnoreCase(header.getKey())) {
+                contentType = header.getValue().toLowerCase(Locale.ROOT);
+            }
+        }
+        if (contentType == null) {
+            return false;
+        }
+        for (String type : STATIC_CONTENT_TYPES) {
+            if (contentType.contains(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isStored(String key) {
+        return mappedBodies.containsKey(key) || Files.exists(metaFile(key));
+    }
+
+    private void store(String key, StoredResponse response) {
+        try {
+            Properties meta = new Properties();
+            meta.setProperty("status", String.valueOf(response.status));
+            meta.setProperty("reason", response.reason);
+            int i = 0;
+            for (Map.Entry<String, String> header : response.headers.entrySet()) {
+                meta.setProperty("header." + i + ".name", header.getKey());
+                meta.setProperty("header." + i + ".value", header.getValue());
+                i++;
+            }
+            Path bodyTmp = Files.createTempFile(storeDir, key, ".body.tmp");
+            Files.write(bodyTmp, response.body);
+            Files.move(bodyTmp, bodyFile(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            // the meta file is written last, it marks the entry as complete
+            Path metaTmp = Files.createTempFile(storeDir, key, ".meta.tmp");
+            try (Writer writer = Files.newBufferedWriter(metaTmp, StandardCharsets.UTF_8)) {
+                meta.store(writer, null);
+            }
+            Files.move(metaTmp, metaFile(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            mappedBodies.remove(key);
+        } catch (IOException ex) {
+            log.warn("Unable to record response " + key + " - " + ex.getMessage());
+        }
+    }
+
+    private void replay(OutputStream out, String key, boolean headOnly) throws IOException {
+        Properties meta = new Properties();
+        try (Reader reader = Files.newBufferedReader(metaFile(key), StandardCharsets.UTF_8)) {
+            meta.load(reader);
+        }
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (int i = 0; meta.containsKey("header." + i + ".name"); i++) {
+            headers.put(meta.getProperty("header." + i + ".name"), meta.getProperty("header." + i + ".value"));
+        }
+        write(out, Integer.parseInt(meta.getProperty("status")), meta.getProperty("reason", ""), headers,
+                mappedBody(key), headOnly);
+    }
+
+    private ByteBuffer mappedBody(String key) throws IOException {
+        MappedByteBuffer mapped = mappedBodies.get(key);
+        if (mapped == null) {
+            try (FileChannel channel = FileChannel.open(bodyFile(key), StandardOpenOption.READ)) {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            MappedByteBuffer existing = mappedBodies.putIfAbsent(key, mapped);
+            if (existing != null) {
+                mapped = existing;
+            }
+        }
+        // each reader gets its own position over the shared mapping
+        return mapped.duplicate();
+    }
+
+    private void write(OutputStream out, int status, String reason, Map<String, String> headers, ByteBuffer body,
+                       boolean headOnly) throws IOException {
+        StringBuilder head = new StringBuilder();
+        head.append("HTTP/1.1 ").append(status).append(' ').append(reason).append(CRLF);
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            head.append(header.getKey()).append(": ").append(header.getValue()).append(CRLF);
+        }
+        head.append("Content-Length: ").append(body.remaining()).append(CRLF);
+        head.append("Connection: close").append(CRLF).append(CRLF);
+        out.write(head.toString().getBytes(StandardCharsets.ISO_8859_1));
+        if (!headOnly) {
+            WritableByteChannel channel = Channels.newChannel(out);
+            while (body.hasRemaining()) {
+                channel.write(body);
+            }
+        }
+        out.flush();
+    }
+
+    private void writeStatus(OutputStream out, int status, String reason) throws IOException {
+        write(out, status, reason, new LinkedHashMap<>(), ByteBuffer.allocate(0), false);
+    }
+
+    private Path metaFile(String key) {
+        return storeDir.resolve(key + ".meta");
+    }
+
+    private Path bodyFile(String key) {
+        return storeDir.resolve(key + ".body");
+    }
+
+    private static String key(String method, String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest((method + " " + url).getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\n') {
+                break;
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        if (b == -1 && line.size() == 0) {
+            return null;
+        }
+        return new String(line.toByteArray(), StandardCharsets.ISO_8859_1);
+    }
+
+    private static Map<String, String> readHeaders(InputStream in) throws IOException {
+        Map<String, String> headers = new LinkedHashMap<>();
+        String line;
+        while ((line = readLine(in)) != null && !line.isEmpty()) {
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.put(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+            }
+        }
+        return headers;
+    }
+
+    private static byte[] readBody(InputStream in, Map<String, String> headers) throws IOException {
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if ("content-length".equalsIgnoreCase(header.getKey())) {
+                byte[] body = new byte[Integer.parseInt(header.getValue())];
+                int read = 0;
+                while (read < body.length) {
+                    int n = in.read(body, read, body.length - read);
+                    if (n == -1) {
+                        throw new IOException("Request body ended early");
+                    }
+                    read += n;
+                }
+                return body;
+            }
+        }
+        return new byte[0];
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        try (InputStream stream = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[16 * 1024];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ex) {
+            // already closed
+        }
+    }
+
+    private static class StoredResponse {
+        private int status;
+        private String reason;
+        private final Map<String, String> headers = new LinkedHashMap<>();
+        private byte[] body;
+    }
+}
@@ -1,95 +1,227 @@
 package repl.utils;
 
-import io.github.bonigarcia.wdm.WebDriverManager;
 import org.apache.log4j.Logger;
 import org.openqa.selenium.*;
 import org.openqa.selenium.chrome.ChromeDriver;
 import org.openqa.selenium.chrome.ChromeOptions;
 import org.openqa.selenium.interactions.Actions;
+import org.openqa.selenium.logging.LogType;
+import org.openqa.selenium.logging.LoggingPreferences;
 import org.openqa.selenium.remote.*;
+import org.openqa.selenium.support.ui.ExpectedCondition;
 import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.FluentWait;
 import org.openqa.selenium.support.ui.Select;
-import org.openqa.selenium.support.ui.Wait;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.Callable;
-import java.util.concurrent.TimeUnit;
-
-import static io.github.bonigarcia.wdm.config.DriverManagerType.CHROME;
-import static org.awaitility.Awaitility.await;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Level;
 
 public class SeleniumWebDriverUtils {
-    protected static Logger log = Logging.getLogger(true);
-    private WebDriver driver;
-    private Proxy proxy = new Proxy();
-    private Integer waitTimeOut = 30;
-    private static final String XPATH = "xpath";
-    private static final String ID = "id";
-    private static final String CSS = "css";
-    private static final String NAME = "name";
-    private static final String CLASSNAME = "classname";
-    private static final String LINK_TEXT = "linktext";
-    private static final String PARTIAL_LINK_TEXT = "partiallinktext";
+    protected static final Logger log = Logging.getLogger(true);
+    private final DriverRegistry drivers = new DriverRegistry();
+    private final Proxy proxy = new Proxy();
+    private volatile RecordReplayProxy recordReplayProxy;
+    private volatile WaitPolicy waitPolicy = new WaitPolicy();
+    private volatile SessionPool sessionPool;
+    private volatile BrowserProfile browserProfile = BrowserProfile.fromSystemProperty();
+    private volatile BrowserTiming.Mode browserTimingMode = BrowserTiming.Mode.fromSystemProperty();
+    private volatile ElementCache elementCache = Boolean.getBoolean(ElementCache.CACHE_PROPERTY) ? new ElementCache() : null;
     private static final String NO_ELEMENT_ERROR_TEXT = "Unable to find element ";
     private static final String ELEMENT_INF_TEXT = "Element ";
-    private String sessionUrl = null;
+    private final ThreadLocal<String> sessionUrl = new ThreadLocal<>();
     private boolean isRemoteWebDriver;
-    private SessionId sessionId;
 
     private void setURL(String baseUrl) {
         if (baseUrl != null && !baseUrl.isEmpty()) {
-            sessionUrl = baseUrl;
-            driver.manage().timeouts().implicitlyWait(waitTimeOut, TimeUnit.SECONDS);
-            driver.manage().timeouts().pageLoadTimeout(120, TimeUnit.SECONDS);
-            driver.manage().window().maximize();
-            driver.manage().deleteAllCookies();
-            driver.get(baseUrl);
+            sessionUrl.set(baseUrl);
+            forgetElements();
+            waitPolicy.applyTo(getDriver());
+            if (browserProfile.getViewport() == null) {
+                getDriver().manage().window().maximize();
+            }
+            getDriver().manage().deleteAllCookies();
+            getDriver().get(baseUrl);
         } else {
             throw new WebDriverException("====================NO URL SPECIFIED======================");
         }
     }
 
     /**
-     * Starts the selenium session with a new Google Chrome session
+     * Starts the selenium session with a new Google Chrome session. Each thread gets its own
+     * session, so tests using the same instance can run in parallel.
      */
     public void startDriver(String baseUrl) {
-        try {
-            proxy.setNoProxy("takealot*");
-            driver = new ChromeDriver(setChromeOptions());
+        try (StepMetrics.Step step = StepMetrics.start("startDriver", baseUrl)) {
+            SessionPool pool = sessionPool;
+            drivers.register(pool != null ? pool.acquire() : newChromeDriver());
+            StepMetrics.setTimingSource(this::collectBrowserTiming);
 
             setURL(baseUrl);
-            setSessionId(((RemoteWebDriver) driver).getSessionId());
             log.info("Done selecting Browser");
             log.info("Selenium driver started");
+            step.ok();
         } catch (Exception e) {
             log.error("Something went wrong while starting up selenium driver - " + e.getMessage());
         }
     }
 
     /**
-     * set and get session Id
+     * Use a driver started elsewhere, e.g. a RemoteWebDriver or a stub, for the current thread
+     * instead of launching one. The wait policy's timeouts are applied to it as they are to the
+     * sessions startDriver launches, and its commands are traced if the CommandTracer is on, see
+     * TracingCommandExecutor. shutdown quits it like any other session.
+     */
+    public void attachDriver(WebDriver driver) {
+        if (CommandTracer.isEnabled()) {
+            TracingCommandExecutor.trace(driver);
+        }
+        drivers.register(driver);
+        StepMetrics.setTimingSource(this::collectBrowserTiming);
+        try {
+            waitPolicy.applyTo(driver);
+        } catch (Exception e) {
+            log.error("Unable to apply the wait policy to the attached driver - " + e.getMessage());
+        }
+    }
+
+    /**
+     * Hand out browser sessions from a warm pool instead of launching one per startDriver. Sessions
+     * are reset on shutdown and recycled after maxUses tests.
+     *
+     * @param warmSessions - number of sessions to launch in the background straight away
+     * @param maxUses      - number of tests a session serves before it is replaced
+     * @throws IllegalStateException if a pool is already enabled, shutdownAll first to replace it
+     */
+    public synchronized void enableSessionPool(int warmSessions, int maxUses) {
+        if (sessionPool != null) {
+            // replacing it would leak its warm sessions, shutting it down would quit the sessions tests are using
+            throw new IllegalStateException("A session pool is already enabled, call shutdownAll before enabling another");
+        }
+        SessionPool pool = new SessionPool(this::newChromeDriver, maxUses);
+        pool.prewarm(warmSessions);
+        sessionPool = pool;
+        log.info("Session pool enabled with " + warmSessions + " warm sessions and " + maxUses + " uses per session");
+    }
+
+    public SessionPool getSessionPool() {
+        return sessionPool;
+    }
+
+    /**
+     * Route the browser through a local proxy that records responses to, or replays them from,
+     * the store directory. Applies to sessions started after this call.
+     */
+    public synchronized void enableRecordReplayProxy(Path storeDir, RecordReplayProxy.Mode mode) {
+        try {
+            disableRecordReplayProxy();
+            RecordReplayProxy started = new RecordReplayProxy(storeDir, mode);
+            started.start();
+            proxy.setHttpProxy(started.getAddress());
+            proxy.setSslProxy(started.getAddress());
+            // chrome skips the proxy for localhost unless told otherwise, which would miss local fixture sites
+            proxy.setNoProxy("<-loopback>");
+            recordReplayProxy = started;
+        } catch (Exception e) {
+            log.error("Unable to start the record/replay proxy - " + e.getMessage());
+        }
+    }
+
+    /**
+     * Stop the record/replay proxy. Sessions started afterwards connect directly.
+     */
+    public synchronized void disableRecordReplayProxy() {
+        RecordReplayProxy running = recordReplayProxy;
+        if (running != null) {
+            recordReplayProxy = null;
+            running.close();
+            log.info("Record/replay proxy stopped");
+        }
+    }
+
+    /**
+     * Reuse the element a locator resolved to for later actions on it while the page hasn't
+     * changed, see ElementCache
+     */
+    public void enableElementCache() {
+        if (elementCache == null) {
+            elementCache = new ElementCache();
+            log.info("Element cache enabled");
+        }
+    }
+
+    public void disableElementCache() {
+        elementCache = null;
+    }
+
+    /**
+     * @return the element cache or null if it is off
+     */
+    public ElementCache getElementCache() {
+        return elementCache;
+    }
+
+    public BrowserTiming.Mode getBrowserTimingMode() {
+        return browserTimingMode;
+    }
+
+    /**
+     * Choose what the browser reports about each step, see BrowserTiming. Chrome only keeps a
+     * performance log for sessions started after LOG is chosen.
+     */
+    public void setBrowserTimingMode(BrowserTiming.Mode browserTimingMode) {
+        this.browserTimingMode = browserTimingMode;
+    }
+
+    private BrowserTiming collectBrowserTiming() {
+        BrowserTiming.Mode mode = browserTimingMode;
+        return mode == BrowserTiming.Mode.OFF ? null : BrowserTiming.collect(getDriver(), mode);
+    }
+
+    public BrowserProfile getBrowserProfile() {
+        return browserProfile;
+    }
+
+    /**
+     * Choose how browsers are launched, e.g. BrowserProfile.lean(). Applies to sessions started
+     * after this call, including those a session pool launches.
      */
-    private void setSessionId(SessionId sessionId) {
-        this.sessionId = sessionId;
+    public void setBrowserProfile(BrowserProfile browserProfile) {
+        this.browserProfile = browserProfile;
     }
 
+    /**
+     * Get the session Id of the current thread's driver
+     */
     public SessionId getSessionId() {
-        return this.sessionId;
+        WebDriver driver = getDriver();
+        return driver instanceof RemoteWebDriver ? ((RemoteWebDriver) driver).getSessionId() : null;
+    }
+
+    /**
+     * Launch a new chrome session, one that traces its wire commands if the CommandTracer is on
+     */
+    private WebDriver newChromeDriver() {
+        ChromeOptions chromeOptions = setChromeOptions();
+        return CommandTracer.isEnabled() ? new TracingChromeDriver(chromeOptions) : new ChromeDriver(chromeOptions);
     }
 
     /**
      * Configures the variables for the Chromedriver
      */
     private ChromeOptions setChromeOptions() {
-        WebDriverManager.getInstance(CHROME).setup();
+        ChromeDriverResolver.resolve();
         ChromeOptions chromeOptions = new ChromeOptions();
         chromeOptions.setCapability(CapabilityType.OVERLAPPING_CHECK_DISABLED, false);
         chromeOptions.setCapability(CapabilityType.ELEMENT_SCROLL_BEHAVIOR, true);
@@ -105,17 +237,44 @@ public class SeleniumWebDriverUtils {
         chromePrefs.put("download.prompt_for_download", false);
         chromePrefs.put("download.directory_upgrade", true);
         chromePrefs.put("safebrowsing.enabled", false);
+        browserProfile.applyTo(chromeOptions, chromePrefs);
+        if (browserTimingMode == BrowserTiming.Mode.LOG) {
+            LoggingPreferences loggingPreferences = new LoggingPreferences();
+            loggingPreferences.enable(LogType.PERFORMANCE, Level.ALL);
+            // chromedriver only reads the vendor prefixed capability in w3c mode
+            chromeOptions.setCapability("goog:loggingPrefs", loggingPreferences);
+        }
+        RecordReplayProxy replayProxy = recordReplayProxy;
+        if (replayProxy != null) {
+            // chrome resolves hosts through the proxy, which bypasses the profile's host resolver rules
+            replayProxy.setBlockedHosts(browserProfile.getBlockedHosts());
+            // the proxy presents its own certificates for HTTPS hosts so it can record them
+            chromeOptions.addArguments("--ignore-certificate-errors");
+            chromeOptions.setProxy(proxy);
+        }
         chromeOptions.setExperimentalOption("prefs", chromePrefs);
 
         return chromeOptions;
     }
 
     /**
-     * Logs the user out and shutdown the selenium session
+     * Logs the user out and shutdown the current thread's selenium session
      */
     public void shutdown() {
         try {
-            driver.quit();
+            WebDriver driver = drivers.release();
+            sessionUrl.remove();
+            forgetElements();
+            StepMetrics.setTimingSource(null);
+            SessionPool pool = sessionPool;
+            if (driver != null && pool != null) {
+                pool.release(driver);
+                log.info("Driver returned to session pool");
+                return;
+            }
+            if (driver != null) {
+                driver.quit();
+            }
             log.info("Driver shutting down");
         } catch (Exception ex) {
             log.error("Error found while shutting down driver - " + ex.getMessage());
@@ -153,735 +312,747 @@ public class SeleniumWebDriverUtils {
     }
 
     public boolean waitForElementClickable(String element, String locatorType) {
-        boolean isClickable;
-        try {
-            Wait<WebDriver> wait = new FluentWait<>(driver).withTimeout(Duration.ofSeconds(waitTimeOut))
-                    .pollingEvery(Duration.ofMillis(600)).ignoring(NoSuchElementException.class);
-
-            switch (locatorType.toLowerCase()) {
-                case XPATH:
-                    wait.until(ExpectedConditions.elementToBeClickable(By.xpath(element)));
-                    break;
-
-                case ID:
-                    wait.until(ExpectedConditions.elementToBeClickable(By.id(element)));
-                    break;
-
-                case LINK_TEXT:
-                    wait.until(ExpectedConditions.elementToBeClickable(By.linkText(element)));
-                    break;
-
-                case CSS:
-                    wait.until(ExpectedConditions.elementToBeClickable(By.cssSelector(element)));
-                    break;
-
-                case CLASSNAME:
-                    wait.until(ExpectedConditions.elementToBeClickable(By.className(element)));
-                    break;
-
-                case NAME:
-                    wait.until(ExpectedConditions.elementToBeClickable(By.name(element)));
-                    break;
-
-                case PARTIAL_LINK_TEXT:
-                    wait.until(ExpectedConditions.elementToBeClickable(By.partialLinkText(element)));
-                    break;
+        Locator locator = toLocator(element, locatorType);
+        return locator != null && waitForElementClickable(locator);
+    }
 
-                default:
-                    logNoPropertyError();
-            }
+    public boolean waitForElementClickable(Locator locator) {
+        boolean isClickable;
+        try (StepMetrics.Step step = StepMetrics.check("waitForElementClickable", locator)) {
+            waitFor(WaitPolicy.Budget.CLICKABLE, locator, ExpectedConditions.elementToBeClickable(locator.by()));
             isClickable = true;
+            step.ok();
         } catch (Exception ex) {
-            log.error("Unable to click element " + element + " - " + ex.getMessage());
+            log.error("Unable to click element " + locator + " - " + ex.getMessage());
             isClickable = false;
         }
         return isClickable;
     }
 
     public boolean waitForVisibilityOfElement(String element, String locatorType) {
+        Locator locator = toLocator(element, locatorType);
+        return locator != null && waitForVisibilityOfElement(locator);
+    }
+
+    public boolean waitForVisibilityOfElement(Locator locator) {
         boolean isVisible;
-        try {
-            Wait<WebDriver> wait = new FluentWait<>(driver).withTimeout(Duration.ofSeconds(waitTimeOut))
-                    .pollingEvery(Duration.ofMillis(600)).ignoring(NoSuchElementException.class);
-            switch (locatorType.toLowerCase()) {
-                case XPATH:
-                    wait.until(ExpectedConditions.visibilityOfElementLocated(By.xpath(element)));
-                    break;
-
-                case ID:
-                    wait.until(ExpectedConditions.visibilityOfElementLocated(By.id(element)));
-                    break;
-
-                case LINK_TEXT:
-                    wait.until(ExpectedConditions.visibilityOfElementLocated(By.linkText(element)));
-                    break;
-
-                case CSS:
-                    wait.until(ExpectedConditions.visibilityOfElementLocated(By.cssSelector(element)));
-                    break;
-
-                case CLASSNAME:
-                    wait.until(ExpectedConditions.visibilityOfElementLocated(By.className(element)));
-                    break;
-
-                case NAME:
-                    wait.until(ExpectedConditions.visibilityOfElementLocated(By.name(element)));
-                    break;
-
-                case PARTIAL_LINK_TEXT:
-                    wait.until(ExpectedConditions.visibilityOfElementLocated(By.partialLinkText(element)));
-                    break;
-
-                default:
-                    logNoPropertyError();
-            }
+        try (StepMetrics.Step step = StepMetrics.check("waitForVisibilityOfElement", locator)) {
+            waitFor(WaitPolicy.Budget.VISIBLE, locator, ExpectedConditions.visibilityOfElementLocated(locator.by()));
             isVisible = true;
+            step.ok();
         } catch (Exception ex) {
-            log.error(NO_ELEMENT_ERROR_TEXT + element + " - " + ex.getMessage());
+            log.error(NO_ELEMENT_ERROR_TEXT + locator + " - " + ex.getMessage());
             isVisible = false;
         }
         return isVisible;
     }
 
     public boolean isElementPresent(String element, String locatorType) {
+        Locator locator = toLocator(element, locatorType);
+        return locator != null && isElementPresent(locator);
+    }
+
+    public boolean isElementPresent(Locator locator) {
         boolean isPresent;
-        try {
-            Wait<WebDriver> wait = new FluentWait<>(driver).withTimeout(Duration.ofSeconds(waitTimeOut))
-                    .pollingEvery(Duration.ofMillis(600)).ignoring(NoSuchElementException.class);
-            switch (locatorType.toLowerCase()) {
-                case XPATH:
-                    wait.until(ExpectedConditions.presenceOfElementLocated(By.xpath(element)));
-                    break;
-
-                case ID:
-                    wait.until(ExpectedConditions.presenceOfElementLocated(By.id(element)));
-                    break;
-
-                case LINK_TEXT:
-                    wait.until(ExpectedConditions.presenceOfElementLocated(By.linkText(element)));
-                    break;
-
-                case CSS:
-                    wait.until(ExpectedConditions.presenceOfElementLocated(By.cssSelector(element)));
-                    break;
-
-                case CLASSNAME:
-                    wait.until(ExpectedConditions.presenceOfElementLocated(By.className(element)));
-                    break;
-
-                case NAME:
-                    wait.until(ExpectedConditions.presenceOfElementLocated(By.name(element)));
-                    break;
-
-                case PARTIAL_LINK_TEXT:
-                    wait.until(ExpectedConditions.presenceOfElementLocated(By.partialLinkText(element)));
-                    break;
-
-                default:
-                    logNoPropertyError();
-            }
+        try (StepMetrics.Step step = StepMetrics.check("isElementPresent", locator)) {
+            waitFor(WaitPolicy.Budget.PRESENT, locator, ExpectedConditions.presenceOfElementLocated(locator.by()));
             isPresent = true;
+            step.ok();
         } catch (Exception ex) {
-            log.error(NO_ELEMENT_ERROR_TEXT + element + " - " + ex.getMessage());
+            log.error(NO_ELEMENT_ERROR_TEXT + locator + " - " + ex.getMessage());
             isPresent = false;
         }
         return isPresent;
     }
 
     public void uploadFile(String element, String locatorType, String path) {
-        try {
-            WebElement webElement = findWebElement(element, locatorType);
+        Locator locator = toLocator(element, locatorType);
+        if (locator != null) {
+            uploadFile(locator, path);
+        }
+    }
+
+    public void uploadFile(Locator locator, String path) {
+        try (StepMetrics.Step step = StepMetrics.start("uploadFile", locator)) {
+            WebElement webElement = findWebElement(locator);
 
             if (isRemoteWebDriver) {
                 ((RemoteWebElement) webElement).setFileDetector(new LocalFileDetector());
             }
             webElement.sendKeys(path);
             log.info("File uploaded successfully");
+            step.ok();
 
         } catch (Exception ex) {
-            log.error("Unable to upload file " + element + " - " + ex.getMessage());
+            log.error("Unable to upload file " + locator + " - " + ex.getMessage());
         }
     }
 
     public void uploadFileOld(String element, String locatorType, String path) {
-        try {
-            WebElement webElement = findWebElement(element, locatorType);
-            switch (locatorType.toLowerCase()) {
-                case XPATH:
-                    driver.findElement(By.xpath(element)).sendKeys(path);
-                    break;
-
-                case ID:
-                    driver.findElement(By.id(element)).sendKeys(path);
-                    break;
-
-                case LINK_TEXT:
-                    driver.findElement(By.linkText(element)).sendKeys(path);
-                    break;
-
-                case CSS:
-                    driver.findElement(By.cssSelector(element)).sendKeys(path);
-                    break;
-
-                case CLASSNAME:
-                    driver.findElement(By.className(element)).sendKeys(path);
-                    break;
-
-                case NAME:
-                    driver.findElement(By.name(element)).sendKeys(path);
-                    break;
-
-                case PARTIAL_LINK_TEXT:
-                    driver.findElement(By.partialLinkText(element)).sendKeys(path);
-                    break;
-
-                default:
-                    logNoPropertyError();
-                    if (isRemoteWebDriver) {
-                        ((RemoteWebElement) webElement).setFileDetector(new LocalFileDetector());
-                    }
-                    webElement.sendKeys(path);
-                    log.info("File uploaded successfully");
-            }
+        Locator locator = toLocator(element, locatorType);
+        if (locator != null) {
+            uploadFileOld(locator, path);
+        }
+    }
+
+    public void uploadFileOld(Locator locator, String path) {
+        try (StepMetrics.Step step = StepMetrics.start("uploadFileOld", locator)) {
+            findWebElement(locator).sendKeys(path);
+            step.ok();
         } catch (Exception ex) {
-            log.error("Unable to upload file " + element + " - " + ex.getMessage());
+            log.error("Unable to upload file " + locator + " - " + ex.getMessage());
         }
     }
 
     public void enterText(String element, String locatorType, String text) {
-        Actions actions = new Actions(driver);
-        try {
-            if (waitForElementClickable(element, locatorType)) {
-                clearField(element, locatorType);
-                switch (locatorType.toLowerCase()) {
-                    case XPATH:
-                        actions.doubleClick(driver.findElement(By.xpath(element))).build().perform();
-                        driver.findElement(By.xpath(element)).sendKeys(text);
-                        break;
-
-                    case ID:
-                        actions.doubleClick(driver.findElement(By.id(element))).build().perform();
-                        driver.findElement(By.id(element)).sendKeys(text);
-                        break;
-
-                    case LINK_TEXT:
-                        actions.doubleClick(driver.findElement(By.linkText(element))).build().perform();
-                        driver.findElement(By.linkText(element)).sendKeys(text);
-                        break;
-
-                    case CSS:
-                        actions.doubleClick(driver.findElement(By.cssSelector(element))).build().perform();
-                        driver.findElement(By.cssSelector(element)).sendKeys(text);
-                        break;
-
-                    case CLASSNAME:
-                        actions.doubleClick(driver.findElement(By.className(element))).build().perform();
-                        driver.findElement(By.className(element)).sendKeys(text);
-                        break;
-
-                    case NAME:
-                        actions.doubleClick(driver.findElement(By.name(element))).build().perform();
-                        driver.findElement(By.name(element)).sendKeys(text);
-                        break;
-
-                    case PARTIAL_LINK_TEXT:
-                        actions.doubleClick(driver.findElement(By.partialLinkText(element))).build().perform();
-                        driver.findElement(By.partialLinkText(element)).sendKeys(text);
-                        break;
-
-                    default:
-                        logNoPropertyError();
-                }
-            }
-            enterSuccessLog(element, text);
+        Locator locator = toLocator(element, locatorType);
+        if (locator != null) {
+            enterText(locator, text);
+        }
+    }
+
+    public void enterText(Locator locator, String text) {
+        try (StepMetrics.Step step = StepMetrics.start("enterText", locator)) {
+            actOnClickable(locator, webElement -> {
+                webElement.clear();
+                new Actions(getDriver()).doubleClick(webElement).build().perform();
+                webElement.sendKeys(text);
+            });
+            enterSuccessLog(locator.getValue(), text);
+            step.ok();
         } catch (Exception ex) {
-            log.error("Unable to select and enter text " + element + " - " + ex.getMessage());
+            log.error("Unable to select and enter text " + locator + " - " + ex.getMessage());
         }
     }
 
     public void keysTab(String element, String locatorType) {
-        if (waitForElementClickable(element, locatorType)) {
-            switch (locatorType.toLowerCase()) {
-                case XPATH:
-                    driver.findElement(By.xpath(element)).sendKeys(Keys.TAB);
-                    break;
-
-                case ID:
-                    driver.findElement(By.id(element)).sendKeys(Keys.TAB);
-                    break;
-
-                case LINK_TEXT:
-                    driver.findElement(By.linkText(element)).sendKeys(Keys.TAB);
-                    break;
-
-                case CSS:
-                    driver.findElement(By.cssSelector(element)).sendKeys(Keys.TAB);
-                    break;
-
-                case CLASSNAME:
-                    driver.findElement(By.className(element)).sendKeys(Keys.TAB);
-                    break;
-
-                case NAME:
-                    driver.findElement(By.name(element)).sendKeys(Keys.TAB);
-                    break;
-
-                case PARTIAL_LINK_TEXT:
-                    driver.findElement(By.partialLinkText(element)).sendKeys(Keys.TAB);
-                    break;
-
-                default:
-                    logNoPropertyError();
-            }
+        Locator locator = toLocator(element, locatorType);
+        if (locator != null) {
+            keysTab(locator);
+        }
+    }
+
+    public void keysTab(Locator locator) {
+        try (StepMetrics.Step step = StepMetrics.start("keysTab", locator)) {
+            actOnClickable(locator, webElement -> webElement.sendKeys(Keys.TAB));
+            step.ok();
+        } catch (Exception ex) {
+            log.error(NO_ELEMENT_ERROR_TEXT + locator + " - " + ex.getMessage());
         }
     }
 
     public void clearField(String element, String locatorType) {
-        try {
-            if (waitForElementClickable(element, locatorType)) {
-                switch (locatorType.toLowerCase()) {
-                    case XPATH:
-                        driver.findElement(By.xpath(element)).clear();
-                        break;
-
-                    case ID:
-                        driver.findElement(By.id(element)).clear();
-                        break;
-
-                    case LINK_TEXT:
-                        driver.findElement(By.linkText(element)).clear();
-                        break;
-
-                    case CSS:
-                        driver.findElement(By.cssSelector(element)).clear();
-                        break;
-
-                    case CLASSNAME:
-                        driver.findElement(By.className(element)).clear();
-                        break;
-
-                    case NAME:
-                        driver.findElement(By.name(element)).clear();
-                        break;
-
-                    case PARTIAL_LINK_TEXT:
-                        driver.findElement(By.partialLinkText(element)).clear();
-                        break;
-
-                    default:
-                        logNoPropertyError();
-                }
-            }
+        Locator locator = toLocator(element, locatorType);
+        if (locator != null) {
+            clearField(locator);
+        }
+    }
+
+    public void clearField(Locator locator) {
+        try (StepMetrics.Step step = StepMetrics.start("clearField", locator)) {
+            actOnClickable(locator, WebElement::clear);
+            step.ok();
         } catch (Exception ex) {
-            log.error(NO_ELEMENT_ERROR_TEXT + element + " - " + ex.getMessage());
+            log.error(NO_ELEMENT_ERROR_TEXT + locator + " - " + ex.getMessage());
         }
     }
 
     public WebElement findElement(String element, String locatorType) {
+        Locator locator = toLocator(element, locatorType);
+        return locator == null ? null : findElement(locator);
+    }
+
+    public WebElement findElement(Locator locator) {
         WebElement webElement = null;
-        try {
-            if (waitForVisibilityOfElement(element, locatorType)) {
-                return getElemByLocatorType(element, locatorType);
-            }
+        try (StepMetrics.Step step = StepMetrics.start("findElement", locator)) {
+            webElement = resolve(WaitPolicy.Budget.VISIBLE, locator, ExpectedConditions.visibilityOfElementLocated(locator.by()));
+            step.ok();
         } catch (Exception ex) {
-            log.error(NO_ELEMENT_ERROR_TEXT + element + " - " + ex.getMessage());
+            log.error(NO_ELEMENT_ERROR_TEXT + locator + " - " + ex.getMessage());
         }
         return webElement;
     }
 
     // this method does the same thing as findElement except that it does not look for the visibility of an element before returning it
     public WebElement findWebElement(String element, String locatorType) {
-        return getElemByLocatorType(element, locatorType);
+        Locator locator = toLocator(element, locatorType);
+        return locator == null ? null : findWebElement(locator);
     }
 
-    private WebElement getElemByLocatorType(String element, String locatorType) {
-        switch (locatorType.toLowerCase()) {
-            case XPATH:
-                return driver.findElement(By.xpath(element));
+    /**
+     * @throws NoSuchElementException if the element isn't present within the present budget, with
+     *                                the wait's TimeoutException as the cause
+     */
+    public WebElement findWebElement(Locator locator) {
+        try (StepMetrics.Step step = StepMetrics.start("findWebElement", locator)) {
+            WebElement webElement = resolve(WaitPolicy.Budget.PRESENT, locator, ExpectedConditions.presenceOfElementLocated(locator.by()));
+            step.ok();
+            return webElement;
+        } catch (TimeoutException ex) {
+            throw new NoSuchElementException(NO_ELEMENT_ERROR_TEXT + locator, ex);
+        }
+    }
 
-            case ID:
-                return driver.findElement(By.id(element));
+    public void clickElement(String element, String locatorType) {
+        Locator locator = toLocator(element, locatorType);
+        if (locator != null) {
+            clickElement(locator);
+        }
+    }
 
-            case LINK_TEXT:
-                return driver.findElement(By.linkText(element));
+    public void clickElement(Locator locator) {
+        try (StepMetrics.Step step = StepMetrics.start("clickElement", locator)) {
+            actOnClickable(locator, WebElement::click);
+            clickSuccessLog(locator);
+            step.ok();
+        } catch (Exception ex) {
+            log.error(NO_ELEMENT_ERROR_TEXT + locator + " - " + ex.getMessage());
+        }
+    }
 
-            case CSS:
-                return driver.findElement(By.cssSelector(element));
+    public void clickElementJavaScript(String element, String locatorType) {
+        Locator locator = toLocator(element, locatorType);
+        if (locator != null) {
+            clickElementJavaScript(locator);
+        }
+    }
 
-            case CLASSNAME:
-                return driver.findElement(By.className(element));
+    public void clickElementJavaScript(Locator locator) {
+        try (StepMetrics.Step step = StepMetrics.start("clickElementJavaScript", locator)) {
+            String jsClick = "arguments[0].click()";
+            JavascriptExecutor executor = (JavascriptExecutor) getDriver();
+            actOnClickable(locator, webElement -> executor.executeScript(jsClick, webElement));
+            clickSuccessLog(locator);
+            step.ok();
+        } catch (Exception ex) {
+            log.error(NO_ELEMENT_ERROR_TEXT + locator + " - " + ex.getMessage());
+        }
+    }
 
-            case NAME:
-                return driver.findElement(By.name(element));
+    protected boolean isElementDisplayed(String elementLocator, String locatorType) {
+        Locator locator = toLocator(elementLocator, locatorType);
+        return locator != null && isElementDisplayed(locator);
+    }
 
-            case PARTIAL_LINK_TEXT:
-                return driver.findElement(By.partialLinkText(element));
-            default:
-                logNoPropertyError();
-                return null;
+    /**
+     * Wait for the element to be displayed, returning the moment it is, within the visible budget
+     */
+    protected boolean isElementDisplayed(Locator locator) {
+        return awaitElement(locator, ElementState.VISIBLE);
+    }
+
+    /**
+     * Wait for an element, e.g. a spinner or modal, to stop being displayed or leave the DOM
+     */
+    public boolean waitUntilGone(String element, String locatorType) {
+        Locator locator = toLocator(element, locatorType);
+        return locator != null && waitUntilGone(locator);
+    }
+
+    public boolean waitUntilGone(Locator locator) {
+        return awaitElement(locator, ElementState.HIDDEN);
+    }
+
+    /**
+     * Wait for the element to reach the state within the state's wait policy budget, see
+     * awaitElement(Locator, ElementState, Duration)
+     */
+    public boolean awaitElement(Locator locator, ElementState state) {
+        return awaitElement(locator, state, waitPolicy.getTimeout(state.getBudget()));
+    }
+
+    /**
+     * Wait for the element to reach the state. The wait runs in the page and is woken by DOM
+     * mutations and finished transitions and animations, so it returns the moment the state is
+     * reached instead of on the next poll and costs one script call. If the page navigates away
+     * during the wait it carries on as a polling wait.
+     *
+     * @return true if the state was reached before the timeout
+     */
+    public boolean awaitElement(Locator locator, ElementState state, Duration timeout) {
+        return awaitState(locator, state, timeout) != null;
+    }
+
+    /**
+     * Wait for the element to be present or visible within the state's wait policy budget, see
+     * awaitWebElement(Locator, ElementState, Duration)
+     */
+    public WebElement awaitWebElement(Locator locator, ElementState state) {
+        return awaitWebElement(locator, state, waitPolicy.getTimeout(state.getBudget()));
+    }
+
+    /**
+     * Wait for the element to be present or visible like awaitElement and hand back the element
+     * the wait found, so acting on it takes no further lookup
+     *
+     * @return the element or null if the state wasn't reached before the timeout
+     */
+    public WebElement awaitWebElement(Locator locator, ElementState state, Duration timeout) {
+        if (state != ElementState.PRESENT && state != ElementState.VISIBLE) {
+            throw new IllegalArgumentException("Only present or visible elements can be returned, not " + state);
         }
+        Object reached = awaitState(locator, state, timeout);
+        return reached instanceof WebElement ? (WebElement) reached : null;
     }
 
-    public void clickElement(String element, String locatorType) {
-        try {
-            if (waitForElementClickable(element, locatorType) &&
-                    clickByByLocatorType(element, locatorType)) {
-                clickSuccessLog(element, locatorType);
+    /**
+     * @return the element in the state, TRUE if the state has no element, e.g. hidden, or null if
+     * the state wasn't reached in time
+     */
+    private Object awaitState(Locator locator, ElementState state, Duration timeout) {
+        long start = System.nanoTime();
+        timeout = CascadeBreaker.cap(timeout);
+        try (StepMetrics.Step step = StepMetrics.check("awaitElement", locator.getKey() + " " + state.getKey())) {
+            Object reached = null;
+            try {
+                Map<?, ?> result = (Map<?, ?>) ((JavascriptExecutor) getDriver()).executeAsyncScript(PageScripts.AWAIT_ELEMENT,
+                        locator.getType().getKey(), locator.getValue(), state.getKey(), timeout.toMillis());
+                StepMetrics.recordWait(System.nanoTime() - start, 1);
+                if (Boolean.TRUE.equals(result.get("met"))) {
+                    reached = result.get("element") instanceof WebElement ? result.get("element") : Boolean.TRUE;
+                }
+                if (result.get("error") != null) {
+                    log.error("Unable to wait for element " + locator + " to be " + state.getKey() + " - " + result.get("error"));
+                }
+            } catch (ScriptTimeoutException ex) {
+                reached = null;
+            } catch (WebDriverException ex) {
+                Logging.info(log, "In page wait for {} was interrupted, polling instead - {}", locator, ex.getMessage());
+                reached = awaitElementByPolling(locator, state, remaining(timeout, start));
             }
+            if (reached != null) {
+                step.ok();
+                Logging.info(log, ELEMENT_INF_TEXT + "{} is {}", locator, state.getKey());
+            } else {
+                Logging.warn(log, ELEMENT_INF_TEXT + "{} was not {} after {} ms", locator, state.getKey(), timeout.toMillis());
+            }
+            return reached;
         } catch (Exception ex) {
-            log.error(NO_ELEMENT_ERROR_TEXT + element + " - " + ex.getMessage());
+            log.error("Could not wait for element " + locator + " to be " + state.getKey() + " - " + ex.getMessage());
         }
+        return null;
     }
 
-    public void clickElementJavaScript(String element, String locatorType) {
-        try {
-            String jsClick = "arguments[0].click()";
-            if (waitForElementClickable(element, locatorType)) {
-                JavascriptExecutor executor = (JavascriptExecutor) driver;
-                switch (locatorType.toLowerCase()) {
-                    case XPATH:
-                        executor.executeScript(jsClick, driver.findElement(By.xpath(element)));
-                        break;
-
-                    case ID:
-                        executor.executeScript(jsClick, driver.findElement(By.id(element)));
-                        break;
-
-                    case LINK_TEXT:
-                        executor.executeScript(jsClick, driver.findElement(By.linkText(element)));
-                        break;
-
-                    case CSS:
-                        executor.executeScript(jsClick, driver.findElement(By.cssSelector(element)));
-                        break;
-
-                    case CLASSNAME:
-                        executor.executeScript(jsClick, driver.findElement(By.className(element)));
-                        break;
-
-                    case NAME:
-                        executor.executeScript(jsClick, driver.findElement(By.name(element)));
-                        break;
-                    case PARTIAL_LINK_TEXT:
-                        executor.executeScript(jsClick, driver.findElement(By.partialLinkText(element)));
-                        break;
-                    default:
-                        logNoPropertyError();
+    /**
+     * Find which of the chain's alternatives is in the state, present or visible, within the
+     * state's wait policy budget. Every alternative is tried in one script call per check, the
+     * last winner first, so a broken primary locator doesn't cost a timeout. The winner is
+     * remembered for the next lookup of the chain.
+     *
+     * @return the winning alternative or null if none reached the state in time
+     */
+    public Locator resolveLocator(LocatorChain chain, ElementState state) {
+        return resolveLocator(chain, state, false);
+    }
+
+    private Locator resolveLocator(LocatorChain chain, ElementState state, boolean check) {
+        if (state != ElementState.PRESENT && state != ElementState.VISIBLE) {
+            throw new IllegalArgumentException("Locator chains can only wait for present or visible elements, not " + state);
+        }
+        List<Locator> alternatives = chain.ordered();
+        Duration timeout = CascadeBreaker.cap(waitPolicy.getTimeout(state.getBudget()));
+        String target = chain.getName() + " " + state.getKey();
+        long start = System.nanoTime();
+        try (StepMetrics.Step step = check ? StepMetrics.check("resolveLocator", target) : StepMetrics.start("resolveLocator", target)) {
+            int index;
+            try {
+                List<List<String>> requests = new ArrayList<>(alternatives.size());
+                for (Locator alternative : alternatives) {
+                    requests.add(Arrays.asList(alternative.getType().getKey(), alternative.getValue()));
+                }
+                Map<?, ?> result = (Map<?, ?>) ((JavascriptExecutor) getDriver()).executeAsyncScript(PageScripts.AWAIT_FIRST,
+                        requests, state.getKey(), timeout.toMillis());
+                StepMetrics.recordWait(System.nanoTime() - start, 1);
+                Object errors = result.get("errors");
+                if (errors instanceof Map && !((Map<?, ?>) errors).isEmpty()) {
+                    Logging.warn(log, "Locator chain {} has alternatives that can't be evaluated - {}", chain, errors);
                 }
+                index = Boolean.TRUE.equals(result.get("met")) ? ((Number) result.get("index")).intValue() : -1;
+            } catch (ScriptTimeoutException ex) {
+                index = -1;
+            } catch (WebDriverException ex) {
+                Logging.info(log, "In page lookup of {} was interrupted, polling instead - {}", chain, ex.getMessage());
+                index = resolveLocatorByPolling(alternatives, state, remaining(timeout, start));
+            }
+            if (index < 0) {
+                log.error("None of the locators of " + chain + " were " + state.getKey() + " after " + timeout.toMillis() + " ms");
+                return null;
             }
-            clickSuccessLog(element, locatorType);
+            Locator winner = alternatives.get(index);
+            chain.recordWinner(winner);
+            step.ok();
+            Logging.info(log, "Locator chain {} resolved to {}", chain, winner.getKey());
+            return winner;
         } catch (Exception ex) {
-            log.error(NO_ELEMENT_ERROR_TEXT + element + " - " + ex.getMessage());
+            log.error("Could not resolve locator chain " + chain + " - " + ex.getMessage());
         }
+        return null;
     }
 
-    protected boolean isElementDisplayed(String elementLocator, String locatorType) {
+    private int resolveLocatorByPolling(List<Locator> alternatives, ElementState state, Duration timeout) {
         try {
-            WebElement element = findWebElement(elementLocator, locatorType);
-
-            while (!element.isDisplayed()) {
-                if (element.isDisplayed()) {
-                    return true;
-                } else {
-                    pause(3000);
-                    log.info("Element - " + elementLocator + " is not yet visible");
+            return waitPolicy.until(getDriver(), timeout, null, driver -> {
+                for (int i = 0; i < alternatives.size(); i++) {
+                    List<WebElement> found = driver.findElements(alternatives.get(i).by());
+                    if (!found.isEmpty() && (state == ElementState.PRESENT || found.get(0).isDisplayed())) {
+                        return i;
+                    }
                 }
-            }
-        } catch (Exception e) {
-            log.error("Could not determine element visibility - " + e.getMessage());
+                return null;
+            });
+        } catch (TimeoutException ex) {
+            return -1;
         }
-        return false;
     }
 
-    public boolean isElementPresentInDOM(String element, String locatorType) {
-        boolean isElementPresent = false;
-        try {
-            switch (locatorType.toLowerCase()) {
-                case XPATH:
-                    isElementPresent = !driver.findElements(By.xpath(element)).isEmpty();
-                    break;
+    public void clickElement(LocatorChain chain) {
+        Locator winner = resolveLocator(chain, ElementState.VISIBLE);
+        if (winner != null) {
+            clickElement(winner);
+        }
+    }
 
-                case ID:
-                    isElementPresent = !driver.findElements(By.id(element)).isEmpty();
-                    break;
+    public void enterText(LocatorChain chain, String text) {
+        Locator winner = resolveLocator(chain, ElementState.VISIBLE);
+        if (winner != null) {
+            enterText(winner, text);
+        }
+    }
+
+    public String getText(LocatorChain chain) {
+        Locator winner = resolveLocator(chain, ElementState.VISIBLE);
+        return winner == null ? null : getText(winner);
+    }
 
-                case LINK_TEXT:
-                    isElementPresent = !driver.findElements(By.linkText(element)).isEmpty();
-                    break;
+    public String getElementAttribute(LocatorChain chain, String attribute) {
+        Locator winner = resolveLocator(chain, ElementState.PRESENT);
+        return winner == null ? null : getElementAttribute(winner, attribute);
+    }
 
-                case CSS:
-                    isElementPresent = !driver.findElements(By.cssSelector(element)).isEmpty();
-                    break;
+    public boolean isElementPresent(LocatorChain chain) {
+        return resolveLocator(chain, ElementState.PRESENT, true) != null;
+    }
 
-                case CLASSNAME:
-                    isElementPresent = !driver.findElements(By.className(element)).isEmpty();
-                    break;
+    /**
+     * @return the element for present and visible, TRUE for the other states, or null on the timeout
+     */
+    private Object awaitElementByPolling(Locator locator, ElementState state, Duration timeout) {
+        try {
+            Object reached = waitPolicy.until(getDriver(), timeout, null, state.pollingCondition(locator.by()));
+            return reached instanceof WebElement ? reached : Boolean.TRUE;
+        } catch (TimeoutException ex) {
+            return null;
+        }
+    }
 
-                case NAME:
-                    isElementPresent = !driver.findElements(By.name(element)).isEmpty();
-                    break;
+    /**
+     * What is left of the timeout of a wait that started at the given System.nanoTime
+     */
+    private static Duration remaining(Duration timeout, long startNanos) {
+        Duration left = timeout.minusNanos(System.nanoTime() - startNanos);
+        return left.isNegative() ? Duration.ZERO : left;
+    }
 
-                case PARTIAL_LINK_TEXT:
-                    isElementPresent = !driver.findElements(By.partialLinkText(element)).isEmpty();
-                    break;
+    public boolean isElementPresentInDOM(String element, String locatorType) {
+        Locator locator = toLocator(element, locatorType);
+        return locator != null && isElementPresentInDOM(locator);
+    }
 
-                default:
-                    logNoPropertyError();
-            }
+    public boolean isElementPresentInDOM(Locator locator) {
+        boolean isElementPresent;
+        try (StepMetrics.Step step = StepMetrics.check("isElementPresentInDOM", locator)) {
+            isElementPresent = !getDriver().findElements(locator.by()).isEmpty();
+            step.ok();
             if (isElementPresent) {
-                successIsElementsPresentInDOMLog(element);
+                successIsElementsPresentInDOMLog(locator.getValue());
             } else {
-                log.warn("Could not locate " + element + " in DOM");
+                Logging.warn(log, "Could not locate {} in DOM", locator);
             }
         } catch (Exception ex) {
-            log.error("Something went wrong while looking for element " + element + " - " + ex.getMessage());
+            log.error("Something went wrong while looking for element " + locator + " - " + ex.getMessage());
             isElementPresent = false;
         }
         return isElementPresent;
     }
 
+    /**
+     * Check that an element is not in the DOM, allowing it the short absent budget of the wait
+     * policy to go away. Returns as soon as the element is gone.
+     */
+    public boolean isElementAbsent(String element, String locatorType) {
+        Locator locator = toLocator(element, locatorType);
+        return locator != null && isElementAbsent(locator);
+    }
+
+    public boolean isElementAbsent(Locator locator) {
+        try (StepMetrics.Step step = StepMetrics.check("isElementAbsent", locator)) {
+            waitPolicy.until(getDriver(), WaitPolicy.Budget.ABSENT, null, ExpectedConditions.numberOfElementsToBe(locator.by(), 0));
+            step.ok();
+            Logging.info(log, ELEMENT_INF_TEXT + "{} is absent from the DOM", locator);
+            return true;
+        } catch (TimeoutException ex) {
+            Logging.warn(log, ELEMENT_INF_TEXT + "{} is still present in the DOM after {} ms", locator,
+                    waitPolicy.getTimeout(WaitPolicy.Budget.ABSENT).toMillis());
+        } catch (Exception ex) {
+            log.error("Something went wrong while looking for element " + locator + " - " + ex.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Shutdown the selenium sessions of every thread, e.g. from an after suite hook
+     */
+    public synchronized void shutdownAll() {
+        SessionPool pool = sessionPool;
+        if (pool != null) {
+            sessionPool = null;
+            pool.shutdown();
+            drivers.forgetAll();
+        } else {
+            drivers.quitAll();
+        }
+        sessionUrl.remove();
+        forgetElements();
+        StepMetrics.setTimingSource(null);
+        disableRecordReplayProxy();
+        log.info("All drivers shut down");
+    }
+
+    /**
+     * Get the current thread's driver
+     */
     public WebDriver getDriver() {
-        return driver;
+        return drivers.get();
+    }
+
+    public WaitPolicy getWaitPolicy() {
+        return waitPolicy;
+    }
+
+    /**
+     * Replace the wait policy. The driver level timeouts are applied straight away if a session is running.
+     */
+    public void setWaitPolicy(WaitPolicy waitPolicy) {
+        this.waitPolicy = waitPolicy;
+        if (getDriver() != null) {
+            waitPolicy.applyTo(getDriver());
+        }
     }
 
     public String getText(String element, String locatorType) {
+        Locator locator = toLocator(element, locatorType);
+        return locator == null ? null : getText(locator);
+    }
+
+    public String getText(Locator locator) {
         String textInContext = null;
-        try {
-            if (waitForElementClickable(element, locatorType)) {
-                switch (locatorType.toLowerCase()) {
-                    case XPATH:
-                        textInContext = driver.findElement(By.xpath(element)).getText();
-                        break;
-
-                    case ID:
-                        textInContext = driver.findElement(By.id(element)).getText();
-                        break;
-
-                    case LINK_TEXT:
-                        textInContext = driver.findElement(By.linkText(element)).getText();
-                        break;
-
-                    case CSS:
-                        textInContext = driver.findElement(By.cssSelector(element)).getText();
-                        break;
-
-                    case CLASSNAME:
-                        textInContext = driver.findElement(By.className(element)).getText();
-                        break;
-
-                    case NAME:
-                        textInContext = driver.findElement(By.name(element)).getText();
-                        break;
-
-                    case PARTIAL_LINK_TEXT:
-                        textInContext = driver.findElement(By.partialLinkText(element)).getText();
-                        break;
-
-                    default:
-                        logNoPropertyError();
-                }
-            }
-            sucessGetTextLog(element);
+        try (StepMetrics.Step step = StepMetrics.start("getText", locator)) {
+            textInContext = readFromClickable(locator, WebElement::getText);
+            sucessGetTextLog(locator.getValue());
+            step.ok();
         } catch (Exception ex) {
-            log.error("Unable to find attribute " + element + " - " + ex.getMessage());
+            log.error("Unable to find attribute " + locator + " - " + ex.getMessage());
         }
         return textInContext;
     }
 
     public String getSelectedValue(String element, String locatorType) {
-        try {
-            if (waitForElementClickable(element, locatorType)) {
-                switch (locatorType.toLowerCase()) {
-                    case XPATH:
-                        return (new Select(driver.findElement(By.xpath(element)))).getFirstSelectedOption().getText();
-
-                    case ID:
-                        return (new Select(driver.findElement(By.id(element)))).getFirstSelectedOption().getText();
-
-                    case LINK_TEXT:
-                        return (new Select(driver.findElement(By.linkText(element)))).getFirstSelectedOption().getText();
-
-                    case CSS:
-                        return (new Select(driver.findElement(By.cssSelector(element)))).getFirstSelectedOption().getText();
-
-                    case CLASSNAME:
-                        return (new Select(driver.findElement(By.className(element)))).getFirstSelectedOption().getText();
-                    case NAME:
-                        return (new Select(driver.findElement(By.name(element)))).getFirstSelectedOption().getText();
+        Locator locator = toLocator(element, locatorType);
+        return locator == null ? null : getSelectedValue(locator);
+    }
 
-                    case PARTIAL_LINK_TEXT:
-                        return (new Select(driver.findElement(By.partialLinkText(element)))).getFirstSelectedOption().getText();
-                    default:
-                        logNoPropertyError();
-                }
-            }
-            successGetSelectedValueLog(element, locatorType);
+    public String getSelectedValue(Locator locator) {
+        try (StepMetrics.Step step = StepMetrics.start("getSelectedValue", locator)) {
+            String selectedValue = readFromClickable(locator,
+                    webElement -> new Select(webElement).getFirstSelectedOption().getText());
+            successGetSelectedValueLog(locator);
+            step.ok();
+            return selectedValue;
         } catch (Exception ex) {
-            log.error("Unable to find attribute " + element + " - " + ex.getMessage());
+            log.error("Unable to find attribute " + locator + " - " + ex.getMessage());
         }
         return null;
     }
 
     public String getAttributeValue(String element, String locatorType, String attribute) {
+        Locator locator = toLocator(element, locatorType);
+        return locator == null ? null : getAttributeValue(locator, attribute);
+    }
+
+    public String getAttributeValue(Locator locator, String attribute) {
         String attributeValue = null;
-        try {
-            if (waitForElementClickable(element, locatorType)) {
-                attributeValue = resolveElementAttribute(element, locatorType, attribute);
-            }
-            clickSuccessLog(element, locatorType);
+        try (StepMetrics.Step step = StepMetrics.start("getAttributeValue", locator)) {
+            attributeValue = readFromClickable(locator, webElement -> webElement.getAttribute(attribute));
+            clickSuccessLog(locator);
+            step.ok();
         } catch (Exception ex) {
-            log.error(NO_ELEMENT_ERROR_TEXT + element + " - " + ex.getMessage());
+            log.error(NO_ELEMENT_ERROR_TEXT + locator + " - " + ex.getMessage());
         }
         return attributeValue;
     }
 
     // this is added primarily for hidden inputs which the existing getAttributeValue method fails to resolve.
     public String getElementAttribute(String element, String locatorType, String attribute) {
+        Locator locator = toLocator(element, locatorType);
+        return locator == null ? null : getElementAttribute(locator, attribute);
+    }
+
+    public String getElementAttribute(Locator locator, String attribute) {
         String attrValue = null;
-        try {
-            return resolveElementAttribute(element, locatorType, attribute);
+        try (StepMetrics.Step step = StepMetrics.start("getElementAttribute", locator)) {
+            attrValue = findWebElement(locator).getAttribute(attribute);
+            step.ok();
         } catch (Exception ex) {
-            log.error(NO_ELEMENT_ERROR_TEXT + element + "  by attribute " + attribute + "  - " + ex.getMessage());
+            log.error(NO_ELEMENT_ERROR_TEXT + locator + "  by attribute " + attribute + "  - " + ex.getMessage());
         }
         return attrValue;
     }
 
-    private String resolveElementAttribute(String element, String locatorType, String attribute) {
-        switch (locatorType.toLowerCase()) {
-            case XPATH:
-                return driver.findElement(By.xpath(element)).getAttribute(attribute);
-
-            case ID:
-                return driver.findElement(By.id(element)).getAttribute(attribute);
-
-            case LINK_TEXT:
-                return driver.findElement(By.linkText(element)).getAttribute(attribute);
-
-            case CSS:
-                return driver.findElement(By.cssSelector(element)).getAttribute(attribute);
-
-            case CLASSNAME:
-                return driver.findElement(By.className(element)).getAttribute(attribute);
+    /**
+     * Read the text or attributes of many elements with one script call instead of a wait and a
+     * lookup per value. Nothing is waited for, so call it once the page has settled. Elements that
+     * can't be found are reported per key rather than failing the batch.
+     *
+     * @return the result of each read by key, in the order the reads were given
+     */
+    public Map<String, ElementRead.Result> readAll(List<ElementRead> reads) {
+        List<List<String>> requests = new ArrayList<>(reads.size());
+        for (ElementRead read : reads) {
+            Locator locator = read.getLocator();
+            requests.add(Arrays.asList(locator.getType().getKey(), locator.getValue(), read.getAttribute()));
+        }
 
-            case NAME:
-                return driver.findElement(By.name(element)).getAttribute(attribute);
+        Map<String, ElementRead.Result> results = new LinkedHashMap<>();
+        try (StepMetrics.Step step = StepMetrics.start("readAll", reads.size() + " values")) {
+            List<?> values = (List<?>) ((JavascriptExecutor) getDriver()).executeScript(PageScripts.READ_ALL, requests);
+            for (int i = 0; i < reads.size(); i++) {
+                Map<?, ?> value = (Map<?, ?>) values.get(i);
+                Object text = value.get("value");
+                Object error = value.get("error");
+                results.put(reads.get(i).getKey(), new ElementRead.Result(Boolean.TRUE.equals(value.get("found")),
+                        text == null ? null : text.toString(), error == null ? null : error.toString()));
+            }
+            Logging.info(log, "Read {} values in one script call", reads.size());
+            step.ok();
+        } catch (Exception ex) {
+            log.error("Unable to read " + reads.size() + " values - " + ex.getMessage());
+            for (ElementRead read : reads) {
+                results.put(read.getKey(), new ElementRead.Result(false, null, ex.getMessage()));
+            }
+        }
+        return results;
+    }
 
-            case PARTIAL_LINK_TEXT:
-                return driver.findElement(By.partialLinkText(element)).getAttribute(attribute);
+    /**
+     * Look up many elements with one script call, used by PageObject to prefetch its elements.
+     * Nothing is waited for, elements that aren't on the page are returned as null.
+     *
+     * @return the element of each locator in the order given, or null for each if the lookup failed
+     */
+    public List<WebElement> resolveAll(List<Locator> locators) {
+        List<List<String>> requests = new ArrayList<>(locators.size());
+        for (Locator locator : locators) {
+            requests.add(Arrays.asList(locator.getType().getKey(), locator.getValue()));
+        }
 
-            default:
-                logNoPropertyError();
+        List<WebElement> elements = new ArrayList<>(locators.size());
+        try (StepMetrics.Step step = StepMetrics.start("resolveAll", locators.size() + " elements")) {
+            List<?> found = (List<?>) ((JavascriptExecutor) getDriver()).executeScript(PageScripts.FIND_ALL, requests);
+            int resolved = 0;
+            for (Object element : found) {
+                elements.add(element instanceof WebElement ? (WebElement) element : null);
+                resolved += element instanceof WebElement ? 1 : 0;
+            }
+            Logging.info(log, "Resolved {} of {} elements in one script call", resolved, locators.size());
+            step.ok();
+        } catch (Exception ex) {
+            log.error("Unable to resolve " + locators.size() + " elements - " + ex.getMessage());
+            elements.clear();
+            for (int i = 0; i < locators.size(); i++) {
+                elements.add(null);
+            }
         }
-        return null;
+        return elements;
     }
 
     public void selectTextValue(String element, String locatorType, String text) {
-        Select select;
-        try {
-            if (waitForElementClickable(element, locatorType)) {
-                switch (locatorType.toLowerCase()) {
-                    case XPATH:
-                        select = (new Select(driver.findElement(By.xpath(element))));
-                        select.selectByVisibleText(text);
-                        break;
-
-                    case ID:
-                        select = (new Select(driver.findElement(By.id(element))));
-                        select.selectByVisibleText(text);
-                        break;
-
-                    case LINK_TEXT:
-                        select = (new Select(driver.findElement(By.linkText(element))));
-                        select.selectByVisibleText(text);
-                        break;
-
-                    case CSS:
-                        select = (new Select(driver.findElement(By.cssSelector(element))));
-                        select.selectByVisibleText(text);
-                        break;
-
-                    case CLASSNAME:
-                        select = (new Select(driver.findElement(By.className(element))));
-                        select.selectByVisibleText(text);
-                        break;
-
-                    case NAME:
-                        select = (new Select(driver.findElement(By.name(element))));
-                        select.selectByVisibleText(text);
-                        break;
-
-                    case PARTIAL_LINK_TEXT:
-                        select = (new Select(driver.findElement(By.partialLinkText(element))));
-                        select.selectByVisibleText(text);
-                        break;
-
-                    default:
-                        logNoPropertyError();
-                }
-            }
+        Locator locator = toLocator(element, locatorType);
+        if (locator != null) {
+            selectTextValue(locator, text);
+        }
+    }
+
+    public void selectTextValue(Locator locator, String text) {
+        try (StepMetrics.Step step = StepMetrics.start("selectTextValue", locator)) {
+            actOnClickable(locator, webElement -> new Select(webElement).selectByVisibleText(text));
             successSelectByVisibleTextLog(text);
+            step.ok();
 
         } catch (Exception e) {
-            String methodName = Object.class.getEnclosingMethod().getName();
-            log.error("Something went wrong while executing " + methodName + " due to - " + e.getMessage());
+            log.error("Something went wrong while selecting " + text + " from element " + locator + " due to - " + e.getMessage());
 
         }
     }
 
     public void selectOptionByIndex(String element, String locatorType, int index) {
-        try {
-            if (waitForElementClickable(element, locatorType)) {
-                selectByLocatorType(element, locatorType, index);
-            }
-            successSelectByIndexLog(element, index);
+        Locator locator = toLocator(element, locatorType);
+        if (locator != null) {
+            selectOptionByIndex(locator, index);
+        }
+    }
+
+    public void selectOptionByIndex(Locator locator, int index) {
+        try (StepMetrics.Step step = StepMetrics.start("selectOptionByIndex", locator)) {
+            actOnClickable(locator, webElement -> new Select(webElement).selectByIndex(index));
+            successSelectByIndexLog(locator.getValue(), index);
+            step.ok();
         } catch (Exception e) {
-            log.error("Something went wrong while selecting index " + index + " from element " + element);
+            log.error("Something went wrong while selecting index " + index + " from element " + locator);
         }
     }
 
     public void clickAndSelectOptionByIndex(String element, String locatorType, int index) {
-        try {
-            if (clickByByLocatorType(element, locatorType)) {
-                selectByLocatorType(element, locatorType, index);
-                successSelectByIndexLog(element, index);
-            }
+        Locator locator = toLocator(element, locatorType);
+        if (locator != null) {
+            clickAndSelectOptionByIndex(locator, index);
+        }
+    }
+
+    public void clickAndSelectOptionByIndex(Locator locator, int index) {
+        try (StepMetrics.Step step = StepMetrics.start("clickAndSelectOptionByIndex", locator)) {
+            WebElement webElement = findWebElement(locator);
+            webElement.click();
+            new Select(webElement).selectByIndex(index);
+            successSelectByIndexLog(locator.getValue(), index);
+            step.ok();
 
         } catch (Exception e) {
-            log.error("Failed to select element " + element + " by index " + index + " - " + e.getMessage());
+            log.error("Failed to select element " + locator + " by index " + index + " - " + e.getMessage());
         }
     }
 
     public List<WebElement> findElements(String element, String locatorType) {
-        List<WebElement> findElements = null;
-        try {
-            switch (locatorType.toLowerCase()) {
-                case ID:
-                    findElements = driver.findElements(By.id(element));
-                    break;
-
-                case NAME:
-                    findElements = driver.findElements(By.name(element));
-                    break;
-
-                case CSS:
-                    findElements = driver.findElements(By.cssSelector(element));
-                    break;
-
-                case XPATH:
-                    findElements = driver.findElements(By.xpath(element));
-                    break;
-
-                case LINK_TEXT:
-                    findElements = driver.findElements(By.linkText(element));
-                    break;
-
-                case PARTIAL_LINK_TEXT:
-                    findElements = driver.findElements(By.partialLinkText(element));
-                    break;
+        Locator locator = toLocator(element, locatorType);
+        return locator == null ? null : findElements(locator);
+    }
 
-                default:
-                    logNoPropertyError();
+    /**
+     * Find every element the locator matches, waiting up to the present budget of the wait policy
+     * for the first one to appear. The implicit wait used to provide this wait.
+     *
+     * @return the matches, empty if none appeared in time, or null if the lookup failed
+     */
+    public List<WebElement> findElements(Locator locator) {
+        List<WebElement> findElements = null;
+        try (StepMetrics.Step step = StepMetrics.start("findElements", locator)) {
+            try {
+                findElements = waitFor(WaitPolicy.Budget.PRESENT, locator,
+                        ExpectedConditions.presenceOfAllElementsLocatedBy(locator.by()));
+            } catch (TimeoutException ex) {
+                Logging.warn(log, "No element matched {} in time", locator);
+                findElements = new ArrayList<>();
             }
+            step.ok();
         } catch (Exception e) {
             log.error("Something went wrong while finding the elements");
         }
@@ -890,7 +1061,8 @@ public class SeleniumWebDriverUtils {
 
     public void setImplicitWaitTimeout(int timeoutInSeconds) {
         try {
-            driver.manage().timeouts().implicitlyWait(timeoutInSeconds, TimeUnit.SECONDS);
+            waitPolicy.setImplicitWait(Duration.ofSeconds(timeoutInSeconds));
+            waitPolicy.applyTo(getDriver());
             log.info("Successfully set the driver implicit wait value to " + timeoutInSeconds + " seconds");
         } catch (Exception e) {
             log.error("Error occurred while trying to set the driver implicit wait value to " + timeoutInSeconds + " seconds - " + e.getMessage());
@@ -898,9 +1070,18 @@ public class SeleniumWebDriverUtils {
     }
 
     public void switchToFrame(String frame, String locatorType) {
-        try {
-            driver.switchTo().frame(findElement(frame, locatorType));
-            iframeSwitchSuccessLog(frame);
+        Locator locator = toLocator(frame, locatorType);
+        if (locator != null) {
+            switchToFrame(locator);
+        }
+    }
+
+    public void switchToFrame(Locator frame) {
+        try (StepMetrics.Step step = StepMetrics.start("switchToFrame", frame)) {
+            getDriver().switchTo().frame(findElement(frame));
+            forgetElements();
+            iframeSwitchSuccessLog(frame.getValue());
+            step.ok();
 
         } catch (Exception e) {
             log.error("Unable to find frame - " + frame + " with message " + e.getMessage());
@@ -910,7 +1091,8 @@ public class SeleniumWebDriverUtils {
 
     public void switchToParentFrame() {
         try {
-            driver.switchTo().parentFrame();
+            getDriver().switchTo().parentFrame();
+            forgetElements();
             log.info("Successfully switched to parent frame");
         } catch (Exception e) {
             log.error(("Unable to switch to frame - " + e.getMessage()));
@@ -918,12 +1100,12 @@ public class SeleniumWebDriverUtils {
     }
 
     public String getPageSource() {
-        return driver.getPageSource();
+        return getDriver().getPageSource();
     }
 
     public String getAlertTextAndAccept() {
         try {
-            Alert alert = driver.switchTo().alert();
+            Alert alert = getDriver().switchTo().alert();
             String alertText = alert.getText();
             log.info("Alert data: " + alertText);
             alert.accept();
@@ -936,13 +1118,14 @@ public class SeleniumWebDriverUtils {
 
     public String switchToNewWindow() {
         try {
-            String firstWindow = driver.getWindowHandle();
-            Set<String> windowHandles = driver.getWindowHandles();
+            String firstWindow = getDriver().getWindowHandle();
+            Set<String> windowHandles = getDriver().getWindowHandles();
             log.info("Number of windows: " + windowHandles.size());
             for (String windowHandle : windowHandles) {
                 log.info("Handle: " + windowHandle);
                 if (!windowHandle.equalsIgnoreCase(firstWindow)) {
-                    driver.switchTo().window(windowHandle);
+                    getDriver().switchTo().window(windowHandle);
+                    forgetElements();
                     log.info("Switched to window - " + windowHandle);
                     return windowHandle;
                 }
@@ -955,7 +1138,8 @@ public class SeleniumWebDriverUtils {
 
     public void switchToWindow(String windowHandle) {
         try {
-            driver.switchTo().window(windowHandle);
+            getDriver().switchTo().window(windowHandle);
+            forgetElements();
             log.info("Switched to window - " + windowHandle);
         } catch (Exception e) {
             log.error("Something went wrong while switching to window " + e.getMessage());
@@ -964,7 +1148,7 @@ public class SeleniumWebDriverUtils {
 
     public String getCurrentWindowHandle() {
         try {
-            String windowHandle = driver.getWindowHandle();
+            String windowHandle = getDriver().getWindowHandle();
             log.info("Current window handle - " + windowHandle);
             return windowHandle;
         } catch (Exception e) {
@@ -975,7 +1159,8 @@ public class SeleniumWebDriverUtils {
 
     public void closeWindow(String windowHandle) {
         try {
-            driver.switchTo().window(windowHandle).close();
+            getDriver().switchTo().window(windowHandle).close();
+            forgetElements();
             log.info("Closed window - " + windowHandle);
         } catch (Exception e) {
             log.error("Something went wrong while closing window " + e.getMessage());
@@ -984,22 +1169,22 @@ public class SeleniumWebDriverUtils {
 
     public void scrollToTopOfPage() {
         log.info("Scrolling to top of page");
-        ((JavascriptExecutor) driver).executeScript("scroll(0, -250)");
+        ((JavascriptExecutor) getDriver()).executeScript("scroll(0, -250)");
     }
 
     public void scrollToBottomOfPage() {
         log.info("Scrolling to bottom of page");
-        ((JavascriptExecutor) driver).executeScript("scroll(0, 250)");
+        ((JavascriptExecutor) getDriver()).executeScript("scroll(0, 250)");
     }
 
     public void scrollToView(WebElement element) {
         log.info("Scrolling to view of element");
-        ((JavascriptExecutor) driver).executeScript("arguments[0].scrollIntoView(true);", element);
+        ((JavascriptExecutor) getDriver()).executeScript("arguments[0].scrollIntoView(true);", element);
     }
 
     public void scrollToElement(WebElement parentElement, WebElement actualElement) {
         log.info("Scrolling to element : " + actualElement);
-        Actions actions = new Actions(driver);
+        Actions actions = new Actions(getDriver());
         actions.moveToElement(parentElement).moveToElement(actualElement);
         actions.perform();
     }
@@ -1010,9 +1195,10 @@ public class SeleniumWebDriverUtils {
 
     public void openNewTab(String url) {
         try {
-            ((JavascriptExecutor) driver).executeScript("window.open()");
-            ArrayList<String> tabs = new ArrayList<>(driver.getWindowHandles());
-            driver.switchTo().window(tabs.get(1));
+            ((JavascriptExecutor) getDriver()).executeScript("window.open()");
+            ArrayList<String> tabs = new ArrayList<>(getDriver().getWindowHandles());
+            getDriver().switchTo().window(tabs.get(1));
+            forgetElements();
             openURL(url);
         } catch (Exception ex) {
             log.error("Unable to open new tab - " + ex.getMessage());
@@ -1021,8 +1207,10 @@ public class SeleniumWebDriverUtils {
     }
 
     public void openURL(String url) {
-        try {
-            driver.get(url);
+        try (StepMetrics.Step step = StepMetrics.start("openURL", url)) {
+            forgetElements();
+            getDriver().get(url);
+            step.ok();
         } catch (Exception ex) {
             log.error("Unable to open url - " + ex.getMessage());
             log.error(ex.getStackTrace());
@@ -1033,155 +1221,213 @@ public class SeleniumWebDriverUtils {
         Thread.sleep(Duration.ofMillis(t).toMillis());
     }
 
+    /**
+     * Number of rows the xpath matches, waiting for the first as findElements does
+     */
     public int getChartRowsSize(String element) {
-        List<WebElement> rows = driver.findElements(By.xpath(element));
-        return rows.size();
+        List<WebElement> rows = findElements(Locator.xpath(element));
+        return rows == null ? 0 : rows.size();
     }
 
     public String getTitle() {
-        return driver.getTitle();
+        return getDriver().getTitle();
     }
 
     public String getLogoutUrl() {
         String logoutURL = null;
         try {
-            int index = sessionUrl.indexOf("Xiriuz/Controller?");
-            String toBeReplaced = sessionUrl.substring(index);
+            String url = sessionUrl.get();
+            int index = url.indexOf("Xiriuz/Controller?");
+            String toBeReplaced = url.substring(index);
             String replacement = "Xiriuz/logoff.do";
 
-            return sessionUrl.replace(toBeReplaced, replacement);
+            return url.replace(toBeReplaced, replacement);
         } catch (Exception e) {
             log.error("Error occurred while getting logout URL - " + e.getMessage());
         }
         return logoutURL;
     }
 
+    private <T> T waitFor(WaitPolicy.Budget budget, Locator locator, ExpectedCondition<T> condition) {
+        return waitPolicy.until(getDriver(), budget, locator.getKey(), condition);
+    }
+
+    /**
+     * Wait for the element unless the element cache holds it and the page hasn't changed since.
+     * An element the wait resolves is cached before it is acted on, so the action's own changes
+     * to the page don't count against it.
+     */
+    private WebElement resolve(WaitPolicy.Budget budget, Locator locator, ExpectedCondition<WebElement> condition) {
+        ElementCache cache = elementCache;
+        if (cache == null) {
+            return waitFor(budget, locator, condition);
+        }
+        WebElement cached = cache.lookup(getDriver(), locator, budget);
+        if (cached != null) {
+            return cached;
+        }
+        WebElement webElement = waitFor(budget, locator, condition);
+        cache.put(getDriver(), locator, webElement);
+        return webElement;
+    }
+
+    private void forgetElements() {
+        ElementCache cache = elementCache;
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Wait for the element to be clickable and hand the element the wait found straight to the
+     * action, so no second lookup is needed. If the element goes stale between the wait and the
+     * action it is resolved once more and the action retried.
+     */
+    private <T> T readFromClickable(Locator locator, Function<WebElement, T> action) {
+        try {
+            return action.apply(resolve(WaitPolicy.Budget.CLICKABLE, locator, ExpectedConditions.elementToBeClickable(locator.by())));
+        } catch (StaleElementReferenceException ex) {
+            Logging.warn(log, ELEMENT_INF_TEXT + "{} went stale, resolving it again", locator);
+            ElementCache cache = elementCache;
+            if (cache != null) {
+                cache.evict(locator);
+            }
+            return action.apply(resolve(WaitPolicy.Budget.CLICKABLE, locator, ExpectedConditions.elementToBeClickable(locator.by())));
+        }
+    }
+
+    private void actOnClickable(Locator locator, Consumer<WebElement> action) {
+        readFromClickable(locator, webElement -> {
+            action.accept(webElement);
+            return null;
+        });
+    }
+
+    /**
+     * Resolve the interned locator for the given string pair, logging when the locator type is unknown.
+     */
+    private Locator toLocator(String element, String locatorType) {
+        Locator locator = Locator.of(element, locatorType);
+        if (locator == null) {
+            logNoPropertyError();
+        }
+        return locator;
+    }
+
     private void logNoPropertyError() {
         log.info("No or incorrect element type was specified, please specify which element attribute you want to interact with");
     }
 
     private void enterSuccessLog(String element, String value) {
-        log.info(value + " successfully entered into " + element);
+        Logging.info(log, "{} successfully entered into {}", value, element);
     }
 
-    private void clickSuccessLog(String element, String locatorType) {
-        log.info(ELEMENT_INF_TEXT + element + " successfully clicked with attribute type " + locatorType);
+    private void clickSuccessLog(Locator locator) {
+        Logging.info(log, ELEMENT_INF_TEXT + "{} successfully clicked with attribute type {}", locator, locator.getType().getKey());
     }
 
     private void successIsElementsPresentInDOMLog(String element) {
-        log.info(ELEMENT_INF_TEXT + element + " is present in the DOM");
+        Logging.info(log, ELEMENT_INF_TEXT + "{} is present in the DOM", element);
     }
 
     private void sucessGetTextLog(String element) {
-        log.info("Successful retrival of text from element " + element);
+        Logging.info(log, "Successful retrival of text from element {}", element);
     }
 
-    private void successGetSelectedValueLog(String element, String locatorType) {
-        log.info(ELEMENT_INF_TEXT + element + " get Selected Value attribute type " + locatorType);
+    private void successGetSelectedValueLog(Locator locator) {
+        Logging.info(log, ELEMENT_INF_TEXT + "{} get Selected Value attribute type {}", locator, locator.getType().getKey());
     }
 
     private void successSelectByVisibleTextLog(String text) {
-        log.info(text + " successfully selected from dropdown");
+        Logging.info(log, "{} successfully selected from dropdown", text);
     }
 
     private void successSelectByIndexLog(String element, int index) {
-        log.info(index + " successfully selected by for element " + element);
+        Logging.info(log, "{} successfully selected by for element {}", index, element);
     }
 
     private void iframeSwitchSuccessLog(String frame) {
-        log.info("Successfully switched to frame - " + frame);
-    }
-
-    private void selectByLocatorType(String element, String locatorType, int index) {
-        Select select;
-        switch (locatorType) {
-            case XPATH:
-                select = (new Select(driver.findElement(By.xpath(element))));
-                select.selectByIndex(index);
-                break;
-
-            case ID:
-                select = (new Select(driver.findElement(By.id(element))));
-                select.selectByIndex(index);
-                break;
-
-            case LINK_TEXT:
-                select = (new Select(driver.findElement(By.linkText(element))));
-                select.selectByIndex(index);
-                break;
-
-            case CSS:
-                select = (new Select(driver.findElement(By.cssSelector(element))));
-                select.selectByIndex(index);
-                break;
-
-            case CLASSNAME:
-                select = (new Select(driver.findElement(By.className(element))));
-                select.selectByIndex(index);
-                break;
-
-            case NAME:
-                select = (new Select(driver.findElement(By.name(element))));
-                select.selectByIndex(index);
-                break;
-
-            case PARTIAL_LINK_TEXT:
-                select = (new Select(driver.findElement(By.partialLinkText(element))));
-                select.selectByIndex(index);
-                break;
-
-            default:
-                logNoPropertyError();
-        }
-    }
-
-    private boolean clickByByLocatorType(String element, String locatorType) {
-        switch (locatorType.toLowerCase()) {
-            case XPATH:
-                driver.findElement(By.xpath(element)).click();
-                return true;
-            case ID:
-                driver.findElement(By.id(element)).click();
-                return true;
-
-            case LINK_TEXT:
-                driver.findElement(By.linkText(element)).click();
-                return true;
-            case CSS:
-                driver.findElement(By.cssSelector(element)).click();
-                return true;
-
-            case CLASSNAME:
-                driver.findElement(By.className(element)).click();
-                return true;
-
-            case NAME:
-                driver.findElement(By.name(element)).click();
-                return true;
-
-            case PARTIAL_LINK_TEXT:
-                driver.findElement(By.partialLinkText(element)).click();
-                return true;
-            default:
-                logNoPropertyError();
-                return false;
-        }
-    }
-
-    /* This method runs javascript to check if the page is ready. If it returns false it will wait 2 seconds and do another attempt (pollinterval of 2 secs).
-    It will continue to do this for 90 seconds. If the page is ready it will continue with the test */
+        Logging.info(log, "Successfully switched to frame - {}", frame);
+    }
+
+    /**
+     * Read the load milestones of the current document, see PageTiming. Check them against a
+     * PerformanceBudget to fail a test whose pages got slower.
+     *
+     * @return the milestones, all -1 if they couldn't be read
+     */
+    public PageTiming measurePageLoad() {
+        try {
+            PageTiming timing = PageTiming.fromScript((Map<?, ?>) ((JavascriptExecutor) getDriver())
+                    .executeScript(PageScripts.PAGE_TIMING));
+            Logging.debug(log, "Page timing of {}", timing);
+            return timing;
+        } catch (Exception ex) {
+            log.error("Unable to measure the page load - " + ex.getMessage());
+        }
+        return new PageTiming(null, -1, -1, -1, -1);
+    }
+
+    /**
+     * Wait for the page to be ready, see waitForPageQuiet. Only the document not loading in time
+     * fails, a page that loads but keeps changing counts as ready once the quiet timeout is up.
+     *
+     * @throws TimeoutException if the document isn't complete within the wait policy's page ready timeout
+     */
     public void checkPageIsReady() {
-        await().pollInterval(2, TimeUnit.SECONDS).atMost(90, TimeUnit.SECONDS).until(isPageReady());
+        Map<?, ?> result = awaitPageQuiet(waitPolicy.getQuietWindow(), waitPolicy.getPageReadyTimeout());
+        if (result == null || !Boolean.TRUE.equals(result.get("loaded"))) {
+            throw new TimeoutException("The page was not ready after " + waitPolicy.getPageReadyTimeout().getSeconds()
+                    + " seconds");
+        }
     }
 
-    private Callable<Boolean> isPageReady() {
-        return () -> {
-            JavascriptExecutor javascriptExecutor = (JavascriptExecutor) driver;
-            boolean readyStateOfPage = javascriptExecutor.executeScript("return document.readyState").toString().equals("complete");
-            if (!readyStateOfPage) {
-                log.warn("The page with title " + driver.getTitle() + " is not ready yet. In 2 seconds another attempt will be made.");
+    /**
+     * Wait until the document has loaded and no fetch/XHR request has run and no node has been
+     * added or removed for the wait policy's quiet window. It gives up on the quiet window once
+     * the document has been loaded for the quiet timeout, or after the page ready timeout if it
+     * never loads. The check runs in the page, so it costs one script call and notices the page
+     * going quiet within a few ms.
+     * <p>
+     * Requests started before the first call on a document are not seen, so call it after
+     * navigating and again after actions that load content.
+     *
+     * @return true if the page went quiet in time
+     */
+    public boolean waitForPageQuiet() {
+        return waitForPageQuiet(waitPolicy.getQuietWindow(), waitPolicy.getPageReadyTimeout());
+    }
+
+    public boolean waitForPageQuiet(Duration quietWindow, Duration timeout) {
+        Map<?, ?> result = awaitPageQuiet(quietWindow, timeout);
+        return result != null && Boolean.TRUE.equals(result.get("quiet"));
+    }
+
+    /**
+     * Run AWAIT_QUIET, returning what it called back or null if it couldn't run
+     */
+    private Map<?, ?> awaitPageQuiet(Duration quietWindow, Duration timeout) {
+        long start = System.nanoTime();
+        timeout = CascadeBreaker.cap(timeout);
+        try (StepMetrics.Step step = StepMetrics.check("waitForPageQuiet", "")) {
+            Map<?, ?> result = (Map<?, ?>) ((JavascriptExecutor) getDriver()).executeAsyncScript(PageScripts.AWAIT_QUIET,
+                    quietWindow.toMillis(), timeout.toMillis(), waitPolicy.getQuietTimeout().toMillis());
+            StepMetrics.recordWait(System.nanoTime() - start, 1);
+            if (Boolean.TRUE.equals(result.get("quiet"))) {
+                step.ok();
+                Logging.debug(log, "Page went quiet after {} ms", result.get("elapsed"));
+            } else if (Boolean.TRUE.equals(result.get("loaded"))) {
+                step.ok();
+                Logging.debug(log, "Page loaded but was not quiet after {} ms with {} requests in flight, carrying on",
+                        result.get("elapsed"), result.get("inflight"));
+            } else {
+                Logging.warn(log, "The page with title {} was not loaded after {} ms, {} requests in flight and ready state {}",
+                        getDriver().getTitle(), result.get("elapsed"), result.get("inflight"), result.get("readyState"));
             }
-            return readyStateOfPage;
-        };
+            return result;
+        } catch (Exception ex) {
+            log.error("Unable to wait for the page to be ready - " + ex.getMessage());
+        }
+        return null;
     }
 }
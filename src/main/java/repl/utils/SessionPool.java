@@ -0,0 +1,177 @@
+package repl.utils;
+
+import org.apache.log4j.Logger;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Keeps browser sessions launched and warm so tests don't pay for browser startup.
+ * <p>
+ * A released session has its extra tabs closed and its cookies, localStorage and sessionStorage
+ * cleared before it is handed out again. After the configured number of uses it is quit and,
+ * if the pool was prewarmed, a replacement is launched in the background.
+ * <p>
+ * Cookies and storage are cleared for the page the session was on when it was released, which
+ * covers tests that stay on one site.
+ *
+ * @author Garth Bosch
+ */
+public class SessionPool {
+    private static final Logger log = Logging.getLogger(SessionPool.class);
+    private static final String CLEAR_STORAGE_SCRIPT =
+            "try { window.localStorage.clear(); window.sessionStorage.clear(); } catch (e) {}";
+    private static final String BLANK_PAGE = "about:blank";
+
+    private final Supplier<WebDriver> factory;
+    private final int maxUses;
+    private final LinkedBlockingDeque<WebDriver> idle = new LinkedBlockingDeque<>();
+    private final Map<WebDriver, AtomicInteger> uses = new ConcurrentHashMap<>();
+    private final AtomicInteger warmTarget = new AtomicInteger();
+    private final ExecutorService launcher = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "session-pool-launcher");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean closed;
+
+    /**
+     * @param factory - launches a new browser session
+     * @param maxUses - number of tests a session serves before it is quit and replaced
+     */
+    public SessionPool(Supplier<WebDriver> factory, int maxUses) {
+        if (maxUses < 1) {
+            throw new IllegalArgumentException("A session must be usable at least once but maxUses was " + maxUses);
+        }
+        this.factory = factory;
+        this.maxUses = maxUses;
+    }
+
+    /**
+     * Launch sessions in the background so that the next count acquires don't wait for a browser.
+     * Recycled sessions are replaced to keep this many warm.
+     */
+    public void prewarm(int count) {
+        warmTarget.addAndGet(count);
+        for (int i = 0; i < count; i++) {
+            launchInBackground();
+        }
+    }
+
+    /**
+     * Hand out a warm session, launching a new one if none is idle
+     */
+    public WebDriver acquire() {
+        if (closed) {
+            throw new IllegalStateException("Session pool has been shut down");
+        }
+        WebDriver driver = idle.pollFirst();
+        if (driver == null) {
+            log.info("No warm session available, launching a new one");
+            driver = launch();
+        }
+        return driver;
+    }
+
+    /**
+     * Take a session back. It is reset and kept warm, or quit if it has been used up or can't be reset.
+     */
+    public void release(WebDriver driver) {
+        if (driver == null) {
+            return;
+        }
+        AtomicInteger count = uses.get(driver);
+        if (closed || count == null || count.incrementAndGet() >= maxUses || !reset(driver)) {
+            retire(driver);
+            if (!closed && warmTarget.get() > 0) {
+                launchInBackground();
+            }
+            return;
+        }
+        idle.offerFirst(driver);
+    }
+
+    /**
+     * Number of sessions launched and not yet quit, idle or in use
+     */
+    public int size() {
+        return uses.size();
+    }
+
+    public int idleCount() {
+        return idle.size();
+    }
+
+    /**
+     * Quit every session the pool launched
+     */
+    public void shutdown() {
+        closed = true;
+        launcher.shutdownNow();
+        List<WebDriver> all = new ArrayList<>(uses.keySet());
+        idle.clear();
+        for (WebDriver driver : all) {
+            retire(driver);
+        }
+    }
+
+    private WebDriver launch() {
+        WebDriver driver = factory.get();
+        uses.put(driver, new AtomicInteger());
+        return driver;
+    }
+
+    private void launchInBackground() {
+        try {
+            launcher.execute(() -> {
+                try {
+                    WebDriver driver = launch();
+                    if (closed) {
+                        retire(driver);
+                    } else {
+                        idle.offerLast(driver);
+                    }
+                } catch (Exception ex) {
+                    log.error("Unable to launch a warm browser session - " + ex.getMessage());
+                }
+            });
+        } catch (Exception ex) {
+            log.warn("Session pool is not accepting new launches - " + ex.getMessage());
+        }
+    }
+
+    private boolean reset(WebDriver driver) {
+        try {
+            List<String> handles = new ArrayList<>(driver.getWindowHandles());
+            for (int i = 1; i < handles.size(); i++) {
+                driver.switchTo().window(handles.get(i)).close();
+            }
+            driver.switchTo().window(handles.get(0));
+            ((JavascriptExecutor) driver).executeScript(CLEAR_STORAGE_SCRIPT);
+            driver.manage().deleteAllCookies();
+            driver.get(BLANK_PAGE);
+            return true;
+        } catch (Exception ex) {
+            log.warn("Unable to reset browser session, it will be replaced - " + ex.getMessage());
+            return false;
+        }
+    }
+
+    private void retire(WebDriver driver) {
+        uses.remove(driver);
+        try {
+            driver.quit();
+        } catch (Exception ex) {
+            log.error("Error found while shutting down pooled driver - " + ex.getMessage());
+        }
+    }
+}
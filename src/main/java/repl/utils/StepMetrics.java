@@ -0,0 +1,454 @@
+package repl.utils;
+
+import org.apache.log4j.Logger;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * In process registry of how long each step of a test took. A step is one call to a
+ * SeleniumWebDriverUtils action, keyed by the action and what it acted on, e.g.
+ * clickElement css=#submit. For every step the wall time, the part of it spent waiting, the
+ * number of times the wait's condition was polled and whether it succeeded are recorded. When
+ * the CommandTracer is on, the number of wire commands the step sent and the time spent in them
+ * are recorded too and a summary of each step is logged. When browser timing is on, see
+ * BrowserTiming, what the browser spent on the network during each step is recorded and logged
+ * as well, collected after the step's wall time is taken.
+ * <p>
+ * Everything is recorded into the suite registry. While a test is running on a thread, see
+ * startTest, it is also recorded into that test's registry. Either can be exported to JSON and
+ * CSV with export.
+ *
+ * @author Garth Bosch
+ */
+public class StepMetrics {
+    private static final Logger log = Logging.getLogger(StepMetrics.class);
+    private static final StepMetrics SUITE = new StepMetrics("suite");
+    private static final ThreadLocal<StepMetrics> CURRENT_TEST = new ThreadLocal<>();
+    private static final ThreadLocal<Step> CURRENT_STEP = new ThreadLocal<>();
+    private static final ThreadLocal<Supplier<BrowserTiming>> TIMING_SOURCE = new ThreadLocal<>();
+    private static final Step NESTED = new Step(null, null, false, false);
+
+    public enum Outcome {
+        OK,
+        FAILED
+    }
+
+    private final String name;
+    private final ConcurrentMap<String, StepStats> steps = new ConcurrentSkipListMap<>();
+
+    public StepMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * The registry every step of every test is recorded into
+     */
+    public static StepMetrics suite() {
+        return SUITE;
+    }
+
+    /**
+     * Also record the steps run on this thread into a new registry for the named test
+     */
+    public static StepMetrics startTest(String testName) {
+        StepMetrics test = new StepMetrics(testName);
+        CURRENT_TEST.set(test);
+        return test;
+    }
+
+    /**
+     * @return the registry of the test running on this thread or null if there is none
+     */
+    public static StepMetrics currentTest() {
+        return CURRENT_TEST.get();
+    }
+
+    /**
+     * Stop recording this thread's steps for its test
+     *
+     * @return the test's registry or null if no test was started on this thread
+     */
+    public static StepMetrics endTest() {
+        StepMetrics test = CURRENT_TEST.get();
+        CURRENT_TEST.remove();
+        return test;
+    }
+
+    /**
+     * Start timing a step on this thread. Steps started while another step is running, e.g. a
+     * findWebElement inside an uploadFile, are part of the outer step and not recorded on their own.
+     * <p>
+     * Close the step when it is done and call ok() before that if it succeeded, use it with
+     * try-with-resources.
+     */
+    public static Step start(String action, Locator target) {
+        return start(action, target == null ? "" : target.getKey());
+    }
+
+    public static Step start(String action, String target) {
+        return open(action, target, true);
+    }
+
+    /**
+     * Start timing a step that checks something rather than acts on it, e.g. isElementPresent.
+     * A negative answer is recorded as failed like any other step but doesn't count as the test
+     * failing, see CascadeBreaker.
+     */
+    public static Step check(String action, Locator target) {
+        return check(action, target == null ? "" : target.getKey());
+    }
+
+    public static Step check(String action, String target) {
+        return open(action, target, false);
+    }
+
+    private static Step open(String action, String target, boolean failsTest) {
+        if (CURRENT_STEP.get() != null) {
+            return NESTED;
+        }
+        Step step = new Step(action, target, true, failsTest);
+        CURRENT_STEP.set(step);
+        return step;
+    }
+
+    /**
+     * Add a wait to the step running on this thread, if there is one
+     *
+     * @param nanos - how long the wait took
+     * @param polls - how many times the condition was evaluated
+     */
+    static void recordWait(long nanos, long polls) {
+        Step step = CURRENT_STEP.get();
+        if (step != null) {
+            step.waitNanos += nanos;
+            step.polls += polls;
+        }
+    }
+
+    /**
+     * Add a wire command to the step running on this thread, if there is one
+     */
+    static void recordCommand(long nanos) {
+        Step step = CURRENT_STEP.get();
+        if (step != null) {
+            step.commands++;
+            step.commandNanos += nanos;
+        }
+    }
+
+    /**
+     * Collect the browser timing of every step that ends on this thread from the source, null to stop
+     */
+    static void setTimingSource(Supplier<BrowserTiming> source) {
+        if (source == null) {
+            TIMING_SOURCE.remove();
+        } else {
+            TIMING_SOURCE.set(source);
+        }
+    }
+
+    private void record(Step step, long wallNanos, BrowserTiming timing) {
+        String key = step.action + " " + step.target;
+        StepStats stats = steps.computeIfAbsent(key, k -> new StepStats(step.action, step.target));
+        stats.record(wallNanos, step, timing, step.ok ? Outcome.OK : Outcome.FAILED);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * The stats of every step recorded so far, ordered by action and target
+     */
+    public List<StepStats> getSteps() {
+        return new ArrayList<>(steps.values());
+    }
+
+    /**
+     * @return the stats of the step or null if it has not been recorded
+     */
+    public StepStats getStep(String action, String target) {
+        return steps.get(action + " " + target);
+    }
+
+    public void clear() {
+        steps.clear();
+    }
+
+    /**
+     * Write the registry to [dir]/[baseName].json and [dir]/[baseName].csv
+     */
+    public void export(Path dir, String baseName) throws IOException {
+        Files.createDirectories(dir);
+        List<StepStats> all = getSteps();
+        try (Writer json = Files.newBufferedWriter(dir.resolve(baseName + ".json"), StandardCharsets.UTF_8)) {
+            writeJson(json, all);
+        }
+        try (Writer csv = Files.newBufferedWriter(dir.resolve(baseName + ".csv"), StandardCharsets.UTF_8)) {
+            writeCsv(csv, all);
+        }
+    }
+
+    void writeJson(Writer out, List<StepStats> all) throws IOException {
+        out.write("{\"name\":" + jsonString(name) + ",\"steps\":[");
+        for (int i = 0; i < all.size(); i++) {
+            StepStats s = all.get(i);
+            out.write(i == 0 ? "\n" : ",\n");
+            out.write("{\"action\":" + jsonString(s.getAction())
+                    + ",\"target\":" + jsonString(s.getTarget())
+                    + ",\"count\":" + s.getCount()
+                    + ",\"ok\":" + s.getCount(Outcome.OK)
+                    + ",\"failed\":" + s.getCount(Outcome.FAILED)
+                    + ",\"wallTotalMs\":" + s.getWall().getTotalMillis()
+                    + ",\"wallMeanMs\":" + String.format(Locale.ROOT, "%.1f", s.getWall().getMeanMillis())
+                    + ",\"wallP50Ms\":" + s.getWall().getPercentileMillis(0.5)
+                    + ",\"wallP95Ms\":" + s.getWall().getPercentileMillis(0.95)
+                    + ",\"wallMaxMs\":" + s.getWall().getMaxMillis()
+                    + ",\"waitTotalMs\":" + s.getWait().getTotalMillis()
+                    + ",\"waitMeanMs\":" + String.format(Locale.ROOT, "%.1f", s.getWait().getMeanMillis())
+                    + ",\"polls\":" + s.getPolls()
+                    + ",\"commands\":" + s.getCommands()
+                    + ",\"commandTotalMs\":" + s.getCommandTime().getTotalMillis()
+                    + ",\"serverTotalMs\":" + s.getServerTime().getTotalMillis()
+                    + ",\"serverMaxMs\":" + s.getServerTime().getMaxMillis()
+                    + ",\"resources\":" + s.getResources()
+                    + ",\"resourceBytes\":" + s.getResourceBytes()
+                    + ",\"resourceTotalMs\":" + s.getResourceTime().getTotalMillis() + "}");
+        }
+        out.write("\n]}\n");
+    }
+
+    void writeCsv(Writer out, List<StepStats> all) throws IOException {
+        out.write("action,target,count,ok,failed,wall_total_ms,wall_mean_ms,wall_p50_ms,wall_p95_ms,wall_max_ms,"
+                + "wait_total_ms,wait_mean_ms,polls,commands,command_total_ms,"
+                + "server_total_ms,server_max_ms,resources,resource_bytes,resource_total_ms\n");
+        for (StepStats s : all) {
+            out.write(csvField(s.getAction()) + "," + csvField(s.getTarget())
+                    + "," + s.getCount() + "," + s.getCount(Outcome.OK) + "," + s.getCount(Outcome.FAILED)
+                    + "," + s.getWall().getTotalMillis()
+                    + "," + String.format(Locale.ROOT, "%.1f", s.getWall().getMeanMillis())
+                    + "," + s.getWall().getPercentileMillis(0.5)
+                    + "," + s.getWall().getPercentileMillis(0.95)
+                    + "," + s.getWall().getMaxMillis()
+                    + "," + s.getWait().getTotalMillis()
+                    + "," + String.format(Locale.ROOT, "%.1f", s.getWait().getMeanMillis())
+                    + "," + s.getPolls()
+                    + "," + s.getCommands()
+                    + "," + s.getCommandTime().getTotalMillis()
+                    + "," + s.getServerTime().getTotalMillis()
+                    + "," + s.getServerTime().getMaxMillis()
+                    + "," + s.getResources()
+                    + "," + s.getResourceBytes()
+                    + "," + s.getResourceTime().getTotalMillis() + "\n");
+        }
+    }
+
+    private static String jsonString(String value) {
+        StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    quoted.append("\\\"");
+                    break;
+                case '\\':
+                    quoted.append("\\\\");
+                    break;
+                case '\n':
+                    quoted.append("\\n");
+                    break;
+                case '\r':
+                    quoted.append("\\r");
+                    break;
+                case '\t':
+                    quoted.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        quoted.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        quoted.append(c);
+                    }
+            }
+        }
+        return quoted.append('"').toString();
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * A step being timed on the current thread
+     */
+    public static final class Step implements AutoCloseable {
+        private final String action;
+        private final String target;
+        private final boolean recording;
+        private final boolean failsTest;
+        private final long startNanos = System.nanoTime();
+        private long waitNanos;
+        private long polls;
+        private long commands;
+        private long commandNanos;
+        private boolean ok;
+
+        private Step(String action, String target, boolean recording, boolean failsTest) {
+            this.action = action;
+            this.target = target;
+            this.recording = recording;
+            this.failsTest = failsTest;
+        }
+
+        /**
+         * Mark the step as successful, it is recorded as failed otherwise
+         */
+        public void ok() {
+            if (recording) {
+                ok = true;
+            }
+        }
+
+        @Override
+        public void close() {
+            if (!recording) {
+                return;
+            }
+            CURRENT_STEP.remove();
+            long wallNanos = System.nanoTime() - startNanos;
+            if (commands > 0) {
+                Logging.info(log, "{} {}: {} commands, {} ms", action, target, commands, wallNanos / 1_000_000);
+            }
+            if (!ok && failsTest) {
+                CascadeBreaker.stepFailed(action, target, wallNanos);
+            }
+            Supplier<BrowserTiming> source = TIMING_SOURCE.get();
+            BrowserTiming timing = source == null ? null : source.get();
+            if (timing != null) {
+                Logging.info(log, "{} {}: {} ms, browser {}", action, target, wallNanos / 1_000_000, timing);
+            }
+            SUITE.record(this, wallNanos, timing);
+            StepMetrics test = CURRENT_TEST.get();
+            if (test != null) {
+                test.record(this, wallNanos, timing);
+            }
+        }
+    }
+
+    /**
+     * Everything recorded for one action on one target
+     */
+    public static final class StepStats {
+        private final String action;
+        private final String target;
+        private final LatencyHistogram wall = new LatencyHistogram();
+        private final LatencyHistogram wait = new LatencyHistogram();
+        private final AtomicLong polls = new AtomicLong();
+        private final AtomicLong commands = new AtomicLong();
+        private final LatencyHistogram commandTime = new LatencyHistogram();
+        private final LatencyHistogram serverTime = new LatencyHistogram();
+        private final AtomicLong resources = new AtomicLong();
+        private final AtomicLong resourceBytes = new AtomicLong();
+        private final LatencyHistogram resourceTime = new LatencyHistogram();
+        private final AtomicLong ok = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+
+        private StepStats(String action, String target) {
+            this.action = action;
+            this.target = target;
+        }
+
+        private void record(long wallNanos, Step step, BrowserTiming timing, Outcome outcome) {
+            wall.record(wallNanos / 1_000_000);
+            wait.record(step.waitNanos / 1_000_000);
+            polls.addAndGet(step.polls);
+            commands.addAndGet(step.commands);
+            commandTime.record(step.commandNanos / 1_000_000);
+            if (timing != null) {
+                serverTime.record(timing.getServerMillis());
+                resources.addAndGet(timing.getResources());
+                resourceBytes.addAndGet(timing.getResourceBytes());
+                resourceTime.record(timing.getResourceMillis());
+            }
+            (outcome == Outcome.OK ? ok : failed).incrementAndGet();
+        }
+
+        public String getAction() {
+            return action;
+        }
+
+        public String getTarget() {
+            return target;
+        }
+
+        public long getCount() {
+            return wall.getCount();
+        }
+
+        public long getCount(Outcome outcome) {
+            return outcome == Outcome.OK ? ok.get() : failed.get();
+        }
+
+        public LatencyHistogram getWall() {
+            return wall;
+        }
+
+        public LatencyHistogram getWait() {
+            return wait;
+        }
+
+        public long getPolls() {
+            return polls.get();
+        }
+
+        /**
+         * Number of wire commands sent, only counted while the CommandTracer is on
+         */
+        public long getCommands() {
+            return commands.get();
+        }
+
+        /**
+         * Time spent in wire commands per step
+         */
+        public LatencyHistogram getCommandTime() {
+            return commandTime;
+        }
+
+        /**
+         * Time the server took per step, only recorded while browser timing is on
+         */
+        public LatencyHistogram getServerTime() {
+            return serverTime;
+        }
+
+        public long getResources() {
+            return resources.get();
+        }
+
+        public long getResourceBytes() {
+            return resourceBytes.get();
+        }
+
+        /**
+         * Summed resource durations per step, only recorded while browser timing is on
+         */
+        public LatencyHistogram getResourceTime() {
+            return resourceTime;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package repl.utils;
+
+import org.apache.log4j.Logger;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records the steps of every test and exports them per test and for the whole suite to
+ * reports/metrics/[date]/ as JSON and CSV
+ *
+ * @author Garth Bosch
+ */
+public class StepMetricsListener implements ITestListener, ISuiteListener {
+    private static final Logger log = Logging.getLogger(StepMetricsListener.class);
+    private static final String OUTPUT_DIR = "reports/metrics/";
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    @Override
+    public void onStart(ISuite suite) {
+        StepMetrics.suite().clear();
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        export(StepMetrics.suite(), suite.getName().replaceAll("[^A-Za-z0-9._-]", "_"));
+    }
+
+    @Override
+    public void onTestStart(ITestResult result) {
+        StepMetrics.startTest(result.getTestClass().getName() + "." + result.getMethod().getMethodName());
+    }
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        endTest(result);
+    }
+
+    @Override
+    public void onTestFailure(ITestResult result) {
+        endTest(result);
+    }
+
+    @Override
+    public void onTestSkipped(ITestResult result) {
+        endTest(result);
+    }
+
+    @Override
+    public void onTestFailedButWithinSuccessPercentage(ITestResult result) {
+        endTest(result);
+    }
+
+    private void endTest(ITestResult result) {
+        StepMetrics test = StepMetrics.endTest();
+        if (test != null) {
+            String className = result.getTestClass().getRealClass().getSimpleName();
+            export(test, className + "_" + result.getMethod().getMethodName() + "_" + sequence.incrementAndGet());
+        }
+    }
+
+    private void export(StepMetrics metrics, String baseName) {
+        Path dir = Paths.get(OUTPUT_DIR, new SimpleDateFormat("yyyy_MM_dd").format(new Date()));
+        try {
+            metrics.export(dir, baseName);
+        } catch (IOException ex) {
+            log.error("Unable to export step metrics for " + baseName + " - " + ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package repl.utils;
+
+import org.testng.ITestListener;
+import org.testng.ITestResult;
+
+/**
+ * Gives every test its own log file so that tests running in parallel can be told apart
+ *
+ * @author Garth Bosch
+ */
+public class TestLogListener implements ITestListener {
+
+    @Override
+    public void onTestStart(ITestResult result) {
+        Logging.startTestLog(result.getTestClass().getName(), result.getMethod().getMethodName());
+    }
+
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        Logging.endTestLog();
+    }
+
+    @Override
+    public void onTestFailure(ITestResult result) {
+        Logging.endTestLog();
+    }
+
+    @Override
+    public void onTestSkipped(ITestResult result) {
+        Logging.endTestLog();
+    }
+
+    @Override
+    public void onTestFailedButWithinSuccessPercentage(ITestResult result) {
+        Logging.endTestLog();
+    }
+}
@@ -0,0 +1,158 @@
+package repl.utils;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.FileAppender;
+import org.apache.log4j.Layout;
+import org.apache.log4j.helpers.LogLog;
+import org.apache.log4j.spi.Filter;
+import org.apache.log4j.spi.LoggingEvent;
+
+import java.io.File;
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Writes each test's events to that test's own file, so tests running at the same time don't
+ * interleave in one log. The test an event belongs to is read from the MDC key set by
+ * Logging.startTestLog on the test's thread. Events without it are left to the other appenders.
+ * <p>
+ * A test's file is opened with its first event and closed by Logging.endTestLog.
+ *
+ * @author Garth Bosch
+ */
+public class TestLogRoutingAppender extends AppenderSkeleton implements Flushable {
+    public static final String TEST_KEY = "repl.test";
+
+    private final int bufferSize;
+    private final Map<String, String> paths = new ConcurrentHashMap<>();
+    private final Map<String, FileAppender> files = new ConcurrentHashMap<>();
+
+    /**
+     * @param layout     - layout of every test's file
+     * @param bufferSize - size of each file's write buffer, 0 to write every event straight through
+     */
+    public TestLogRoutingAppender(Layout layout, int bufferSize) {
+        setLayout(layout);
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Route events logged under the test key to the given file from now on
+     */
+    public void register(String testKey, String path) {
+        paths.put(testKey, path);
+    }
+
+    /**
+     * Close the test's file, if anything was written to it, and stop routing its events
+     */
+    public void release(String testKey) {
+        paths.remove(testKey);
+        FileAppender file = files.remove(testKey);
+        if (file != null) {
+            file.close();
+        }
+    }
+
+    /**
+     * Number of test files open right now
+     */
+    public int openCount() {
+        return files.size();
+    }
+
+    /**
+     * Unlike AppenderSkeleton this is not synchronized, events for different tests go to
+     * different files and each file appender does its own locking
+     */
+    @Override
+    public void doAppend(LoggingEvent event) {
+        if (closed || !isAsSevereAsThreshold(event.getLevel())) {
+            return;
+        }
+        for (Filter filter = getFirstFilter(); filter != null; filter = filter.getNext()) {
+            int decision = filter.decide(event);
+            if (decision == Filter.DENY) {
+                return;
+            }
+            if (decision == Filter.ACCEPT) {
+                break;
+            }
+        }
+        append(event);
+    }
+
+    @Override
+    protected void append(LoggingEvent event) {
+        Object testKey = event.getMDC(TEST_KEY);
+        if (testKey == null) {
+            return;
+        }
+        FileAppender file = fileFor(testKey.toString());
+        if (file != null) {
+            file.doAppend(event);
+        }
+    }
+
+    private FileAppender fileFor(String testKey) {
+        FileAppender file = files.get(testKey);
+        if (file != null) {
+            return file;
+        }
+        String path = paths.get(testKey);
+        if (path == null) {
+            return null;
+        }
+        return files.computeIfAbsent(testKey, key -> open(path));
+    }
+
+    private FileAppender open(String path) {
+        try {
+            File parent = new File(path).getParentFile();
+            if (parent != null && !parent.exists()) {
+                parent.mkdirs();
+            }
+            if (bufferSize > 0) {
+                return new BufferedFileAppender(getLayout(), path, false, bufferSize);
+            }
+            return new FileAppender(getLayout(), path, false);
+        } catch (IOException ex) {
+            LogLog.error("Unable to open test log " + path, ex);
+            return null;
+        }
+    }
+
+    @Override
+    public void flush() {
+        for (FileAppender file : files.values()) {
+            if (file instanceof Flushable) {
+                try {
+                    ((Flushable) file).flush();
+                } catch (IOException ex) {
+                    LogLog.error("Unable to flush test log", ex);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        List<String> open = new ArrayList<>(files.keySet());
+        for (String testKey : open) {
+            release(testKey);
+        }
+    }
+
+    @Override
+    public boolean requiresLayout() {
+        return true;
+    }
+}
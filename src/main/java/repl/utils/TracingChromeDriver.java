@@ -0,0 +1,19 @@
+package repl.utils;
+
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+
+/**
+ * A ChromeDriver that reports every wire command it sends to the CommandTracer, through a
+ * TracingCommandExecutor around its own executor. Element commands, Actions and scripts all go
+ * through the executor, so nothing is missed but the new session command sent while starting.
+ *
+ * @author Garth Bosch
+ */
+public class TracingChromeDriver extends ChromeDriver {
+
+    public TracingChromeDriver(ChromeOptions options) {
+        super(options);
+        setCommandExecutor(new TracingCommandExecutor(getCommandExecutor()));
+    }
+}
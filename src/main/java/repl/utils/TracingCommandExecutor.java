@@ -0,0 +1,68 @@
+package repl.utils;
+
+import org.apache.log4j.Logger;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.CommandExecutor;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.Response;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+
+/**
+ * A CommandExecutor that reports every wire command it sends to the CommandTracer before handing
+ * it on. Every command of a RemoteWebDriver goes through its executor, so this traces local and
+ * remote sessions alike, e.g.
+ * <pre>
+ * new RemoteWebDriver(new TracingCommandExecutor(new HttpCommandExecutor(gridUrl)), capabilities)
+ * </pre>
+ *
+ * @author Garth Bosch
+ */
+public class TracingCommandExecutor implements CommandExecutor {
+    private static final Logger log = Logging.getLogger(TracingCommandExecutor.class);
+
+    private final CommandExecutor delegate;
+
+    public TracingCommandExecutor(CommandExecutor delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Trace the commands a driver that is already running sends from now on, unless it already
+     * traces them. Does nothing for drivers that aren't a RemoteWebDriver.
+     */
+    public static void trace(WebDriver driver) {
+        if (!(driver instanceof RemoteWebDriver)) {
+            return;
+        }
+        RemoteWebDriver remote = (RemoteWebDriver) driver;
+        CommandExecutor executor = remote.getCommandExecutor();
+        if (executor == null || executor instanceof TracingCommandExecutor) {
+            return;
+        }
+        try {
+            // protected so that only subclasses pick their executor, there is no public way to wrap it
+            Method setCommandExecutor = RemoteWebDriver.class.getDeclaredMethod("setCommandExecutor", CommandExecutor.class);
+            setCommandExecutor.setAccessible(true);
+            setCommandExecutor.invoke(remote, new TracingCommandExecutor(executor));
+        } catch (Exception ex) {
+            log.error("Unable to trace the commands of " + driver.getClass().getName() + " - " + ex.getMessage());
+        }
+    }
+
+    public CommandExecutor getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public Response execute(Command command) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return delegate.execute(command);
+        } finally {
+            CommandTracer.record(command.getName(), System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package repl.utils;
+
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.FluentWait;
+import org.openqa.selenium.support.ui.Wait;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Owns every timeout the utils use. The driver's implicit wait is kept at zero so that each
+ * explicit wait gets exactly its own budget instead of stacking an implicit wait on every poll.
+ * <p>
+ * A policy is shared by all the threads using a utils instance. Changes are published safely
+ * but are meant to be made before the tests start.
+ *
+ * @author Garth Bosch
+ */
+public class WaitPolicy {
+    private static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration DEFAULT_ABSENT_TIMEOUT = Duration.ofMillis(500);
+    private static final Duration DEFAULT_PAGE_LOAD_TIMEOUT = Duration.ofSeconds(120);
+    private static final Duration DEFAULT_FIRST_POLL = Duration.ofMillis(25);
+    private static final double DEFAULT_POLL_BACKOFF = 2;
+    private static final Duration DEFAULT_MAX_POLL = Duration.ofMillis(600);
+    private static final Duration DEFAULT_QUIET_WINDOW = Duration.ofMillis(50);
+    private static final Duration DEFAULT_QUIET_TIMEOUT = Duration.ofSeconds(2);
+    private static final Duration DEFAULT_PAGE_READY_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration SCRIPT_TIMEOUT_MARGIN = Duration.ofSeconds(1);
+
+    /**
+     * The kinds of waits the utils perform, each with its own budget
+     */
+    public enum Budget {
+        CLICKABLE,
+        VISIBLE,
+        PRESENT,
+        ABSENT
+    }
+
+    private volatile Map<Budget, Duration> budgets = new EnumMap<>(Budget.class);
+    private volatile Duration implicitWait = Duration.ZERO;
+    private volatile Duration pageLoadTimeout = DEFAULT_PAGE_LOAD_TIMEOUT;
+    private volatile Duration quietWindow = DEFAULT_QUIET_WINDOW;
+    private volatile Duration quietTimeout = DEFAULT_QUIET_TIMEOUT;
+    private volatile Duration pageReadyTimeout = DEFAULT_PAGE_READY_TIMEOUT;
+    private volatile PollingStrategy pollingStrategy = new BackoffPollingStrategy(DEFAULT_FIRST_POLL, DEFAULT_POLL_BACKOFF,
+            DEFAULT_MAX_POLL);
+
+    public WaitPolicy() {
+        budgets.put(Budget.CLICKABLE, DEFAULT_TIMEOUT);
+        budgets.put(Budget.VISIBLE, DEFAULT_TIMEOUT);
+        budgets.put(Budget.PRESENT, DEFAULT_TIMEOUT);
+        budgets.put(Budget.ABSENT, DEFAULT_ABSENT_TIMEOUT);
+    }
+
+    /**
+     * Push the driver level timeouts onto the given driver
+     */
+    public void applyTo(WebDriver driver) {
+        driver.manage().timeouts().implicitlyWait(implicitWait.toMillis(), TimeUnit.MILLISECONDS);
+        driver.manage().timeouts().pageLoadTimeout(pageLoadTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        // the in page waits time themselves out first so that they can say what they saw
+        driver.manage().timeouts().setScriptTimeout(getLongestWait().plus(SCRIPT_TIMEOUT_MARGIN).toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * The longest of the budgets and the page ready timeout
+     */
+    private Duration getLongestWait() {
+        Duration longest = pageReadyTimeout;
+        for (Duration budget : budgets.values()) {
+            if (budget.compareTo(longest) > 0) {
+                longest = budget;
+            }
+        }
+        return longest;
+    }
+
+    /**
+     * Create a wait bounded by the budget for the given kind of wait
+     */
+    public Wait<WebDriver> newWait(WebDriver driver, Budget budget) {
+        return newWait(driver, budget, null);
+    }
+
+    /**
+     * Create a wait bounded by the budget for the given kind of wait, or less if the test running
+     * on this thread has failed or is running out of time, see CascadeBreaker. It polls as the
+     * polling strategy decides for the given key.
+     */
+    public Wait<WebDriver> newWait(WebDriver driver, Budget budget, String key) {
+        return newWait(driver, getTimeout(budget), key);
+    }
+
+    /**
+     * Create a wait bounded by the timeout instead of a budget, capped the same way, e.g. for
+     * what is left of a wait that started some other way
+     */
+    public Wait<WebDriver> newWait(WebDriver driver, Duration timeout, String key) {
+        Duration capped = CascadeBreaker.cap(timeout);
+        return new FluentWait<>(driver, Clock.systemDefaultZone(), pollingStrategy.newSleeper(key, capped))
+                .withTimeout(capped).ignoring(NoSuchElementException.class);
+    }
+
+    /**
+     * Wait for the condition and let the polling strategy know how long it took to succeed. The
+     * time waited and the number of polls are added to the step running on this thread, see
+     * StepMetrics, whether the wait succeeds or not.
+     *
+     * @param key - identifies what is being waited for, e.g. the locator. Null waits are not
+     *            passed on to the polling strategy
+     */
+    public <T> T until(WebDriver driver, Budget budget, String key, Function<? super WebDriver, T> condition) {
+        return until(driver, getTimeout(budget), key, condition);
+    }
+
+    /**
+     * Wait for the condition like until(WebDriver, Budget, String, Function) but within the
+     * timeout instead of a budget
+     */
+    public <T> T until(WebDriver driver, Duration timeout, String key, Function<? super WebDriver, T> condition) {
+        long start = System.nanoTime();
+        long[] polls = new long[1];
+        try {
+            T result = newWait(driver, timeout, key).until(webDriver -> {
+                polls[0]++;
+                return condition.apply(webDriver);
+            });
+            if (key != null) {
+                pollingStrategy.recordWait(key, Duration.ofNanos(System.nanoTime() - start));
+            }
+            return result;
+        } finally {
+            StepMetrics.recordWait(System.nanoTime() - start, polls[0]);
+        }
+    }
+
+    public Duration getTimeout(Budget budget) {
+        return budgets.get(budget);
+    }
+
+    public synchronized void setTimeout(Budget budget, Duration timeout) {
+        Map<Budget, Duration> updated = new EnumMap<>(budgets);
+        updated.put(budget, timeout);
+        budgets = updated;
+    }
+
+    /**
+     * Set the budget of every element wait except the absent check
+     */
+    public synchronized void setElementTimeout(Duration timeout) {
+        Map<Budget, Duration> updated = new EnumMap<>(budgets);
+        updated.put(Budget.CLICKABLE, timeout);
+        updated.put(Budget.VISIBLE, timeout);
+        updated.put(Budget.PRESENT, timeout);
+        budgets = updated;
+    }
+
+    public Duration getImplicitWait() {
+        return implicitWait;
+    }
+
+    /**
+     * Anything above zero is added to every poll of every explicit wait, so only use this for
+     * code that relies on driver.findElement blocking.
+     */
+    public void setImplicitWait(Duration implicitWait) {
+        this.implicitWait = implicitWait;
+    }
+
+    public Duration getPageLoadTimeout() {
+        return pageLoadTimeout;
+    }
+
+    public void setPageLoadTimeout(Duration pageLoadTimeout) {
+        this.pageLoadTimeout = pageLoadTimeout;
+    }
+
+    /**
+     * How long the page must go without a request or DOM change to count as ready
+     */
+    public Duration getQuietWindow() {
+        return quietWindow;
+    }
+
+    public void setQuietWindow(Duration quietWindow) {
+        this.quietWindow = quietWindow;
+    }
+
+    /**
+     * The longest to wait for the quiet window once the document has loaded. Pages with
+     * carousels, timers or beacons may never go quiet, so after this they count as ready anyway.
+     */
+    public Duration getQuietTimeout() {
+        return quietTimeout;
+    }
+
+    public void setQuietTimeout(Duration quietTimeout) {
+        this.quietTimeout = quietTimeout;
+    }
+
+    /**
+     * The longest to wait for the document to load. The driver's script timeout is set from it
+     * and the budgets by applyTo, so set them before the session starts.
+     */
+    public Duration getPageReadyTimeout() {
+        return pageReadyTimeout;
+    }
+
+    public void setPageReadyTimeout(Duration pageReadyTimeout) {
+        this.pageReadyTimeout = pageReadyTimeout;
+    }
+
+    public PollingStrategy getPollingStrategy() {
+        return pollingStrategy;
+    }
+
+    public void setPollingStrategy(PollingStrategy pollingStrategy) {
+        this.pollingStrategy = pollingStrategy;
+    }
+
+    /**
+     * Poll at a fixed interval instead of backing off
+     */
+    public void setPollingInterval(Duration pollingInterval) {
+        this.pollingStrategy = PollingStrategy.fixed(pollingInterval);
+    }
+}
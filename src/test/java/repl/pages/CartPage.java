@@ -0,0 +1,22 @@
+package repl.pages;
+
+import repl.utils.Locate;
+import repl.utils.PageElement;
+import repl.utils.PageObject;
+import repl.utils.Prefetch;
+import repl.utils.SeleniumWebDriverUtils;
+
+@Prefetch
+public class CartPage extends PageObject {
+
+    @Locate(css = "#shopfront-app > div.grid-container.cart.cart-content-module_cart_3W93Z > div.grid-x.cart-content-module_cart-container_1ucKG > section > div:nth-child(2) > div.cell.auto.small-order-2.large-order-1 > div:nth-child(1) > div > div > article > div > div > div.cell.auto > div > div:nth-child(1) > div > div.cell.small-12.medium-auto > div:nth-child(1) > div > a > h3")
+    private PageElement firstItemTitle;
+
+    public CartPage(SeleniumWebDriverUtils driver) {
+        super(driver);
+    }
+
+    public String getFirstItemTitle() {
+        return firstItemTitle.getText();
+    }
+}
@@ -0,0 +1,27 @@
+package repl.pages;
+
+import repl.utils.Locate;
+import repl.utils.PageElement;
+import repl.utils.PageObject;
+import repl.utils.Prefetch;
+import repl.utils.SeleniumWebDriverUtils;
+
+@Prefetch
+public class HomePage extends PageObject {
+
+    @Locate(css = "#shopfront-app > header > div > div > div.auto.cell > form > div > div.input-group-field.search-group.cell.auto > input")
+    private PageElement searchInput;
+
+    @Locate(css = "#shopfront-app > header > div > div > div.auto.cell > form > div > div.input-group-button > button")
+    private PageElement searchButton;
+
+    public HomePage(SeleniumWebDriverUtils driver) {
+        super(driver);
+    }
+
+    public SearchResultsPage search(String text) {
+        searchInput.enterText(text);
+        searchButton.click();
+        return new SearchResultsPage(driver);
+    }
+}
@@ -0,0 +1,42 @@
+package repl.pages;
+
+import repl.utils.Locate;
+import repl.utils.Locator;
+import repl.utils.LocatorChain;
+import repl.utils.PageElement;
+import repl.utils.PageObject;
+import repl.utils.Prefetch;
+import repl.utils.SeleniumWebDriverUtils;
+
+@Prefetch
+public class ProductPage extends PageObject {
+
+    @Locate(css = "#shopfront-app > div.pdp.pdp-module_pdp_1CPrg > div.grid-container.pdp-grid-container > div:nth-child(2) > div > div.pdp-main-panel > div > div > div.cell.medium-auto > div.pdp-core-module_actions_mdYzm > div.pdp-core-module_variant-selector_1bbqR > div > div > div.grid-x > div > div:nth-child(3) > button")
+    private PageElement sizeOption;
+
+    @Locate(css = "#shopfront-app > div.pdp.pdp-module_pdp_1CPrg > div.grid-container.pdp-grid-container > div:nth-child(2) > aside > div.pdp-module_sidebar-buybox_1m6Sm > div.buybox-actions-container.buybox-module_buybox-actions_2g4b2 > div > div > div.action-cart.buybox-actions-module_button-cell_2dQyM.buybox-actions-module_add-to-cart-cell_3fXyS > a")
+    private PageElement addToCart;
+
+    /**
+     * In the popup shown after adding to cart, the generated xpath breaks whenever the popup's
+     * markup moves
+     */
+    private static final LocatorChain GO_TO_CART = LocatorChain.of("product.goToCart",
+            Locator.xpath("//*[@id=\"body\"]/div[8]/div[1]/div/div/div/div/div[2]/div/div[1]/div/div[1]/div/div/div[2]/div[3]/button"),
+            Locator.text("Go to Cart"));
+
+    public ProductPage(SeleniumWebDriverUtils driver) {
+        super(driver);
+    }
+
+    public ProductPage selectSize() {
+        sizeOption.click();
+        return this;
+    }
+
+    public CartPage addToCartAndCheckout() {
+        addToCart.click();
+        driver.clickElement(GO_TO_CART);
+        return new CartPage(driver);
+    }
+}
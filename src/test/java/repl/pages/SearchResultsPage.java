@@ -0,0 +1,23 @@
+package repl.pages;
+
+import repl.utils.Locate;
+import repl.utils.PageElement;
+import repl.utils.PageObject;
+import repl.utils.Prefetch;
+import repl.utils.SeleniumWebDriverUtils;
+
+@Prefetch
+public class SearchResultsPage extends PageObject {
+
+    @Locate(xpath = "//*[@id=\"60868318\"]/div/div[3]/div/a")
+    private PageElement showAllOptions;
+
+    public SearchResultsPage(SeleniumWebDriverUtils driver) {
+        super(driver);
+    }
+
+    public ProductPage openFirstProduct() {
+        showAllOptions.click();
+        return new ProductPage(driver);
+    }
+}
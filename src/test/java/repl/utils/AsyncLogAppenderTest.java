@@ -0,0 +1,123 @@
+package repl.utils;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class AsyncLogAppenderTest {
+
+    @Test
+    public void writesEveryEventInOrderBeforeClosing() {
+        CollectingAppender collected = new CollectingAppender();
+        AsyncLogAppender async = new AsyncLogAppender(16, AsyncLogAppender.OverflowPolicy.BLOCK, 4, false);
+        async.addAppender(collected);
+        Logger logger = Logger.getLogger("async-test");
+
+        for (int i = 0; i < 100; i++) {
+            async.doAppend(new LoggingEvent(Logger.class.getName(), logger, Level.INFO, "event " + i, null));
+        }
+        async.close();
+
+        Assert.assertEquals(collected.messages.size(), 100);
+        Assert.assertEquals(collected.messages.get(0), "event 0");
+        Assert.assertEquals(collected.messages.get(99), "event 99");
+        Assert.assertTrue(collected.wasClosed);
+    }
+
+    @Test
+    public void keepsQueuedTasksWhenDroppingTheOldestEvents() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CollectingAppender collected = new CollectingAppender() {
+            @Override
+            protected void append(LoggingEvent event) {
+                writing.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                super.append(event);
+            }
+        };
+        AsyncLogAppender async = new AsyncLogAppender(2, AsyncLogAppender.OverflowPolicy.DROP_OLDEST, 4, false);
+        async.addAppender(collected);
+        Logger logger = Logger.getLogger("async-test");
+        AtomicBoolean taskRan = new AtomicBoolean();
+
+        async.doAppend(new LoggingEvent(Logger.class.getName(), logger, Level.INFO, "event 0", null));
+        Assert.assertTrue(writing.await(5, TimeUnit.SECONDS));
+        async.afterQueued(() -> taskRan.set(true));
+        for (int i = 1; i <= 10; i++) {
+            async.doAppend(new LoggingEvent(Logger.class.getName(), logger, Level.INFO, "event " + i, null));
+        }
+        Assert.assertEquals(async.getDroppedCount(), 9);
+        release.countDown();
+        async.close();
+
+        Assert.assertTrue(taskRan.get());
+        Assert.assertEquals(collected.messages.get(collected.messages.size() - 1), "event 10");
+        int report = collected.messages.indexOf("9 log events were dropped because the log queue was full");
+        Assert.assertTrue(report >= 0);
+        Assert.assertEquals(collected.sources.get(report), AsyncLogAppender.class.getName());
+    }
+
+    @Test
+    public void formatsPlaceholdersInOrder() {
+        Assert.assertEquals(Logging.format("{} clicked with attribute type {}", "#cart", "css"),
+                "#cart clicked with attribute type css");
+        Assert.assertEquals(Logging.format("no placeholders"), "no placeholders");
+        Assert.assertEquals(Logging.format("{} and {}", "one"), "one and {}");
+    }
+
+    @Test
+    public void helpersReportTheirCallerAsTheSource() {
+        CollectingAppender collected = new CollectingAppender();
+        AsyncLogAppender async = new AsyncLogAppender(16, AsyncLogAppender.OverflowPolicy.BLOCK, 4, true);
+        async.addAppender(collected);
+        Logger logger = Logger.getLogger("async-test.helpers");
+        logger.setAdditivity(false);
+        logger.addAppender(async);
+
+        Logging.warn(logger, "{} left", 3);
+        Logging.warn(logger, () -> "done");
+        logger.removeAppender(async);
+        async.close();
+
+        Assert.assertEquals(collected.messages.size(), 2);
+        Assert.assertEquals(collected.messages.get(0), "3 left");
+        Assert.assertEquals(collected.sources.get(0), AsyncLogAppenderTest.class.getName());
+        Assert.assertEquals(collected.sources.get(1), AsyncLogAppenderTest.class.getName());
+    }
+
+    private static class CollectingAppender extends AppenderSkeleton {
+        private final List<String> messages = new CopyOnWriteArrayList<>();
+        private final List<String> sources = new CopyOnWriteArrayList<>();
+        private volatile boolean wasClosed;
+
+        @Override
+        protected void append(LoggingEvent event) {
+            messages.add(event.getRenderedMessage());
+            sources.add(event.getLocationInformation().getClassName());
+        }
+
+        @Override
+        public void close() {
+            wasClosed = true;
+        }
+
+        @Override
+        public boolean requiresLayout() {
+            return false;
+        }
+    }
+}
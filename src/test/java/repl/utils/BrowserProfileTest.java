@@ -0,0 +1,61 @@
+package repl.utils;
+
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BrowserProfileTest {
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void leanProfileRunsHeadlessAndBlocksHeavyResources() {
+        ChromeOptions chromeOptions = new ChromeOptions();
+        Map<String, Object> chromePrefs = new HashMap<>();
+
+        BrowserProfile.lean().applyTo(chromeOptions, chromePrefs);
+
+        Map<String, Object> options = (Map<String, Object>) chromeOptions.asMap().get(ChromeOptions.CAPABILITY);
+        List<String> arguments = (List<String>) options.get("args");
+        Assert.assertTrue(arguments.contains("--headless"));
+        Assert.assertTrue(arguments.contains("--window-size=1366,768"));
+        Assert.assertTrue(arguments.contains("--disable-remote-fonts"));
+        Assert.assertTrue(arguments.stream().anyMatch(a -> a.startsWith("--host-resolver-rules=")
+                && a.contains("MAP *.doubleclick.net ~NOTFOUND")));
+        Assert.assertEquals(chromePrefs.get("profile.managed_default_content_settings.images"), 2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void standardProfileChangesNothing() {
+        ChromeOptions chromeOptions = new ChromeOptions();
+        Map<String, Object> chromePrefs = new HashMap<>();
+
+        BrowserProfile.standard().applyTo(chromeOptions, chromePrefs);
+
+        Map<String, Object> options = (Map<String, Object>) chromeOptions.asMap().get(ChromeOptions.CAPABILITY);
+        Assert.assertTrue(((List<String>) options.get("args")).isEmpty());
+        Assert.assertTrue(chromePrefs.isEmpty());
+        Assert.assertNull(BrowserProfile.standard().getViewport());
+    }
+
+    @Test
+    public void fallsBackToTheStandardProfileForAnUnknownName() {
+        String saved = System.setProperty(BrowserProfile.PROFILE_PROPERTY, "leen");
+        try {
+            BrowserProfile profile = BrowserProfile.fromSystemProperty();
+
+            Assert.assertFalse(profile.isHeadless());
+            Assert.assertTrue(profile.getBlockedHosts().isEmpty());
+        } finally {
+            if (saved == null) {
+                System.clearProperty(BrowserProfile.PROFILE_PROPERTY);
+            } else {
+                System.setProperty(BrowserProfile.PROFILE_PROPERTY, saved);
+            }
+        }
+    }
+}
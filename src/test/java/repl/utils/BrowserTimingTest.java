@@ -0,0 +1,101 @@
+package repl.utils;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.logging.LogEntries;
+import org.openqa.selenium.logging.LogEntry;
+import org.openqa.selenium.logging.Logs;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+
+public class BrowserTimingTest {
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() {
+        StepMetrics.setTimingSource(null);
+        StepMetrics.endTest();
+    }
+
+    private static WebDriver driver(Map<String, Object> page, String... performanceLog) {
+        LogEntries entries = new LogEntries(Arrays.stream(performanceLog)
+                .map(message -> new LogEntry(Level.INFO, 0, message))
+                .collect(Collectors.toList()));
+        Logs logs = (Logs) Proxy.newProxyInstance(BrowserTimingTest.class.getClassLoader(),
+                new Class<?>[]{Logs.class}, (proxy, method, args) -> entries);
+        WebDriver.Options options = (WebDriver.Options) Proxy.newProxyInstance(BrowserTimingTest.class.getClassLoader(),
+                new Class<?>[]{WebDriver.Options.class}, (proxy, method, args) -> logs);
+        return (WebDriver) Proxy.newProxyInstance(BrowserTimingTest.class.getClassLoader(),
+                new Class<?>[]{WebDriver.class, JavascriptExecutor.class},
+                (proxy, method, args) -> "manage".equals(method.getName()) ? options : page);
+    }
+
+    private static Map<String, Object> page() {
+        Map<String, Object> navigation = new HashMap<>();
+        navigation.put("ttfb", 420L);
+        navigation.put("load", 1800L);
+        Map<String, Object> page = new HashMap<>();
+        page.put("navigation", navigation);
+        page.put("resources", 12L);
+        page.put("resourceBytes", 204800L);
+        page.put("resourceMs", 950L);
+        page.put("slowest", "https://cdn.example.com/app.js");
+        page.put("slowestMs", 310L);
+        return page;
+    }
+
+    @Test
+    public void readsTheNavigationAndResourceTimingOfThePage() {
+        BrowserTiming timing = BrowserTiming.collect(driver(page()), BrowserTiming.Mode.PAGE);
+
+        Assert.assertEquals(timing.getNavigationTtfbMillis(), 420);
+        Assert.assertEquals(timing.getNavigationLoadMillis(), 1800);
+        Assert.assertEquals(timing.getResources(), 12);
+        Assert.assertEquals(timing.getResourceBytes(), 204800);
+        Assert.assertEquals(timing.getSlowestResource(), "https://cdn.example.com/app.js");
+        Assert.assertEquals(timing.getNetworkRequests(), -1);
+        Assert.assertEquals(timing.getServerMillis(), 420);
+        Assert.assertNull(BrowserTiming.collect(driver(page()), BrowserTiming.Mode.OFF));
+    }
+
+    @Test
+    public void readsRequestsAndServerWaitsFromThePerformanceLog() {
+        WebDriver driver = driver(new HashMap<>(),
+                "{\"message\":{\"method\":\"Network.requestWillBeSent\",\"params\":{\"requestId\":\"1\"}}}",
+                "{\"message\":{\"method\":\"Network.responseReceived\",\"params\":{\"response\":"
+                        + "{\"timing\":{\"sendEnd\":2.5,\"receiveHeadersEnd\":640.7}}}}}",
+                "{\"message\":{\"method\":\"Network.loadingFinished\",\"params\":{\"encodedDataLength\":4096}}}",
+                "{\"message\":{\"method\":\"Page.loadEventFired\",\"params\":{}}}");
+
+        BrowserTiming timing = BrowserTiming.collect(driver, BrowserTiming.Mode.LOG);
+
+        Assert.assertEquals(timing.getNetworkRequests(), 1);
+        Assert.assertEquals(timing.getNetworkBytes(), 4096);
+        Assert.assertEquals(timing.getServerWaitMillis(), 638);
+        Assert.assertEquals(timing.getNavigationTtfbMillis(), -1);
+        Assert.assertEquals(timing.getServerMillis(), 638);
+    }
+
+    @Test
+    public void addsTheTimingOfEachStepToItsMetrics() {
+        WebDriver driver = driver(page());
+        StepMetrics test = StepMetrics.startTest("timing");
+        StepMetrics.setTimingSource(() -> BrowserTiming.collect(driver, BrowserTiming.Mode.PAGE));
+
+        try (StepMetrics.Step step = StepMetrics.start("openURL", "https://www.takealot.com/")) {
+            step.ok();
+        }
+
+        StepMetrics.StepStats stats = test.getStep("openURL", "https://www.takealot.com/");
+        Assert.assertEquals(stats.getServerTime().getTotalMillis(), 420);
+        Assert.assertEquals(stats.getResources(), 12);
+        Assert.assertEquals(stats.getResourceTime().getTotalMillis(), 950);
+    }
+}
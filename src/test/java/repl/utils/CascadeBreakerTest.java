@@ -0,0 +1,77 @@
+package repl.utils;
+
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+
+public class CascadeBreakerTest {
+    private static final Duration BUDGET = Duration.ofSeconds(30);
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() {
+        CascadeBreaker.endTest();
+    }
+
+    @Test
+    public void leavesWaitsAloneOutsideATest() {
+        Assert.assertNull(CascadeBreaker.current());
+        Assert.assertEquals(CascadeBreaker.cap(BUDGET), BUDGET);
+    }
+
+    @Test
+    public void cutsLaterWaitsToTheResidualOnceAnActionFails() {
+        CascadeBreaker breaker = CascadeBreaker.startTest("checkout", null, Duration.ofMillis(250));
+
+        try (StepMetrics.Step step = StepMetrics.check("isElementPresent", "css=#popup")) {
+            Assert.assertNotNull(step);
+        }
+        Assert.assertFalse(breaker.isTripped());
+        Assert.assertEquals(CascadeBreaker.cap(BUDGET), BUDGET);
+
+        try (StepMetrics.Step step = StepMetrics.start("clickElement", "css=#add-to-cart")) {
+            Assert.assertNotNull(step);
+        }
+        try (StepMetrics.Step step = StepMetrics.start("clickElement", "css=#go-to-cart")) {
+            Assert.assertNotNull(step);
+        }
+
+        Assert.assertTrue(breaker.isTripped());
+        Assert.assertEquals(breaker.getFirstFailure().getAction(), "clickElement");
+        Assert.assertEquals(breaker.getFirstFailure().getTarget(), "css=#add-to-cart");
+        Assert.assertEquals(CascadeBreaker.cap(BUDGET), Duration.ofMillis(250));
+        Assert.assertEquals(CascadeBreaker.cap(Duration.ofMillis(100)), Duration.ofMillis(100));
+    }
+
+    @Test
+    public void cutsWaitsToWhatIsLeftOfTheTestBudget() {
+        CascadeBreaker.startTest("checkout", Duration.ofSeconds(5), Duration.ZERO);
+
+        Duration capped = CascadeBreaker.cap(BUDGET);
+
+        Assert.assertTrue(capped.compareTo(Duration.ofSeconds(5)) <= 0);
+        Assert.assertTrue(capped.compareTo(Duration.ofSeconds(4)) > 0);
+    }
+
+    @Test
+    public void givesASingleCheckOnceTheWaitIsCut() {
+        CascadeBreaker.startTest("checkout", Duration.ZERO, Duration.ZERO);
+        int[] checks = new int[1];
+        WebDriver driver = (WebDriver) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{WebDriver.class}, (proxy, method, args) -> null);
+
+        try {
+            new WaitPolicy().until(driver, WaitPolicy.Budget.CLICKABLE, null, webDriver -> {
+                checks[0]++;
+                return null;
+            });
+            Assert.fail("The wait should have timed out");
+        } catch (TimeoutException ex) {
+            Assert.assertEquals(checks[0], 1);
+        }
+    }
+}
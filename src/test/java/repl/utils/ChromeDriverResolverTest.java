@@ -0,0 +1,105 @@
+package repl.utils;
+
+import org.openqa.selenium.WebDriverException;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+public class ChromeDriverResolverTest {
+    private static final String[] PROPERTIES = {ChromeDriverResolver.CHROME_DRIVER_PROPERTY,
+            ChromeDriverResolver.PINNED_PATH_PROPERTY, ChromeDriverResolver.OFFLINE_CACHE_PROPERTY,
+            ChromeDriverResolver.VERSION_PROPERTY};
+
+    private final String[] saved = new String[PROPERTIES.length];
+    private Path dir;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        for (int i = 0; i < PROPERTIES.length; i++) {
+            saved[i] = System.clearProperty(PROPERTIES[i]);
+        }
+        ChromeDriverResolver.reset();
+        dir = Files.createTempDirectory("chromedriver-cache");
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() throws IOException {
+        for (int i = 0; i < PROPERTIES.length; i++) {
+            if (saved[i] == null) {
+                System.clearProperty(PROPERTIES[i]);
+            } else {
+                System.setProperty(PROPERTIES[i], saved[i]);
+            }
+        }
+        ChromeDriverResolver.reset();
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Test
+    public void picksTheNewestVersionFromTheOfflineCache() throws IOException {
+        driverIn("chromedriver/linux64/99.0.4844.51");
+        Path newest = driverIn("chromedriver/linux64/114.0.5735.90");
+        driverIn("chromedriver/linux64/114.0.5735.16");
+        System.setProperty(ChromeDriverResolver.OFFLINE_CACHE_PROPERTY, dir.toString());
+
+        Assert.assertEquals(ChromeDriverResolver.resolve(), newest.toAbsolutePath().toString());
+        Assert.assertEquals(ChromeDriverResolver.getSource(), ChromeDriverResolver.Source.OFFLINE_CACHE);
+        Assert.assertEquals(System.getProperty(ChromeDriverResolver.CHROME_DRIVER_PROPERTY),
+                newest.toAbsolutePath().toString());
+    }
+
+    @Test
+    public void prefersThePinnedVersionInTheOfflineCache() throws IOException {
+        Path pinned = driverIn("chromedriver/linux64/99.0.4844.51");
+        driverIn("chromedriver/linux64/114.0.5735.90");
+        System.setProperty(ChromeDriverResolver.OFFLINE_CACHE_PROPERTY, dir.toString());
+        System.setProperty(ChromeDriverResolver.VERSION_PROPERTY, "99.0.4844.51");
+
+        Assert.assertEquals(ChromeDriverResolver.resolve(), pinned.toAbsolutePath().toString());
+    }
+
+    @Test
+    public void matchesThePinnedVersionExactly() throws IOException {
+        Path pinned = driverIn("chromedriver/linux64/114.0.5735.9");
+        driverIn("chromedriver/linux64/114.0.5735.90");
+        driverIn("114.0.5735.9-old/chromedriver/linux64/99.0.4844.51");
+        System.setProperty(ChromeDriverResolver.OFFLINE_CACHE_PROPERTY, dir.toString());
+        System.setProperty(ChromeDriverResolver.VERSION_PROPERTY, "114.0.5735.9");
+
+        Assert.assertEquals(ChromeDriverResolver.resolve(), pinned.toAbsolutePath().toString());
+    }
+
+    @Test
+    public void usesThePinnedPathBeforeTheOfflineCache() throws IOException {
+        Path pinned = driverIn("pinned");
+        driverIn("chromedriver/linux64/114.0.5735.90");
+        System.setProperty(ChromeDriverResolver.PINNED_PATH_PROPERTY, pinned.toString());
+        System.setProperty(ChromeDriverResolver.OFFLINE_CACHE_PROPERTY, dir.toString());
+
+        Assert.assertEquals(ChromeDriverResolver.resolve(), pinned.toString());
+        Assert.assertEquals(ChromeDriverResolver.getSource(), ChromeDriverResolver.Source.PINNED_PATH);
+    }
+
+    @Test(expectedExceptions = WebDriverException.class)
+    public void rejectsAPinnedPathThatIsNotThere() {
+        System.setProperty(ChromeDriverResolver.PINNED_PATH_PROPERTY, dir.resolve("missing").toString());
+
+        ChromeDriverResolver.resolve();
+    }
+
+    private Path driverIn(String subDir) throws IOException {
+        Path driver = Files.createDirectories(dir.resolve(subDir)).resolve("chromedriver");
+        Files.write(driver, new byte[0]);
+        Assert.assertTrue(driver.toFile().setExecutable(true));
+        return driver;
+    }
+}
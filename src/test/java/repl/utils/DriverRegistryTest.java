@@ -0,0 +1,104 @@
+package repl.utils;
+
+import org.openqa.selenium.WebDriver;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DriverRegistryTest {
+    private final AtomicInteger quits = new AtomicInteger();
+    private DriverRegistry registry;
+
+    @BeforeMethod
+    public void setUp() {
+        quits.set(0);
+        registry = new DriverRegistry();
+    }
+
+    @Test
+    public void eachThreadGetsTheDriverItRegistered() throws Exception {
+        WebDriver mine = stubDriver();
+        WebDriver theirs = stubDriver();
+        registry.register(mine);
+
+        Assert.assertSame(onOtherThread(() -> {
+            Assert.assertNull(registry.get());
+            registry.register(theirs);
+            return registry.get();
+        }), theirs);
+
+        Assert.assertSame(registry.get(), mine);
+        Assert.assertEquals(registry.size(), 2);
+    }
+
+    @Test
+    public void releaseOnlyDropsTheCallingThreadsDriver() throws Exception {
+        WebDriver mine = stubDriver();
+        WebDriver theirs = stubDriver();
+        registry.register(mine);
+
+        Assert.assertSame(onOtherThread(() -> {
+            registry.register(theirs);
+            return registry.release();
+        }), theirs);
+
+        Assert.assertSame(registry.get(), mine);
+        Assert.assertEquals(registry.size(), 1);
+        Assert.assertSame(registry.release(), mine);
+        Assert.assertNull(registry.get());
+        Assert.assertEquals(quits.get(), 0);
+    }
+
+    @Test
+    public void aDriverQuitFromAnotherThreadIsNotHandedOut() throws Exception {
+        ExecutorService worker = Executors.newSingleThreadExecutor();
+        try {
+            WebDriver theirs = stubDriver();
+            worker.submit(() -> registry.register(theirs)).get(5, TimeUnit.SECONDS);
+            registry.register(stubDriver());
+
+            registry.quitAll();
+
+            Assert.assertEquals(quits.get(), 2);
+            Assert.assertEquals(registry.size(), 0);
+            Assert.assertNull(worker.submit(registry::get).get(5, TimeUnit.SECONDS));
+            Assert.assertNull(worker.submit(registry::release).get(5, TimeUnit.SECONDS));
+            Assert.assertNull(registry.get());
+        } finally {
+            worker.shutdownNow();
+        }
+    }
+
+    private <T> T onOtherThread(Callable<T> task) throws Exception {
+        ExecutorService worker = Executors.newSingleThreadExecutor();
+        try {
+            return worker.submit(task).get(5, TimeUnit.SECONDS);
+        } finally {
+            worker.shutdownNow();
+        }
+    }
+
+    private WebDriver stubDriver() {
+        return (WebDriver) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{WebDriver.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "quit":
+                            quits.incrementAndGet();
+                            return null;
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                    }
+                });
+    }
+}
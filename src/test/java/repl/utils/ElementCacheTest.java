@@ -0,0 +1,92 @@
+package repl.utils;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+public class ElementCacheTest {
+    private static final Locator BUTTON = Locator.id("add-to-cart");
+
+    private final Map<String, Object> page = new HashMap<>();
+    private final WebElement button = (WebElement) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[]{WebElement.class}, (proxy, method, args) -> null);
+    private final WebDriver driver = (WebDriver) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[]{WebDriver.class, JavascriptExecutor.class}, (proxy, method, args) -> {
+                if (page.containsKey("stale")) {
+                    throw new StaleElementReferenceException("element is not attached to the page document");
+                }
+                return new HashMap<>(page);
+            });
+
+    private void pageState(String generation, boolean visible, boolean enabled) {
+        page.clear();
+        page.put("generation", generation);
+        page.put("connected", true);
+        page.put("visible", visible);
+        page.put("enabled", enabled);
+    }
+
+    @Test
+    public void reusesTheElementWhileTheGenerationIsUnchanged() {
+        ElementCache cache = new ElementCache();
+        pageState("a:3", true, true);
+
+        Assert.assertNull(cache.lookup(driver, BUTTON, WaitPolicy.Budget.CLICKABLE));
+        cache.put(driver, BUTTON, button);
+
+        Assert.assertSame(cache.lookup(driver, BUTTON, WaitPolicy.Budget.CLICKABLE), button);
+        Assert.assertEquals(cache.getHits(), 1);
+        Assert.assertEquals(cache.getMisses(), 1);
+    }
+
+    @Test
+    public void dropsTheElementWhenThePageChanges() {
+        ElementCache cache = new ElementCache();
+        pageState("a:3", true, true);
+        cache.put(driver, BUTTON, button);
+
+        pageState("a:4", true, true);
+        Assert.assertNull(cache.lookup(driver, BUTTON, WaitPolicy.Budget.PRESENT));
+        Assert.assertEquals(cache.size(), 0);
+
+        cache.put(driver, BUTTON, button);
+        pageState("b:0", true, true);
+        Assert.assertNull(cache.lookup(driver, BUTTON, WaitPolicy.Budget.PRESENT));
+    }
+
+    @Test
+    public void dropsStaleElementsAndElementsNotReadyForTheBudget() {
+        ElementCache cache = new ElementCache();
+        pageState("a:3", true, false);
+        cache.put(driver, BUTTON, button);
+
+        Assert.assertSame(cache.lookup(driver, BUTTON, WaitPolicy.Budget.VISIBLE), button);
+        Assert.assertNull(cache.lookup(driver, BUTTON, WaitPolicy.Budget.CLICKABLE));
+
+        cache.put(driver, BUTTON, button);
+        page.put("stale", true);
+        Assert.assertNull(cache.lookup(driver, BUTTON, WaitPolicy.Budget.PRESENT));
+        Assert.assertEquals(cache.size(), 0);
+    }
+
+    @Test
+    public void keepsOnlyTheMostRecentlyUsedElements() {
+        ElementCache cache = new ElementCache(2);
+        pageState("a:0", true, true);
+        cache.put(driver, Locator.id("one"), button);
+        cache.put(driver, Locator.id("two"), button);
+        cache.lookup(driver, Locator.id("one"), WaitPolicy.Budget.PRESENT);
+        cache.put(driver, Locator.id("three"), button);
+
+        Assert.assertEquals(cache.size(), 2);
+        Assert.assertNotNull(cache.lookup(driver, Locator.id("one"), WaitPolicy.Budget.PRESENT));
+        Assert.assertNull(cache.lookup(driver, Locator.id("two"), WaitPolicy.Budget.PRESENT));
+    }
+}
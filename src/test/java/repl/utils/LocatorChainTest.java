@@ -0,0 +1,64 @@
+package repl.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public class LocatorChainTest {
+    private static final Locator PRIMARY = Locator.xpath("//*[@id=\"60868318\"]/div/div[3]/div/a");
+    private static final Locator BY_TEXT = Locator.text("Show all options");
+    private static final Locator BY_DATA = Locator.dataAttribute("ref", "show-all-options");
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() {
+        LocatorChain.clearWinners();
+    }
+
+    @Test
+    public void triesTheLastWinnerFirstThenTheRestByRank() {
+        LocatorChain chain = LocatorChain.of("results.showAllOptions", PRIMARY, BY_TEXT, BY_DATA);
+        Assert.assertEquals(chain.ordered(), Arrays.asList(PRIMARY, BY_TEXT, BY_DATA));
+        Assert.assertNull(chain.getWinner());
+
+        chain.recordWinner(BY_DATA);
+
+        Assert.assertEquals(chain.ordered(), Arrays.asList(BY_DATA, PRIMARY, BY_TEXT));
+        Assert.assertSame(chain.getWinner(), BY_DATA);
+        Assert.assertEquals(chain.getAlternatives(), Arrays.asList(PRIMARY, BY_TEXT, BY_DATA));
+    }
+
+    @Test
+    public void keepsWinnersBetweenRuns() throws Exception {
+        Path file = Files.createTempDirectory("locator-winners").resolve("winners.properties");
+        LocatorChain chain = LocatorChain.of("results.showAllOptions", PRIMARY, BY_TEXT);
+        chain.recordWinner(BY_TEXT);
+        LocatorChain.saveWinners(file);
+
+        LocatorChain.clearWinners();
+        Assert.assertNull(chain.getWinner());
+        LocatorChain.loadWinners(file);
+
+        Assert.assertSame(chain.getWinner(), BY_TEXT);
+    }
+
+    @Test
+    public void buildsTextAndDataAttributeLocators() {
+        Assert.assertEquals(BY_TEXT.getValue(),
+                "//*[normalize-space(.)='Show all options'][not(*[normalize-space(.)='Show all options'])]");
+        Assert.assertEquals(Locator.text("Men's").getValue(),
+                "//*[normalize-space(.)=\"Men's\"][not(*[normalize-space(.)=\"Men's\"])]");
+        Assert.assertEquals(Locator.text("5'11\"").getValue(),
+                "//*[normalize-space(.)=concat('5', \"'\", '11\"')][not(*[normalize-space(.)=concat('5', \"'\", '11\"')])]");
+        Assert.assertEquals(BY_DATA.getValue(), "[data-ref=\"show-all-options\"]");
+        Assert.assertEquals(BY_DATA.getType(), Locator.Type.CSS);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void rejectsAChainWithoutAlternatives() {
+        LocatorChain.of("empty");
+    }
+}
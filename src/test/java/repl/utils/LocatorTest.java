@@ -0,0 +1,53 @@
+package repl.utils;
+
+import org.openqa.selenium.By;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class LocatorTest {
+
+    @Test
+    public void internsTheSameInstanceForEveryTypeSpelling() {
+        Locator css = Locator.of("#search", "css");
+
+        Assert.assertSame(Locator.of("#search", "css"), css);
+        Assert.assertSame(Locator.of("#search", "CSS"), css);
+        Assert.assertSame(Locator.css("#search"), css);
+        Assert.assertEquals(css.by(), By.cssSelector("#search"));
+        Assert.assertEquals(css.getType(), Locator.Type.CSS);
+    }
+
+    @Test
+    public void compilesEachLocatorType() {
+        Assert.assertEquals(Locator.of("//a", "xpath").by(), By.xpath("//a"));
+        Assert.assertEquals(Locator.of("q", "id").by(), By.id("q"));
+        Assert.assertEquals(Locator.of("q", "name").by(), By.name("q"));
+        Assert.assertEquals(Locator.of("btn", "classname").by(), By.className("btn"));
+        Assert.assertEquals(Locator.of("Cart", "linktext").by(), By.linkText("Cart"));
+        Assert.assertEquals(Locator.of("Ca", "partiallinktext").by(), By.partialLinkText("Ca"));
+    }
+
+    @Test
+    public void stopsInterningOnceTheTypeIsFull() {
+        Locator constant = Locator.partialLinkText("Show all");
+        Locator firstDynamic = Locator.partialLinkText("result-0");
+        for (int i = 1; i <= Locator.MAX_INTERNED_PER_TYPE; i++) {
+            Locator.partialLinkText("result-" + i);
+            Assert.assertSame(Locator.partialLinkText("Show all"), constant);
+        }
+
+        Assert.assertSame(Locator.partialLinkText("result-0"), firstDynamic);
+        Locator overflow = Locator.partialLinkText("overflow");
+        Locator rebuilt = Locator.partialLinkText("overflow");
+        Assert.assertNotSame(rebuilt, overflow);
+        Assert.assertEquals(rebuilt, overflow);
+        Assert.assertEquals(rebuilt.hashCode(), overflow.hashCode());
+        Assert.assertNotEquals(Locator.id("overflow"), overflow);
+    }
+
+    @Test
+    public void returnsNullForUnknownLocatorType() {
+        Assert.assertNull(Locator.of("#search", "tagname"));
+        Assert.assertNull(Locator.of("#search", null));
+    }
+}
@@ -0,0 +1,22 @@
+package repl.utils;
+
+import org.apache.log4j.Logger;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class LoggingTest {
+
+    @Test
+    public void namesTheLoggerAfterTheCallingClass() {
+        Logger logger = Logging.getLogger();
+
+        Assert.assertEquals(logger.getName(), LoggingTest.class.getName());
+        Assert.assertSame(Logging.getLogger(LoggingTest.class), logger);
+    }
+
+    @Test
+    public void resolvesTheCallerFromALambda() {
+        Runnable lookup = () -> Assert.assertEquals(CallerResolver.callerClassName(), LoggingTest.class.getName());
+        lookup.run();
+    }
+}
@@ -0,0 +1,85 @@
+package repl.utils;
+
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebElement;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+
+public class PageObjectTest {
+
+    static class BasePage extends PageObject {
+        @Locate(id = "search")
+        PageElement search;
+
+        BasePage() {
+            super(new SeleniumWebDriverUtils());
+        }
+    }
+
+    static class ResultsPage extends BasePage {
+        @Locate(xpath = "//a[1]")
+        PageElement firstResult;
+
+        @Locate(linkText = "Cart")
+        PageElement cart;
+
+        String notAnElement;
+    }
+
+    static class AmbiguousPage extends PageObject {
+        @Locate(id = "search", css = "#search")
+        PageElement search;
+
+        AmbiguousPage() {
+            super(new SeleniumWebDriverUtils());
+        }
+    }
+
+    @Test
+    public void bindsAnnotatedFieldsIncludingInheritedOnes() {
+        ResultsPage page = new ResultsPage();
+
+        Assert.assertSame(page.search.getLocator(), Locator.id("search"));
+        Assert.assertSame(page.firstResult.getLocator(), Locator.xpath("//a[1]"));
+        Assert.assertSame(page.cart.getLocator(), Locator.linkText("Cart"));
+        Assert.assertEquals(page.firstResult.getName(), "firstResult");
+        Assert.assertNull(page.notAnElement);
+
+        List<PageElement> elements = page.getElements();
+        Assert.assertEquals(elements.size(), 3);
+        Assert.assertSame(elements.get(0), page.search);
+        Assert.assertFalse(page.search.isPrefetched());
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void rejectsMoreThanOneLocateAttribute() {
+        new AmbiguousPage();
+    }
+
+    @Test
+    public void aStaleHandleDoesNotFailTheTestWhenTheLookupSucceeds() {
+        SeleniumWebDriverUtils utils = new SeleniumWebDriverUtils() {
+            @Override
+            public String getText(Locator locator) {
+                return "R 199";
+            }
+        };
+        PageElement price = new PageElement(utils, Locator.css(".price"), "price");
+        price.setHandle((WebElement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{WebElement.class}, (proxy, method, args) -> {
+                    throw new StaleElementReferenceException("detached");
+                }));
+        CascadeBreaker breaker = CascadeBreaker.startTest("checkout", null, Duration.ZERO);
+        try {
+            Assert.assertEquals(price.getText(), "R 199");
+            Assert.assertFalse(price.isPrefetched());
+            Assert.assertFalse(breaker.isTripped());
+        } finally {
+            CascadeBreaker.endTest();
+        }
+    }
+}
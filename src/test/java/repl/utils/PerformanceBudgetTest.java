@@ -0,0 +1,78 @@
+package repl.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+public class PerformanceBudgetTest {
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() {
+        StepMetrics.endTest();
+    }
+
+    private static PerformanceBudget budget() {
+        PerformanceBudget budget = new PerformanceBudget();
+        budget.setTolerance(0.1);
+        budget.setLimit(PerformanceBudget.Metric.TTFB, Duration.ofMillis(800));
+        budget.setLimit(PerformanceBudget.Metric.LOAD, Duration.ofMillis(1500));
+        budget.setLimit(PerformanceBudget.Metric.LARGEST_CONTENTFUL_PAINT, Duration.ofMillis(2500));
+        return budget;
+    }
+
+    @Test
+    public void reportsMilestonesOverTheirLimitAndTolerance() {
+        PageTiming pdp = new PageTiming("https://www.takealot.com/pdp", 870, 2100, 4000, -1);
+
+        List<PerformanceBudget.Violation> violations = budget().check("pdp", pdp);
+
+        Assert.assertEquals(violations.size(), 1);
+        PerformanceBudget.Violation load = violations.get(0);
+        Assert.assertEquals(load.getName(), "pdp load");
+        Assert.assertEquals(load.getMeasuredMillis(), 4000);
+        Assert.assertEquals(load.getLimitMillis(), 1500);
+        Assert.assertEquals(load.getAllowedMillis(), 1650);
+    }
+
+    @Test
+    public void failsWithEveryMeasuredValue() {
+        PageTiming cart = new PageTiming("https://www.takealot.com/cart", 1200, 2100, 4000, 3000);
+
+        try {
+            budget().assertWithin("cart", cart);
+            Assert.fail("The budget should have been exceeded");
+        } catch (AssertionError ex) {
+            Assert.assertTrue(ex.getMessage().contains("cart ttfb took 1200 ms, budget 800 ms (880 ms with tolerance)"),
+                    ex.getMessage());
+            Assert.assertTrue(ex.getMessage().contains("cart load took 4000 ms"), ex.getMessage());
+            Assert.assertTrue(ex.getMessage().contains("cart LCP took 3000 ms"), ex.getMessage());
+        }
+    }
+
+    @Test
+    public void checksEachStepAgainstItsActionOrExactLimit() throws Exception {
+        StepMetrics test = StepMetrics.startTest("budget");
+        try (StepMetrics.Step step = StepMetrics.start("clickElement", "css=#add-to-cart")) {
+            Thread.sleep(30);
+            step.ok();
+        }
+        try (StepMetrics.Step step = StepMetrics.start("clickElement", "css=#go-to-cart")) {
+            step.ok();
+        }
+        PerformanceBudget budget = new PerformanceBudget();
+        budget.setStepLimit("clickElement", Duration.ofMillis(10));
+        budget.setStepLimit("clickElement css=#add-to-cart", Duration.ofSeconds(5));
+        budget.setStepLimit("enterText", Duration.ofMillis(1));
+
+        Assert.assertTrue(budget.check(test).isEmpty());
+        budget.assertStepsWithin();
+
+        budget.setStepLimit("clickElement css=#add-to-cart", Duration.ofMillis(5));
+        List<PerformanceBudget.Violation> violations = budget.check(test);
+        Assert.assertEquals(violations.size(), 1);
+        Assert.assertEquals(violations.get(0).getName(), "clickElement css=#add-to-cart");
+    }
+}
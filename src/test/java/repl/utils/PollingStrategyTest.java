@@ -0,0 +1,128 @@
+package repl.utils;
+
+import org.openqa.selenium.support.ui.Sleeper;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class PollingStrategyTest {
+
+    @Test
+    public void adaptiveStrategyStartsAtHalfTheMedianWait() {
+        AdaptivePollingStrategy strategy = new AdaptivePollingStrategy(Duration.ofMillis(25), 2,
+                Duration.ofMillis(600));
+        Assert.assertEquals(strategy.initialInterval("css=#cart"), 25);
+
+        for (int i = 0; i < 5; i++) {
+            strategy.recordWait("css=#cart", Duration.ofMillis(400));
+        }
+        Assert.assertEquals(strategy.initialInterval("css=#cart"), 200);
+        Assert.assertEquals(strategy.initialInterval("css=#other"), 25);
+    }
+
+    @Test
+    public void adaptiveStrategyNeverStartsAboveTheMaxInterval() {
+        AdaptivePollingStrategy strategy = new AdaptivePollingStrategy(Duration.ofMillis(25), 2,
+                Duration.ofMillis(600));
+        strategy.recordWait("css=#slow", Duration.ofSeconds(10));
+
+        Assert.assertEquals(strategy.initialInterval("css=#slow"), 600);
+    }
+
+    @Test
+    public void adaptiveStrategyStopsKeepingHistoryOnceFull() {
+        AdaptivePollingStrategy strategy = new AdaptivePollingStrategy(Duration.ofMillis(25), 2,
+                Duration.ofMillis(600));
+        for (int i = 0; i < AdaptivePollingStrategy.MAX_KEYS; i++) {
+            strategy.recordWait("css=#result-" + i, Duration.ofMillis(400));
+        }
+        strategy.recordWait("css=#overflow", Duration.ofMillis(400));
+        strategy.recordWait("css=#result-0", Duration.ofMillis(400));
+
+        Assert.assertNull(strategy.getHistogram("css=#overflow"));
+        Assert.assertEquals(strategy.initialInterval("css=#overflow"), 25);
+        Assert.assertEquals(strategy.getHistogram("css=#result-0").getCount(), 2);
+    }
+
+    @Test
+    public void backoffDoublesFromTheFirstIntervalUpToTheMax() throws InterruptedException {
+        RecordingSleeper recorder = new RecordingSleeper();
+        Sleeper sleeper = new BackoffPollingStrategy(Duration.ofMillis(25), 2, Duration.ofMillis(600), recorder,
+                recorder.clock).newSleeper("css=#cart");
+
+        for (int i = 0; i < 8; i++) {
+            sleeper.sleep(Duration.ofMillis(500));
+        }
+
+        Assert.assertEquals(recorder.sleeps, Arrays.asList(25L, 50L, 100L, 200L, 400L, 600L, 600L, 600L));
+    }
+
+    @Test
+    public void backoffNeverSleepsPastTheTimeout() throws InterruptedException {
+        RecordingSleeper recorder = new RecordingSleeper();
+        Sleeper sleeper = new BackoffPollingStrategy(Duration.ofMillis(25), 2, Duration.ofMillis(600), recorder,
+                recorder.clock).newSleeper("css=#cart", Duration.ofMillis(1000));
+
+        for (int i = 0; i < 7; i++) {
+            sleeper.sleep(Duration.ofMillis(500));
+        }
+
+        // 25 + 50 + 100 + 200 + 400 leaves 225 ms of the timeout, then only the 1 ms minimum
+        Assert.assertEquals(recorder.sleeps, Arrays.asList(25L, 50L, 100L, 200L, 400L, 225L, 1L));
+    }
+
+    @Test
+    public void histogramReportsBucketPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+
+        Assert.assertEquals(histogram.getCount(), 100);
+        Assert.assertEquals(histogram.getMaxMillis(), 100);
+        Assert.assertEquals(histogram.getPercentileMillis(0.5), 50);
+        Assert.assertEquals(histogram.getPercentileMillis(0.99), 100);
+        Assert.assertEquals(histogram.getMeanMillis(), 50.5, 0.001);
+    }
+
+    /**
+     * Records each sleep instead of sleeping and moves its clock on by it
+     */
+    private static class RecordingSleeper implements Sleeper {
+        private final List<Long> sleeps = new ArrayList<>();
+        private final MutableClock clock = new MutableClock();
+
+        @Override
+        public void sleep(Duration duration) {
+            sleeps.add(duration.toMillis());
+            clock.millis += duration.toMillis();
+        }
+    }
+
+    private static class MutableClock extends Clock {
+        private long millis = 1_000_000;
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package repl.utils;
+
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import javax.net.ssl.HttpsURLConnection;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public class RecordReplayProxyTest {
+
+    @Test
+    public void replaysRecordedResponsesWithoutTheOrigin() throws Exception {
+        Path store = Files.createTempDirectory("record-replay");
+        HttpServer origin = startOrigin("<h1>cart</h1>");
+        String url = "http://127.0.0.1:" + origin.getAddress().getPort() + "/cart";
+
+        try (RecordReplayProxy recorder = new RecordReplayProxy(store, RecordReplayProxy.Mode.RECORD)) {
+            recorder.start();
+            Assert.assertEquals(get(recorder, url), "<h1>cart</h1>");
+        } finally {
+            origin.stop(0);
+        }
+
+        try (RecordReplayProxy replayer = new RecordReplayProxy(store, RecordReplayProxy.Mode.REPLAY)) {
+            replayer.start();
+            Assert.assertEquals(get(replayer, url), "<h1>cart</h1>");
+            Assert.assertEquals(get(replayer, url), "<h1>cart</h1>");
+        }
+    }
+
+    @Test
+    public void replayAnswersUnrecordedRequestsWithoutTheNetwork() throws Exception {
+        Path store = Files.createTempDirectory("record-replay");
+        try (RecordReplayProxy replayer = new RecordReplayProxy(store, RecordReplayProxy.Mode.REPLAY)) {
+            replayer.start();
+            HttpURLConnection connection = open(replayer, "http://127.0.0.1:1/missing");
+            Assert.assertEquals(connection.getResponseCode(), 504);
+        }
+    }
+
+    @Test
+    public void refusesBlockedHostsEvenWhenRecorded() throws Exception {
+        Path store = Files.createTempDirectory("record-replay");
+        HttpServer origin = startOrigin("<h1>cart</h1>");
+        String url = "http://127.0.0.1:" + origin.getAddress().getPort() + "/cart";
+
+        try (RecordReplayProxy proxy = new RecordReplayProxy(store, RecordReplayProxy.Mode.CACHE)) {
+            proxy.start();
+            Assert.assertEquals(get(proxy, url), "<h1>cart</h1>");
+
+            proxy.setBlockedHosts(Arrays.asList("*.doubleclick.net", "127.0.0.*"));
+
+            Assert.assertEquals(open(proxy, url).getResponseCode(), 403);
+            Assert.assertTrue(proxy.isBlocked("stats.g.DoubleClick.net"));
+            Assert.assertFalse(proxy.isBlocked("www.takealot.com"));
+        } finally {
+            origin.stop(0);
+        }
+    }
+
+    @Test
+    public void recordsAndReplaysHttps() throws Exception {
+        Path store = Files.createTempDirectory("record-replay");
+        CertificateAuthority originCa = CertificateAuthority.create();
+        HttpsServer origin = HttpsServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        origin.setHttpsConfigurator(new HttpsConfigurator(originCa.serverContext("127.0.0.1")));
+        serve(origin, "<h1>secure cart</h1>");
+        String url = "https://127.0.0.1:" + origin.getAddress().getPort() + "/cart";
+
+        try (RecordReplayProxy recorder = new RecordReplayProxy(store, RecordReplayProxy.Mode.RECORD)) {
+            recorder.start();
+            recorder.setUpstreamSslContext(originCa.clientContext());
+            Assert.assertEquals(read(openTrusting(recorder, url)), "<h1>secure cart</h1>");
+        } finally {
+            origin.stop(0);
+        }
+
+        try (RecordReplayProxy replayer = new RecordReplayProxy(store, RecordReplayProxy.Mode.REPLAY)) {
+            replayer.start();
+            Assert.assertEquals(read(openTrusting(replayer, url)), "<h1>secure cart</h1>");
+        }
+    }
+
+    private static HttpURLConnection openTrusting(RecordReplayProxy proxy, String url) throws Exception {
+        HttpsURLConnection connection = (HttpsURLConnection) open(proxy, url);
+        connection.setSSLSocketFactory(proxy.getCertificateAuthority().clientContext().getSocketFactory());
+        return connection;
+    }
+
+    private static HttpServer startOrigin(String body) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        serve(server, body);
+        return server;
+    }
+
+    private static void serve(HttpServer server, String body) {
+        server.createContext("/", exchange -> {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "text/html");
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+    }
+
+    private static HttpURLConnection open(RecordReplayProxy proxy, String url) throws IOException {
+        Proxy httpProxy = new Proxy(Proxy.Type.HTTP, new InetSocketAddress(InetAddress.getLoopbackAddress(), proxy.getPort()));
+        return (HttpURLConnection) new URL(url).openConnection(httpProxy);
+    }
+
+    private static String get(RecordReplayProxy proxy, String url) throws IOException {
+        return read(open(proxy, url));
+    }
+
+    private static String read(HttpURLConnection connection) throws IOException {
+        Assert.assertEquals(connection.getResponseCode(), 200);
+        try (InputStream in = connection.getInputStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+}
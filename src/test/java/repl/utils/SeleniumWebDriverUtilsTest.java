@@ -0,0 +1,184 @@
+package repl.utils;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SeleniumWebDriverUtilsTest {
+    private static final Locator SPINNER = Locator.css(".spinner");
+
+    private final WebElement element = (WebElement) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[]{WebElement.class}, (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "isDisplayed":
+                        return true;
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "equals":
+                        return proxy == args[0];
+                    default:
+                        return null;
+                }
+            });
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() {
+        CascadeBreaker.endTest();
+    }
+
+    @Test
+    public void awaitWebElementHandsBackTheElementTheScriptFound() {
+        StubPage page = new StubPage();
+        page.scriptResult = result(true, element);
+
+        Assert.assertSame(page.utils.awaitWebElement(SPINNER, ElementState.VISIBLE), element);
+        Assert.assertEquals(page.scriptArguments[2], "visible");
+    }
+
+    @Test
+    public void awaitElementIsFalseWhenTheScriptTimesOut() {
+        StubPage page = new StubPage();
+        page.scriptResult = result(false, null);
+
+        Assert.assertFalse(page.utils.awaitElement(SPINNER, ElementState.PRESENT, Duration.ofMillis(200)));
+        Assert.assertEquals(page.scriptArguments[3], 200L);
+    }
+
+    @Test
+    public void waitUntilGonePollsWhenTheScriptIsInterrupted() {
+        StubPage page = new StubPage();
+        page.scriptFailure = new WebDriverException("navigated away");
+        page.found = null;
+
+        Assert.assertTrue(page.utils.waitUntilGone(SPINNER));
+        Assert.assertTrue(page.lookups > 0);
+    }
+
+    @Test
+    public void thePollingFallbackOnlyGetsWhatIsLeftOfTheTimeout() {
+        StubPage page = new StubPage();
+        page.scriptDelayMs = 300;
+        page.scriptFailure = new WebDriverException("navigated away");
+        page.found = null;
+
+        long start = System.nanoTime();
+        Assert.assertNull(page.utils.awaitWebElement(SPINNER, ElementState.PRESENT, Duration.ofMillis(400)));
+
+        Assert.assertTrue(page.lookups > 0);
+        Assert.assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 2000);
+    }
+
+    @Test
+    public void thePollingFallbackIsCappedByTheCascadeBreaker() {
+        StubPage page = new StubPage();
+        page.scriptFailure = new WebDriverException("navigated away");
+        page.found = null;
+        CascadeBreaker.startTest("checkout", Duration.ofMillis(300), Duration.ZERO);
+
+        long start = System.nanoTime();
+        Assert.assertFalse(page.utils.awaitElement(SPINNER, ElementState.PRESENT));
+
+        Assert.assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 2000);
+    }
+
+    @Test
+    public void findWebElementThrowsNoSuchElementWhenTheElementNeverAppears() {
+        StubPage page = new StubPage();
+        page.found = null;
+        page.utils.getWaitPolicy().setTimeout(WaitPolicy.Budget.PRESENT, Duration.ofMillis(100));
+
+        try {
+            page.utils.findWebElement(SPINNER);
+            Assert.fail("Expected NoSuchElementException");
+        } catch (NoSuchElementException ex) {
+            Assert.assertTrue(ex.getCause() instanceof TimeoutException);
+        }
+    }
+
+    @Test
+    public void refusesToReplaceAnEnabledSessionPool() {
+        SeleniumWebDriverUtils utils = new SeleniumWebDriverUtils();
+        utils.enableSessionPool(0, 5);
+        SessionPool pool = utils.getSessionPool();
+        try {
+            utils.enableSessionPool(0, 5);
+            Assert.fail("Expected IllegalStateException");
+        } catch (IllegalStateException ex) {
+            Assert.assertSame(utils.getSessionPool(), pool);
+        } finally {
+            utils.shutdownAll();
+        }
+
+        utils.enableSessionPool(0, 5);
+        Assert.assertNotSame(utils.getSessionPool(), pool);
+        utils.shutdownAll();
+    }
+
+    private static Map<String, Object> result(boolean met, WebElement found) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("met", met);
+        result.put("element", found);
+        return result;
+    }
+
+    /**
+     * A driver whose in page waits answer with scriptResult or throw scriptFailure, and whose
+     * lookups find the element found, none if it is null
+     */
+    private class StubPage {
+        private volatile Object scriptResult;
+        private volatile RuntimeException scriptFailure;
+        private volatile long scriptDelayMs;
+        private volatile Object[] scriptArguments;
+        private volatile WebElement found = element;
+        private volatile int lookups;
+
+        private final WebDriver driver = (WebDriver) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{WebDriver.class, JavascriptExecutor.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "executeAsyncScript":
+                            scriptArguments = (Object[]) args[1];
+                            Thread.sleep(scriptDelayMs);
+                            if (scriptFailure != null) {
+                                throw scriptFailure;
+                            }
+                            return scriptResult;
+                        case "findElement":
+                            lookups++;
+                            if (found == null) {
+                                throw new NoSuchElementException("no such element");
+                            }
+                            return found;
+                        case "findElements":
+                            lookups++;
+                            List<WebElement> all = found == null ? Collections.emptyList()
+                                    : Collections.singletonList(found);
+                            return all;
+                        case "toString":
+                            return "stub page";
+                        default:
+                            return null;
+                    }
+                });
+
+        private final SeleniumWebDriverUtils utils = new SeleniumWebDriverUtils() {
+            @Override
+            public WebDriver getDriver() {
+                return driver;
+            }
+        };
+    }
+}
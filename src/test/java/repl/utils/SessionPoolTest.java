@@ -0,0 +1,161 @@
+package repl.utils;
+
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+public class SessionPoolTest {
+    private final List<StubSession> launched = new ArrayList<>();
+    private SessionPool pool;
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+        launched.clear();
+    }
+
+    @Test
+    public void handsBackTheSameSessionAfterItIsReset() {
+        pool = new SessionPool(this::launch, 5);
+
+        WebDriver first = pool.acquire();
+        pool.release(first);
+
+        Assert.assertEquals(pool.idleCount(), 1);
+        Assert.assertSame(pool.acquire(), first);
+        Assert.assertEquals(launched.size(), 1);
+        Assert.assertTrue(launched.get(0).cookiesDeleted > 0);
+        Assert.assertEquals(launched.get(0).lastUrl, "about:blank");
+        Assert.assertFalse(launched.get(0).quit);
+    }
+
+    @Test
+    public void recyclesASessionOnceItIsUsedUp() {
+        pool = new SessionPool(this::launch, 2);
+
+        WebDriver first = pool.acquire();
+        pool.release(first);
+        Assert.assertSame(pool.acquire(), first);
+        pool.release(first);
+
+        Assert.assertTrue(launched.get(0).quit);
+        Assert.assertEquals(pool.size(), 0);
+        Assert.assertEquals(pool.idleCount(), 0);
+        Assert.assertNotSame(pool.acquire(), first);
+        Assert.assertEquals(launched.size(), 2);
+    }
+
+    @Test
+    public void discardsASessionThatCanNotBeReset() {
+        pool = new SessionPool(this::launch, 5);
+
+        WebDriver first = pool.acquire();
+        launched.get(0).failReset = true;
+        pool.release(first);
+
+        Assert.assertTrue(launched.get(0).quit);
+        Assert.assertEquals(pool.size(), 0);
+        Assert.assertNotSame(pool.acquire(), first);
+    }
+
+    @Test
+    public void quitsEverySessionOnShutdown() {
+        pool = new SessionPool(this::launch, 5);
+        pool.release(pool.acquire());
+        pool.acquire();
+        pool.acquire();
+
+        pool.shutdown();
+
+        Assert.assertEquals(launched.size(), 2);
+        Assert.assertTrue(launched.get(0).quit);
+        Assert.assertTrue(launched.get(1).quit);
+        Assert.assertEquals(pool.size(), 0);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void refusesToHandOutSessionsAfterShutdown() {
+        pool = new SessionPool(this::launch, 5);
+        pool.shutdown();
+
+        pool.acquire();
+    }
+
+    private WebDriver launch() {
+        StubSession session = new StubSession();
+        launched.add(session);
+        return session.driver;
+    }
+
+    /**
+     * A session with one window that records how it was reset and whether it was quit
+     */
+    private static class StubSession {
+        private final WebDriver driver;
+        private volatile boolean failReset;
+        private volatile boolean quit;
+        private volatile int cookiesDeleted;
+        private volatile String lastUrl;
+
+        StubSession() {
+            Object options = stub(WebDriver.Options.class, (method, args) -> {
+                if (method.equals("deleteAllCookies")) {
+                    cookiesDeleted++;
+                }
+                return null;
+            });
+            Object[] self = new Object[1];
+            Object targets = stub(WebDriver.TargetLocator.class, (method, args) -> self[0]);
+            driver = (WebDriver) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{WebDriver.class, JavascriptExecutor.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "equals":
+                                return proxy == args[0];
+                            case "toString":
+                                return "stub session";
+                            case "getWindowHandles":
+                                if (failReset) {
+                                    throw new WebDriverException("The session is gone");
+                                }
+                                Set<String> handles = Collections.singleton("main");
+                                return handles;
+                            case "switchTo":
+                                return targets;
+                            case "manage":
+                                return options;
+                            case "get":
+                                lastUrl = (String) args[0];
+                                return null;
+                            case "quit":
+                                quit = true;
+                                return null;
+                            default:
+                                return null;
+                        }
+                    });
+            self[0] = driver;
+        }
+
+        private static Object stub(Class<?> type, Handler handler) {
+            return Proxy.newProxyInstance(StubSession.class.getClassLoader(), new Class<?>[]{type},
+                    (proxy, method, args) -> handler.invoke(method.getName(), args));
+        }
+    }
+
+    private interface Handler {
+        Object invoke(String method, Object[] args);
+    }
+}
@@ -0,0 +1,79 @@
+package repl.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class StepMetricsTest {
+
+    @Test
+    public void recordsOnlyTheOuterStepWithItsWaits() {
+        Locator submit = Locator.css("#submit");
+        StepMetrics test = StepMetrics.startTest("recordsOnlyTheOuterStepWithItsWaits");
+        try (StepMetrics.Step step = StepMetrics.start("clickElement", submit)) {
+            try (StepMetrics.Step inner = StepMetrics.start("findWebElement", submit)) {
+                StepMetrics.recordWait(3_000_000, 2);
+                inner.ok();
+            }
+            StepMetrics.recordWait(2_000_000, 1);
+            step.ok();
+        }
+        try (StepMetrics.Step ignored = StepMetrics.start("clickElement", submit)) {
+            StepMetrics.recordWait(1_000_000, 4);
+        }
+        Assert.assertSame(StepMetrics.endTest(), test);
+
+        Assert.assertEquals(test.getSteps().size(), 1);
+        StepMetrics.StepStats click = test.getStep("clickElement", "css=#submit");
+        Assert.assertEquals(click.getCount(), 2);
+        Assert.assertEquals(click.getCount(StepMetrics.Outcome.OK), 1);
+        Assert.assertEquals(click.getCount(StepMetrics.Outcome.FAILED), 1);
+        Assert.assertEquals(click.getPolls(), 7);
+        Assert.assertEquals(click.getWait().getTotalMillis(), 6);
+    }
+
+    @Test
+    public void attributesTracedCommandsToTheRunningStep() {
+        StepMetrics test = StepMetrics.startTest("attributesTracedCommandsToTheRunningStep");
+        try (StepMetrics.Step step = StepMetrics.start("enterText", Locator.id("search"))) {
+            CommandTracer.record("findElement", 2_000_000);
+            CommandTracer.record("clearElement", 1_000_000);
+            CommandTracer.record("sendKeysToElement", 1_000_000);
+            step.ok();
+        }
+        CommandTracer.record("getTitle", 1_000_000);
+        StepMetrics.endTest();
+
+        StepMetrics.StepStats enterText = test.getStep("enterText", "id=search");
+        Assert.assertEquals(enterText.getCommands(), 3);
+        Assert.assertEquals(enterText.getCommandTime().getTotalMillis(), 4);
+        Assert.assertTrue(CommandTracer.getCommandCounts().get("findElement") >= 1);
+        Assert.assertTrue(CommandTracer.getCommandNames().contains("getTitle"));
+    }
+
+    @Test
+    public void exportsJsonAndCsv() throws Exception {
+        StepMetrics metrics = new StepMetrics("export \"test\"");
+        StepMetrics test = StepMetrics.startTest("exportsJsonAndCsv");
+        try (StepMetrics.Step step = StepMetrics.start("getText", "xpath=//a[@id=\"x\"],b")) {
+            step.ok();
+        }
+        StepMetrics.endTest();
+        Path dir = Files.createTempDirectory("metrics");
+
+        test.export(dir, "test");
+        metrics.export(dir, "empty");
+
+        List<String> csv = Files.readAllLines(dir.resolve("test.csv"), StandardCharsets.UTF_8);
+        Assert.assertEquals(csv.size(), 2);
+        Assert.assertTrue(csv.get(1).startsWith("getText,\"xpath=//a[@id=\"\"x\"\"],b\",1,1,0,"), csv.get(1));
+        String json = new String(Files.readAllBytes(dir.resolve("test.json")), StandardCharsets.UTF_8);
+        Assert.assertTrue(json.contains("\"target\":\"xpath=//a[@id=\\\"x\\\"],b\""), json);
+        Assert.assertTrue(new String(Files.readAllBytes(dir.resolve("empty.json")), StandardCharsets.UTF_8)
+                .startsWith("{\"name\":\"export \\\"test\\\"\",\"steps\":["));
+    }
+}
@@ -0,0 +1,54 @@
+package repl.utils;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.MDC;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.spi.LoggingEvent;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class TestLogRoutingAppenderTest {
+
+    @Test
+    public void writesEachTestToItsOwnFile() throws Exception {
+        Path dir = Files.createTempDirectory("test-logs");
+        TestLogRoutingAppender routing = new TestLogRoutingAppender(new PatternLayout("%m%n"), 1024);
+        AsyncLogAppender async = new AsyncLogAppender(64, AsyncLogAppender.OverflowPolicy.BLOCK, 8, false);
+        async.addAppender(routing);
+        Logger logger = Logger.getLogger("routing-test");
+
+        Thread[] tests = new Thread[2];
+        for (int t = 0; t < tests.length; t++) {
+            String testKey = "test" + t;
+            routing.register(testKey, dir.resolve(testKey + ".log").toString());
+            tests[t] = new Thread(() -> {
+                MDC.put(TestLogRoutingAppender.TEST_KEY, testKey);
+                for (int i = 0; i < 50; i++) {
+                    async.doAppend(new LoggingEvent(Logger.class.getName(), logger, Level.INFO, testKey + " " + i, null));
+                }
+                MDC.remove(TestLogRoutingAppender.TEST_KEY);
+                async.afterQueued(() -> routing.release(testKey));
+            });
+            tests[t].start();
+        }
+        for (Thread test : tests) {
+            test.join();
+        }
+        async.doAppend(new LoggingEvent(Logger.class.getName(), logger, Level.INFO, "not in a test", null));
+        async.close();
+
+        Assert.assertEquals(routing.openCount(), 0);
+        for (int t = 0; t < tests.length; t++) {
+            List<String> lines = Files.readAllLines(dir.resolve("test" + t + ".log"), StandardCharsets.UTF_8);
+            Assert.assertEquals(lines.size(), 50);
+            Assert.assertEquals(lines.get(0), "test" + t + " 0");
+            Assert.assertEquals(lines.get(49), "test" + t + " 49");
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package repl.utils;
+
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.CommandExecutor;
+import org.openqa.selenium.remote.DesiredCapabilities;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.remote.Response;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class TracingCommandExecutorTest {
+
+    @Test
+    public void tracesTheCommandsOfAnAttachedRemoteSession() {
+        List<String> sent = new ArrayList<>();
+        RemoteWebDriver driver = new RemoteWebDriver(stubExecutor(sent), new DesiredCapabilities());
+        LatencyHistogram before = CommandTracer.getCommand("getTitle");
+        long sentBefore = before == null ? 0 : before.getCount();
+
+        TracingCommandExecutor.trace(driver);
+        TracingCommandExecutor.trace(driver);
+        driver.getTitle();
+
+        Assert.assertTrue(driver.getCommandExecutor() instanceof TracingCommandExecutor);
+        Assert.assertFalse(((TracingCommandExecutor) driver.getCommandExecutor()).getDelegate()
+                instanceof TracingCommandExecutor);
+        Assert.assertEquals(sent.get(sent.size() - 1), "getTitle");
+        Assert.assertEquals(CommandTracer.getCommand("getTitle").getCount(), sentBefore + 1);
+    }
+
+    /**
+     * Answers every command with an empty success, starting a session when asked
+     */
+    private static CommandExecutor stubExecutor(List<String> sent) {
+        return (Command command) -> {
+            sent.add(command.getName());
+            Response response = new Response();
+            response.setSessionId("stub-session");
+            response.setStatus(0);
+            response.setState("success");
+            response.setValue(command.getName().equals("newSession")
+                    ? Collections.singletonMap("browserName", "stub") : "");
+            return response;
+        };
+    }
+}